@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Импорт фильмов по HTTP: по одному через {@code POST /films} против одного запроса
+ * {@code POST /films/batch} с JSON-массивом или NDJSON. Одна операция — один фильм,
+ * поэтому результаты всех методов сравнимы напрямую (фильмов в миллисекунду).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BatchImportBenchmark {
+
+    private static final int BATCH = 1000;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI filmsUri;
+    private URI batchUri;
+    private List<String> films;
+    private String jsonBatch;
+    private String ndjsonBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--logging.level.root=WARN");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        filmsUri = URI.create("http://localhost:" + port + "/films");
+        batchUri = URI.create("http://localhost:" + port + "/films/batch");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        films = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            films.add(objectMapper.writeValueAsString(BenchmarkData.film(i)));
+        }
+        jsonBatch = "[" + String.join(",", films) + "]";
+        ndjsonBatch = String.join("\n", films) + "\n";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int perItem() throws IOException, InterruptedException {
+        int bytes = 0;
+        for (String film : films) {
+            bytes += post(filmsUri, "application/json", film);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batchJson() throws IOException, InterruptedException {
+        return post(batchUri, "application/json", jsonBatch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batchNdjson() throws IOException, InterruptedException {
+        return post(batchUri, "application/x-ndjson", ndjsonBatch);
+    }
+
+    private int post(URI uri, String contentType, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Ответ " + response.statusCode() + " на " + uri);
+        }
+        return response.body().length;
+    }
+}
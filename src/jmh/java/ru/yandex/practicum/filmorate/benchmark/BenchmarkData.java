@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Генерация наборов данных для бенчмарков. Лайки и дружбы распределены по закону Ципфа:
+ * немногие «хиты» собирают большую часть лайков, как в реальном каталоге.
+ */
+public final class BenchmarkData {
+
+    public static final double ZIPF_EXPONENT = 1.1;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Ранг от 1 до n с вероятностью, приблизительно пропорциональной 1 / rank^exponent
+     * (обращение функции распределения непрерывного степенного закона).
+     */
+    public static long zipf(Random random, long n, double exponent) {
+        double oneMinusS = 1 - exponent;
+        double max = Math.pow(n + 1, oneMinusS);
+        double value = Math.pow((max - 1) * random.nextDouble() + 1, 1 / oneMinusS);
+        return Math.min(n, Math.max(1, (long) value));
+    }
+
+    public static Film film(long index) {
+        return Film.builder()
+                .name("Фильм " + index)
+                .description("Описание фильма номер " + index)
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(index % 25_000))
+                .duration(60 + (int) (index % 120))
+                .build();
+    }
+
+    public static User user(long index) {
+        return User.builder()
+                .email("user" + index + "@example.com")
+                .login("user" + index)
+                .name("Пользователь " + index)
+                .birthday(LocalDate.of(1970, 1, 1).plusDays(index % 15_000))
+                .build();
+    }
+
+    public static void addFilms(FilmStorage storage, int count) {
+        for (int i = 1; i <= count; i++) {
+            storage.addFilm(film(i));
+        }
+    }
+
+    public static void addUsers(UserStorage storage, int count) {
+        for (int i = 1; i <= count; i++) {
+            storage.addUser(user(i));
+        }
+    }
+
+    /**
+     * Расставляет примерно {@code likes} лайков: фильм выбирается по Ципфу, пользователь равномерно
+     * из первых {@code users} id. Повторные пары просто не добавляются.
+     */
+    public static void addSkewedLikes(FilmStorage storage, int films, int users, long likes, long seed) {
+        Random random = new Random(seed);
+        for (long i = 0; i < likes; i++) {
+            storage.addLike(zipf(random, films, ZIPF_EXPONENT), 1 + random.nextInt(users));
+        }
+    }
+
+    /**
+     * Дружбы со скошенной степенью вершин: один конец выбирается по Ципфу, второй равномерно.
+     */
+    public static void addSkewedFriendships(UserStorage storage, int users, long friendships, long seed) {
+        Random random = new Random(seed);
+        for (long i = 0; i < friendships; i++) {
+            long userId = zipf(random, users, ZIPF_EXPONENT);
+            long friendId = 1 + random.nextInt(users);
+            if (userId != friendId) {
+                storage.addFriend(userId, friendId);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Запускает все бенчмарки для каждого числа потоков из {@code -Djmh.threads=1,4,8} и пишет
+ * результаты в JSON ({@code target/jmh/result-threads-N.json}), чтобы их можно было сравнивать между сборками.
+ * Параметры наборов данных переопределяются через {@code -Djmh.params=size=1000,100000;count=10},
+ * профилировщики JMH подключаются через {@code -Djmh.prof=gc} (выделение памяти на операцию).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", ".*Benchmark.*");
+        String threads = System.getProperty("jmh.threads", "1");
+        String params = System.getProperty("jmh.params", "");
+        String profilers = System.getProperty("jmh.prof", "");
+        File output = new File(System.getProperty("jmh.output", "target/jmh"));
+        if (!output.exists() && !output.mkdirs()) {
+            throw new IllegalStateException("Не удалось создать каталог " + output);
+        }
+
+        for (String threadCount : threads.split(",")) {
+            int threadNumber = Integer.parseInt(threadCount.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadNumber)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(output, "result-threads-" + threadNumber + ".json").getPath());
+            for (String param : params.split(";")) {
+                if (param.isBlank()) {
+                    continue;
+                }
+                String[] nameAndValues = param.split("=", 2);
+                options.param(nameAndValues[0].trim(), nameAndValues[1].split(","));
+            }
+            for (String profiler : profilers.split(",")) {
+                if (!profiler.isBlank()) {
+                    options.addProfiler(profiler.trim());
+                }
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
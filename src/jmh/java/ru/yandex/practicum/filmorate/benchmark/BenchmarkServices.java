@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.ListeningFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.GraphIndexedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Сервисы с индексами, подключёнными так же, как в {@code StorageConfig}. Индексы строятся лениво
+ * при первом обращении, изменения фильмов они видят только через {@link #filmStorage()}.
+ */
+public final class BenchmarkServices {
+
+    private final FilmStorage filmStorage;
+    private final StorageVersions versions = new StorageVersions();
+    private final LikeIndex likeIndex;
+    private final TrendingIndex trendingIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmRangeIndex rangeIndex;
+
+    public BenchmarkServices(FilmStorage storage) {
+        likeIndex = new LikeIndex(storage::getAllFilms);
+        trendingIndex = new TrendingIndex(List.of(Duration.ofHours(1)), 60, Clock.systemUTC());
+        searchIndex = new FilmSearchIndex(storage::getAllFilms);
+        rangeIndex = new FilmRangeIndex(storage::getAllFilms);
+        filmStorage = new ListeningFilmStorage(storage, List.of(likeIndex, trendingIndex, searchIndex, rangeIndex));
+    }
+
+    public FilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    public UserService userService(UserStorage storage, MeterRegistry registry) {
+        FriendshipGraph graph = new FriendshipGraph(storage::getAllUsers);
+        return new UserService(new GraphIndexedUserStorage(storage, graph), registry, null, versions, graph,
+                likeIndex);
+    }
+
+    public FilmService filmService(UserService userService, MeterRegistry registry, LikeWriteBuffer likeBuffer) {
+        return new FilmService(filmStorage, userService, registry, likeBuffer, versions, likeIndex, trendingIndex,
+                searchIndex, rangeIndex);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск фильмов по тексту. Слова названий и описаний выбираются по Ципфу из словаря, поэтому в запросах
+ * встречаются и редкие слова, и слова, которые есть в большой части каталога.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class FilmSearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 4_096;
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    private FilmSearchIndex index;
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        Random random = new Random(7);
+        for (int i = 1; i <= films; i++) {
+            Film film = BenchmarkData.film(i).withName(text(random, 3)).withDescription(text(random, 12));
+            filmStorage.addFilm(film);
+        }
+        BenchmarkData.addSkewedLikes(filmStorage, films, 100_000, films * 5L, 3);
+        index = new FilmSearchIndex(filmStorage::getAllFilms);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            // Два слова, второе недописано, как при наборе в строке поиска
+            String last = word(random);
+            queries[i] = word(random) + " " + last.substring(0, Math.min(last.length(), 4));
+        }
+        index.search(queries[0], 10, 0.5);
+    }
+
+    @Benchmark
+    public long[] search() {
+        return index.search(queries[ThreadLocalRandom.current().nextInt(QUERIES)], 10, 0.5);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(word(random)).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String word(Random random) {
+        return "w" + Long.toString(BenchmarkData.zipf(random, VOCABULARY, BenchmarkData.ZIPF_EXPONENT) * 7919, 36);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лайк и снятие лайка через сервис. Фильм выбирается по Ципфу, поэтому несколько потоков
+ * конкурируют за одни и те же «горячие» фильмы. Каждый поток ставит лайки от своих пользователей,
+ * так что пары не пересекаются и сервис не бросает исключений о повторном лайке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class FilmServiceBenchmark {
+
+    static final int USERS_PER_THREAD = 1024;
+    private static final int MAX_THREADS = 256;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private FilmService filmService;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.addFilms(filmStorage, size);
+        BenchmarkData.addUsers(userStorage, size + MAX_THREADS * USERS_PER_THREAD);
+        BenchmarkData.addSkewedLikes(filmStorage, size, size, size * 2L, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BenchmarkServices services = new BenchmarkServices(filmStorage);
+        filmService = services.filmService(services.userService(userStorage, registry), registry, null);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike(ThreadState state) {
+        long filmId = BenchmarkData.zipf(state.random, size, BenchmarkData.ZIPF_EXPONENT);
+        long userId = state.nextUserId();
+        filmService.addLike(filmId, userId);
+        filmService.removeLike(filmId, userId);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final Random random = new Random();
+        private long firstUserId;
+        private int offset;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmServiceBenchmark benchmark) {
+            int thread = benchmark.threadCounter.getAndIncrement() % MAX_THREADS;
+            firstUserId = benchmark.size + 1L + (long) thread * USERS_PER_THREAD;
+        }
+
+        long nextUserId() {
+            offset = (offset + 1) % USERS_PER_THREAD;
+            return firstUserId + offset;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации друзей по графу дружбы. Пользователи выбираются по Ципфу, поэтому запросы чаще
+ * приходятся на пользователей с большим числом друзей; обход ограничен бюджетом, так что задержка
+ * не должна расти вместе со степенью вершины.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class FriendSuggestionsBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"10"})
+    private int friendsPerUser;
+
+    @Param({"10"})
+    private int count;
+
+    private FriendshipGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.addUsers(userStorage, size);
+        BenchmarkData.addSkewedFriendships(userStorage, size, (long) size * friendsPerUser, 2);
+        graph = new FriendshipGraph(userStorage::getAllUsers);
+        graph.friends(1);
+    }
+
+    @Benchmark
+    public long[] suggestions(UserServiceBenchmark.ThreadState state) {
+        return graph.suggestions(state.nextUserId(size), count);
+    }
+
+    @Benchmark
+    public long[] friends(UserServiceBenchmark.ThreadState state) {
+        return graph.friends(state.nextUserId(size));
+    }
+}
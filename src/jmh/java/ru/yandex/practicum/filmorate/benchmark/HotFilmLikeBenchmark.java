@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.durable.DurableFilmStorage;
+import ru.yandex.practicum.filmorate.storage.durable.FsyncPolicy;
+import ru.yandex.practicum.filmorate.storage.durable.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * «Шторм» лайков на один фильм: все потоки ставят и снимают лайки одному и тому же фильму,
+ * синхронно через хранилище или через буфер отложенной записи. Для хранилища с журналом и fsync на каждую
+ * запись синхронный путь упирается в диск, а буфер сбрасывает лайки одной пачкой.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class HotFilmLikeBenchmark {
+
+    private static final int USERS_PER_THREAD = 16 * 1024;
+    private static final int MAX_THREADS = 64;
+    private static final long HOT_FILM_ID = 1;
+
+    @Param({"memory", "durable"})
+    private String storage;
+
+    @Param({"false", "true"})
+    private boolean writeBehind;
+
+    private FilmService filmService;
+    private LikeWriteBuffer likeBuffer;
+    private WriteAheadLog writeAheadLog;
+    private Path directory;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.addFilms(films, 1);
+        BenchmarkData.addUsers(userStorage, MAX_THREADS * USERS_PER_THREAD);
+        FilmStorage filmStorage = films;
+        if (storage.equals("durable")) {
+            directory = Files.createTempDirectory("filmorate-hot-film-bench");
+            writeAheadLog = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, Duration.ofMillis(50), 1,
+                    Executors.defaultThreadFactory());
+            filmStorage = new DurableFilmStorage(films, writeAheadLog);
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BenchmarkServices services = new BenchmarkServices(filmStorage);
+        if (writeBehind) {
+            likeBuffer = new LikeWriteBuffer(services.filmStorage(), 16, 16 * 1024, 1024, Duration.ofMillis(5),
+                    Executors.defaultThreadFactory(), registry);
+        }
+        filmService = services.filmService(services.userService(userStorage, registry), registry, likeBuffer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (likeBuffer != null) {
+            likeBuffer.close();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void toggleLike(ThreadState state) {
+        int offset = state.next();
+        long userId = state.firstUserId + offset;
+        if (state.liked[offset]) {
+            filmService.removeLike(HOT_FILM_ID, userId);
+        } else {
+            filmService.addLike(HOT_FILM_ID, userId);
+        }
+        state.liked[offset] = !state.liked[offset];
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final boolean[] liked = new boolean[USERS_PER_THREAD];
+        private long firstUserId;
+        private int offset;
+
+        @Setup(Level.Trial)
+        public void setUp(HotFilmLikeBenchmark benchmark) {
+            int thread = benchmark.threadCounter.getAndIncrement() % MAX_THREADS;
+            firstUserId = 1 + (long) thread * USERS_PER_THREAD;
+        }
+
+        int next() {
+            offset = (offset + 1) % USERS_PER_THREAD;
+            return offset;
+        }
+    }
+}
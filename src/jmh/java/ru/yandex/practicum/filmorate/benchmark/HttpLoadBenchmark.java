@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузка на поднятое приложение по HTTP в режимах платформенных и виртуальных потоков
+ * ({@code spring.threads.virtual.enabled}). SampleTime даёт p50/p99, Throughput — пропускную способность.
+ * Виртуальные потоки включаются только на Java 21, на более старой JVM оба режима совпадают.
+ * Число клиентских потоков задаётся через {@code -Djmh.threads}, например {@code 16,64,256}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HttpLoadBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+    private static final int USERS_PER_THREAD = 1024;
+    private static final int MAX_THREADS = 512;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=200",
+                "--logging.level.root=WARN");
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        BenchmarkData.addFilms(filmStorage, FILMS);
+        BenchmarkData.addUsers(userStorage, USERS + MAX_THREADS * USERS_PER_THREAD);
+        BenchmarkData.addSkewedLikes(filmStorage, FILMS, USERS, USERS * 2L, 1);
+        BenchmarkData.addSkewedFriendships(userStorage, USERS, USERS * 2L, 2);
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int popularFilms() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/popular?count=10")).GET());
+    }
+
+    @Benchmark
+    public int friends(ThreadState state) throws IOException, InterruptedException {
+        long userId = BenchmarkData.zipf(state.random, USERS, BenchmarkData.ZIPF_EXPONENT);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + userId + "/friends")).GET());
+    }
+
+    @Benchmark
+    public int likeAndUnlike(ThreadState state) throws IOException, InterruptedException {
+        long filmId = BenchmarkData.zipf(state.random, FILMS, BenchmarkData.ZIPF_EXPONENT);
+        URI like = URI.create(baseUrl + "/films/" + filmId + "/like/" + state.nextUserId());
+        return send(HttpRequest.newBuilder(like).PUT(HttpRequest.BodyPublishers.noBody()))
+                + send(HttpRequest.newBuilder(like).DELETE());
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Ответ " + response.statusCode() + " на " + response.uri());
+        }
+        return response.body().length;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final Random random = new Random();
+        private long firstUserId;
+        private int offset;
+
+        @Setup(Level.Trial)
+        public void setUp(HttpLoadBenchmark benchmark) {
+            int thread = benchmark.threadCounter.getAndIncrement() % MAX_THREADS;
+            firstUserId = USERS + 1L + (long) thread * USERS_PER_THREAD;
+        }
+
+        long nextUserId() {
+            offset = (offset + 1) % USERS_PER_THREAD;
+            return firstUserId + offset;
+        }
+    }
+}
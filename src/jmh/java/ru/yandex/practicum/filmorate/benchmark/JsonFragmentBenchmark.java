@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import ru.yandex.practicum.filmorate.controller.JsonFragmentHttpMessageConverter;
+import ru.yandex.practicum.filmorate.controller.JsonFragments;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Время записи тела ответа на запрос: Jackson-конвертер Spring против готовых фрагментов JSON. Отдаются
+ * {@code count} самых залайканных фильмов (по Ципфу это первые id) или первая страница пользователей, тело
+ * пишется в память тем же путём, что и в ответ. {@code writesPerRequest} — сколько лайков (для пользователей —
+ * дружб) появляется среди отдаваемых записей между запросами, каждое изменение делает фрагмент устаревшим.
+ * Выделение памяти на запрос — с {@code -Djmh.prof=gc} (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonFragmentBenchmark {
+
+    private static final int CATALOG = 10_000;
+
+    @Param({"10", "100"})
+    private int count;
+
+    @Param({"0", "1"})
+    private int writesPerRequest;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private MappingJackson2HttpMessageConverter jackson;
+    private JsonFragmentHttpMessageConverter fragments;
+    private Random random;
+    private final Response response = new Response();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+        fragments = new JsonFragmentHttpMessageConverter(new JsonFragments(objectMapper, 256L << 20,
+                new SimpleMeterRegistry()));
+        random = new Random(1);
+
+        filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.addFilms(filmStorage, CATALOG);
+        BenchmarkData.addSkewedLikes(filmStorage, CATALOG, CATALOG, CATALOG * 20L, 1);
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.addUsers(userStorage, CATALOG);
+        BenchmarkData.addSkewedFriendships(userStorage, CATALOG, CATALOG * 10L, 2);
+    }
+
+    @Benchmark
+    public int popularJackson() throws IOException {
+        return write(jackson, popular());
+    }
+
+    @Benchmark
+    public int popularFragments() throws IOException {
+        return write(fragments, popular());
+    }
+
+    @Benchmark
+    public int usersJackson() throws IOException {
+        return write(jackson, users());
+    }
+
+    @Benchmark
+    public int usersFragments() throws IOException {
+        return write(fragments, users());
+    }
+
+    private List<Film> popular() {
+        for (int i = 0; i < writesPerRequest; i++) {
+            filmStorage.addLike(BenchmarkData.zipf(random, count, BenchmarkData.ZIPF_EXPONENT),
+                    1 + random.nextInt(CATALOG));
+        }
+        return LongStream.rangeClosed(1, count).mapToObj(filmStorage::getFilmById).toList();
+    }
+
+    private List<User> users() {
+        for (int i = 0; i < writesPerRequest; i++) {
+            userStorage.addFriend(1 + random.nextInt(count), 1 + random.nextInt(CATALOG));
+        }
+        return userStorage.getAllUsers(0, count);
+    }
+
+    private int write(GenericHttpMessageConverter<Object> converter, List<?> body) throws IOException {
+        response.reset();
+        converter.write(body, List.class, MediaType.APPLICATION_JSON, response);
+        return response.body.size();
+    }
+
+    /**
+     * Переиспользуемое тело ответа, чтобы в выделение памяти не попадал рост буфера, как и у Tomcat.
+     */
+    private static final class Response implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+
+        void reset() {
+            headers.clear();
+            body.reset();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.MeteredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.MeteredUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена инструментирования на пути записи: лайки и дружбы через голое хранилище и через Metered-декоратор
+ * с Prometheus-реестром, как в приложении.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    @Param({"false", "true"})
+    private boolean metered;
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        BenchmarkData.addFilms(films, FILMS);
+        BenchmarkData.addUsers(users, USERS);
+        filmStorage = metered ? new MeteredFilmStorage(films, registry) : films;
+        userStorage = metered ? new MeteredUserStorage(users, registry) : users;
+    }
+
+    @Benchmark
+    public boolean likeToggle(ThreadState state) {
+        long filmId = BenchmarkData.zipf(state.random, FILMS, BenchmarkData.ZIPF_EXPONENT);
+        long userId = 1 + state.random.nextInt(USERS);
+        return filmStorage.addLike(filmId, userId) || filmStorage.removeLike(filmId, userId);
+    }
+
+    @Benchmark
+    public void friendToggle(ThreadState state) {
+        long userId = 1 + state.random.nextInt(USERS);
+        long friendId = 1 + state.random.nextInt(USERS);
+        if (state.random.nextBoolean()) {
+            userStorage.addFriend(userId, friendId);
+        } else {
+            userStorage.removeFriend(userId, friendId);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final Random random = new Random();
+    }
+}
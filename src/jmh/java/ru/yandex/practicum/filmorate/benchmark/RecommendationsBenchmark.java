@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов по индексу лайков. И фильмы, и пользователи выбираются по Ципфу: немногие
+ * пользователи ставят большую часть лайков, и запросы тоже чаще приходятся на них, поэтому сравниваются
+ * режимы с кэшем рекомендаций активных пользователей и без него.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class RecommendationsBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"10"})
+    private int likesPerUser;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private LikeIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.addFilms(filmStorage, films);
+        Random random = new Random(3);
+        for (long i = 0; i < (long) users * likesPerUser; i++) {
+            filmStorage.addLike(BenchmarkData.zipf(random, films, BenchmarkData.ZIPF_EXPONENT),
+                    BenchmarkData.zipf(random, users, 0.5));
+        }
+        index = new LikeIndex(filmStorage::getAllFilms, cached ? 10_000 : 0, Duration.ofMinutes(1));
+        index.films(1);
+    }
+
+    @Benchmark
+    public long[] recommendations(UserServiceBenchmark.ThreadState state) {
+        return index.recommendations(state.nextUserId(users), 10);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.config.StorageProperties;
+import ru.yandex.practicum.filmorate.storage.durable.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.durable.DurableFilmStorage;
+import ru.yandex.practicum.filmorate.storage.durable.DurableUserStorage;
+import ru.yandex.practicum.filmorate.storage.durable.FsyncPolicy;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время холодного старта: восстановление хранилищ только из журнала и из снимка с пустым хвостом журнала.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class RecoveryBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"1000000", "10000000"})
+    private long likes;
+
+    @Param({"wal", "snapshot"})
+    private String source;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-recovery-bench");
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        try (DurabilityManager manager = manager(films, users)) {
+            DurableFilmStorage filmStorage = new DurableFilmStorage(films, manager.getWriteAheadLog());
+            DurableUserStorage userStorage = new DurableUserStorage(users, manager.getWriteAheadLog());
+            BenchmarkData.addUsers(userStorage, USERS);
+            BenchmarkData.addFilms(filmStorage, FILMS);
+            BenchmarkData.addSkewedLikes(filmStorage, FILMS, USERS, likes, 42);
+            if (source.equals("snapshot")) {
+                manager.snapshot();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        try (DurabilityManager ignored = manager(films, users)) {
+            return films.getLikesCount();
+        }
+    }
+
+    private DurabilityManager manager(InMemoryFilmStorage films, InMemoryUserStorage users) throws IOException {
+        StorageProperties.Durable properties = new StorageProperties.Durable();
+        properties.setDirectory(directory.toString());
+        properties.setFsync(FsyncPolicy.NONE);
+        properties.setSnapshotInterval(Duration.ZERO);
+        DurabilityManager manager = new DurabilityManager(properties, films, users, Executors.defaultThreadFactory());
+        manager.start();
+        return manager;
+    }
+}
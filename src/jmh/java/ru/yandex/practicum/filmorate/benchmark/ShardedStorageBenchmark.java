@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование хранилища в памяти по числу шардов: запись (новые фильмы и лайки) и выборки по всем
+ * шардам. Рост по ядрам смотрится через число потоков, например {@code -Djmh.threads=1,4,16}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class ShardedStorageBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    private int shards;
+
+    @Param({"1000000"})
+    private int size;
+
+    private InMemoryFilmStorage storage;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // Заново на каждую итерацию: addFilm растит хранилище, а выборки должны видеть один и тот же размер
+        storage = new InMemoryFilmStorage(shards);
+        BenchmarkData.addFilms(storage, size);
+        BenchmarkData.addSkewedLikes(storage, size, size, size * 2L, 1);
+    }
+
+    @Benchmark
+    public Film addFilm() {
+        return storage.addFilm(BenchmarkData.film(0));
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = 1 + random.nextInt(size);
+        long userId = 1 + random.nextInt(size);
+        return storage.addLike(filmId, userId) || storage.removeLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> getAllFilmsPage() {
+        return storage.getAllFilms(ThreadLocalRandom.current().nextInt(size), 10_000);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return storage.getPopularFilms(1_000);
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.durable.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время до первого ответа после старта: полная загрузка снимка в память против открытия отображённого
+ * каталога. В обоих случаях после загрузки запрашиваются популярные фильмы и один пользователь.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class StartupBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+    private static final long SNAPSHOT_SEGMENT = 1;
+
+    @Param({"1000000", "10000000"})
+    private long likes;
+
+    private Path directory;
+    private Path catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-startup-bench");
+        catalog = directory.resolve("catalog.bin");
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        BenchmarkData.addUsers(users, USERS);
+        BenchmarkData.addFilms(films, FILMS);
+        BenchmarkData.addSkewedLikes(films, FILMS, USERS, likes, 42);
+        BenchmarkData.addSkewedFriendships(users, USERS, likes / 2, 43);
+        SnapshotStore.write(directory, SNAPSHOT_SEGMENT, films, users);
+        MappedSnapshot.write(catalog, films, users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long fullHydration() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        SnapshotStore.load(directory, SNAPSHOT_SEGMENT, films, users);
+        return firstResponse(films.getPopularFilms(10)) + users.getUserById(USERS / 2).getFriends().size();
+    }
+
+    @Benchmark
+    public long mapped() throws IOException {
+        try (MappedSnapshot snapshot = MappedSnapshot.open(catalog)) {
+            MappedFilmStorage films = new MappedFilmStorage(snapshot);
+            MappedUserStorage users = new MappedUserStorage(snapshot);
+            return firstResponse(films.getPopularFilms(10)) + users.getUserById(USERS / 2).getFriends().size();
+        }
+    }
+
+    private static long firstResponse(List<Film> popular) {
+        return popular.stream().mapToLong(film -> film.getLikedUsers().size()).sum();
+    }
+}
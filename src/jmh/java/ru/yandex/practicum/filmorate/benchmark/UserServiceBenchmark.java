@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списки друзей и общих друзей. Пользователи выбираются по Ципфу, поэтому запросы чаще
+ * приходятся на пользователей с большим числом друзей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class UserServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"5"})
+    private int friendsPerUser;
+
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.addUsers(userStorage, size);
+        BenchmarkData.addSkewedFriendships(userStorage, size, (long) size * friendsPerUser, 2);
+        userService = new BenchmarkServices(new InMemoryFilmStorage()).userService(userStorage,
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public List<User> getFriends(ThreadState state) {
+        return userService.getFriends(state.nextUserId(size));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(ThreadState state) {
+        return userService.getCommonFriends(state.nextUserId(size), state.nextUserId(size));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final Random random = new Random();
+
+        long nextUserId(int size) {
+            return BenchmarkData.zipf(random, size, BenchmarkData.ZIPF_EXPONENT);
+        }
+    }
+}
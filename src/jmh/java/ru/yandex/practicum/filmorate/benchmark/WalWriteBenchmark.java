@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.durable.DurableFilmStorage;
+import ru.yandex.practicum.filmorate.storage.durable.FsyncPolicy;
+import ru.yandex.practicum.filmorate.storage.durable.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Цена журнала на пути записи: лайки через {@link DurableFilmStorage} при разных политиках fsync.
+ * С ростом числа потоков в режиме ALWAYS пачки становятся крупнее и fsync делится между запросами.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class WalWriteBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    @Param({"ALWAYS", "INTERVAL", "NONE"})
+    private FsyncPolicy fsync;
+
+    private Path directory;
+    private WriteAheadLog writeAheadLog;
+    private DurableFilmStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-wal-bench");
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        BenchmarkData.addFilms(films, FILMS);
+        writeAheadLog = new WriteAheadLog(directory, fsync, Duration.ofMillis(50), 1,
+                Executors.defaultThreadFactory());
+        storage = new DurableFilmStorage(films, writeAheadLog);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writeAheadLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean likeToggle(ThreadState state) {
+        long filmId = BenchmarkData.zipf(state.random, FILMS, BenchmarkData.ZIPF_EXPONENT);
+        long userId = 1 + state.random.nextInt(USERS);
+        return storage.addLike(filmId, userId) || storage.removeLike(filmId, userId);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final Random random = new Random();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Отчёт прогона: таблица перцентилей по операциям, {@code summary.json} для сравнения прогонов и полные
+ * распределения {@code <операция>.hgrm} (открываются HdrHistogram plotter). С {@code loadtest.baseline}
+ * рядом с p99 печатается p99 того прогона и изменение в процентах.
+ */
+public final class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public Summary summarize(LoadTestConfig config, Map<Operation, LoadGenerator.Stats> stats) {
+        Map<String, OperationSummary> operations = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        Histogram totalService = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<Operation, LoadGenerator.Stats> entry : stats.entrySet()) {
+            LoadGenerator.Stats operationStats = entry.getValue();
+            if (operationStats.getCorrected().getTotalCount() == 0) {
+                continue;
+            }
+            operations.put(entry.getKey().getKey(), summary(operationStats.getCorrected(),
+                    operationStats.getService(), operationStats.getErrors(), config));
+            total.add(operationStats.getCorrected());
+            totalService.add(operationStats.getService());
+            errors += operationStats.getErrors();
+        }
+        operations.put("all", summary(total, totalService, errors, config));
+        return new Summary(config, operations);
+    }
+
+    public void write(Summary summary, Map<Operation, LoadGenerator.Stats> stats, File output, String baseline)
+            throws IOException {
+        if (!output.exists() && !output.mkdirs()) {
+            throw new IllegalStateException("Не удалось создать каталог " + output);
+        }
+        objectMapper.writeValue(new File(output, "summary.json"), summary);
+        for (Map.Entry<Operation, LoadGenerator.Stats> entry : stats.entrySet()) {
+            if (entry.getValue().getCorrected().getTotalCount() == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(new File(output, entry.getKey().getKey() + ".hgrm"))) {
+                entry.getValue().getCorrected().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        Summary previous = baseline == null || baseline.isBlank()
+                ? null
+                : objectMapper.readValue(new File(baseline), Summary.class);
+        print(summary, previous, System.out);
+    }
+
+    private static void print(Summary summary, Summary previous, PrintStream out) {
+        LoadTestConfig config = summary.config();
+        out.printf("%nНагрузка %d запросов/с, замер %d с после прогрева %d с, %d пользователей, %d фильмов%n",
+                config.rate(), config.duration().toSeconds(), config.warmup().toSeconds(), config.users(),
+                config.films());
+        out.println("Задержка в мс от запланированного момента отправки; «без поправки» — от фактической");
+        out.printf("%-12s %9s %7s %9s %9s %9s %9s %9s %14s%s%n", "операция", "запросов", "ошибок", "p50", "p90",
+                "p99", "p99.9", "max", "p99 без попр.", previous == null ? "" : String.format(" %9s %8s",
+                        "p99 было", "Δ p99"));
+        summary.operations().forEach((name, operation) -> {
+            out.printf("%-12s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %14.2f", name, operation.requests(),
+                    operation.errors(), operation.corrected().p50(), operation.corrected().p90(),
+                    operation.corrected().p99(), operation.corrected().p999(), operation.corrected().max(),
+                    operation.service().p99());
+            OperationSummary before = previous == null ? null : previous.operations().get(name);
+            if (before != null) {
+                double was = before.corrected().p99();
+                out.printf(" %9.2f %+7.1f%%", was, (operation.corrected().p99() - was) / was * 100);
+            }
+            out.println();
+        });
+        if (previous != null && !previous.config().equals(config)) {
+            out.println("Параметры базового прогона отличаются, сравнение может вводить в заблуждение");
+        }
+    }
+
+    private static OperationSummary summary(Histogram corrected, Histogram service, long errors,
+                                            LoadTestConfig config) {
+        return new OperationSummary(corrected.getTotalCount(), errors,
+                corrected.getTotalCount() / (double) config.duration().toSeconds(),
+                percentiles(corrected), percentiles(service));
+    }
+
+    private static Percentiles percentiles(Histogram histogram) {
+        return new Percentiles(
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    public record Summary(LoadTestConfig config, Map<String, OperationSummary> operations) {
+    }
+
+    /**
+     * @param throughput выполненных запросов в секунду за время замера
+     */
+    public record OperationSummary(long requests, long errors, double throughput, Percentiles corrected,
+                                   Percentiles service) {
+    }
+
+    public record Percentiles(double p50, double p90, double p99, double p999, double max) {
+    }
+}
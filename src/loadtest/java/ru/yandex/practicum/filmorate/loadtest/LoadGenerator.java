@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузка по открытой модели: запросы уходят по расписанию {@code rate} в секунду и не ждут ответов
+ * на предыдущие. Задержка считается от момента, когда запрос должен был уйти по расписанию, а не от фактической
+ * отправки: если приложение или сам генератор притормозили, ожидание запросов, которые из-за этого ушли позже,
+ * попадает в гистограмму (поправка на coordinated omission, как в wrk2). Время от фактической отправки
+ * пишется отдельно, разница между ними показывает очередь перед приложением.
+ */
+public class LoadGenerator {
+
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final Workload workload;
+    private final LoadTestConfig config;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Recorder interval = new Recorder(3);
+    private final LongAdder intervalErrors = new LongAdder();
+    private final Semaphore inFlight;
+
+    public LoadGenerator(HttpClient client, Workload workload, LoadTestConfig config) {
+        this.client = client;
+        this.workload = workload;
+        this.config = config;
+        this.inFlight = new Semaphore(config.maxInFlight());
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * Гонит нагрузку прогрев плюс замер и возвращает гистограммы замера по операциям.
+     */
+    public Map<Operation, Stats> run() throws InterruptedException {
+        Random random = new Random(config.seed());
+        double periodNanos = 1e9 / config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> printProgress(start, measureFrom), REPORT_INTERVAL.toMillis(),
+                REPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * periodNanos);
+                if (intended - end >= 0) {
+                    break;
+                }
+                long delay;
+                while ((delay = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                inFlight.acquire();
+                Operation operation = workload.nextOperation(random);
+                HttpRequest request = workload.request(operation, random);
+                send(operation, request, intended, intended - measureFrom >= 0);
+            }
+            if (!inFlight.tryAcquire(config.maxInFlight(), REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("Не все запросы завершились за " + REQUEST_TIMEOUT.toSeconds() + " с");
+            }
+        } finally {
+            progress.shutdownNow();
+        }
+        return stats;
+    }
+
+    private void send(Operation operation, HttpRequest request, long intended, boolean measured) {
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .orTimeout(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> {
+                    long done = System.nanoTime();
+                    boolean failed = error != null || response.statusCode() >= 500;
+                    long latency = (done - intended) / 1_000;
+                    interval.recordValue(latency);
+                    if (failed) {
+                        intervalErrors.increment();
+                    }
+                    if (measured) {
+                        stats.get(operation).record(latency, (done - sent) / 1_000, failed);
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void printProgress(long start, long measureFrom) {
+        Histogram histogram = interval.getIntervalHistogram();
+        long now = System.nanoTime();
+        System.out.printf("[%4d с%s] %6.0f запросов/с, p50 %8.2f мс, p99 %8.2f мс, max %8.2f мс, ошибок %d%n",
+                TimeUnit.NANOSECONDS.toSeconds(now - start),
+                now - measureFrom < 0 ? ", прогрев" : "",
+                histogram.getTotalCount() / (double) REPORT_INTERVAL.toSeconds(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                intervalErrors.sumThenReset());
+    }
+
+    /**
+     * Гистограммы одной операции в микросекундах: с поправкой (от запланированного момента)
+     * и без неё (от фактической отправки).
+     */
+    @Getter
+    public static final class Stats {
+
+        private final Histogram corrected = new ConcurrentHistogram(3);
+        private final Histogram service = new ConcurrentHistogram(3);
+        @Getter(AccessLevel.NONE)
+        private final LongAdder errors = new LongAdder();
+
+        void record(long correctedMicros, long serviceMicros, boolean failed) {
+            corrected.recordValue(correctedMicros);
+            service.recordValue(serviceMicros);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+}
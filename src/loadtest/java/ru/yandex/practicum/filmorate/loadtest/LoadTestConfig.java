@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры прогона из системных свойств {@code loadtest.*}. Попадают в отчёт, чтобы сравнивались
+ * только прогоны с одинаковой нагрузкой.
+ *
+ * @param rate        запросов в секунду по расписанию, независимо от того, как быстро отвечает приложение
+ * @param maxInFlight сколько запросов может ждать ответа одновременно
+ * @param mix         доли операций в смеси
+ * @param args        аргументы запуска приложения, например {@code --filmorate.storage.type=jdbc}
+ */
+public record LoadTestConfig(int rate,
+                             Duration warmup,
+                             Duration duration,
+                             int users,
+                             int films,
+                             int maxInFlight,
+                             long seed,
+                             Map<Operation, Integer> mix,
+                             List<String> args) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.rate", 1000),
+                duration("loadtest.warmup", "15s"),
+                duration("loadtest.duration", "60s"),
+                Integer.getInteger("loadtest.users", 100_000),
+                Integer.getInteger("loadtest.films", 10_000),
+                Integer.getInteger("loadtest.maxInFlight", 2_048),
+                Long.getLong("loadtest.seed", 42),
+                mix(System.getProperty("loadtest.mix", "")),
+                Arrays.stream(System.getProperty("loadtest.args", "").split("\\s+"))
+                        .filter(arg -> !arg.isBlank())
+                        .toList());
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    /**
+     * Разбирает смесь вида {@code popular=25,like=15}; операции, которых нет в строке, берут доли по умолчанию.
+     */
+    private static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, operation.getDefaultWeight());
+        }
+        for (String part : value.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] nameAndWeight = part.split("=", 2);
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Некорректная доля операции: " + part);
+            }
+            mix.put(Operation.byName(nameAndWeight[0].trim()), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return mix;
+    }
+}
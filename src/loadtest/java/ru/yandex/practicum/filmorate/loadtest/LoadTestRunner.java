@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поднимает {@link FilmorateApplication} на свободном порту, заполняет его через пакетный импорт и гонит
+ * смешанную нагрузку из {@link Workload} с постоянной частотой. Приложение и генератор живут в одной JVM,
+ * поэтому частоту стоит выбирать с запасом по процессору; сравнивать имеет смысл прогоны на одной машине
+ * с одинаковыми параметрами.
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        File output = new File(System.getProperty("loadtest.output", "target/loadtest"));
+
+        List<String> applicationArgs = new ArrayList<>(List.of("--server.port=0", "--logging.level.root=WARN"));
+        applicationArgs.addAll(config.args());
+        try (ConfigurableApplicationContext context = SpringApplication.run(FilmorateApplication.class,
+                applicationArgs.toArray(String[]::new))) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            Workload workload = new Workload("http://localhost:" + port, config.users(), config.films(),
+                    config.mix());
+            System.out.printf("Заполнение: %d пользователей, %d фильмов%n", config.users(), config.films());
+            workload.seed(client, config.seed());
+
+            Map<Operation, LoadGenerator.Stats> stats = new LoadGenerator(client, workload, config).run();
+            LatencyReport report = new LatencyReport();
+            report.write(report.summarize(config, stats), stats, output, System.getProperty("loadtest.baseline"));
+            System.out.println("Отчёт записан в " + output);
+        }
+    }
+}
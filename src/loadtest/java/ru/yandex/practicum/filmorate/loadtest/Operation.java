@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Операции нагрузки и их доли по умолчанию: больше всего чтений популярного и друзей, как у живого сервиса.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Operation {
+
+    POPULAR("popular", "GET /films/popular", 25),
+    FRIENDS("friends", "GET /users/{id}/friends", 20),
+    COMMON_FRIENDS("common", "GET /users/{id}/friends/common/{otherId}", 10),
+    LIKE("like", "PUT /films/{id}/like/{userId}", 15),
+    UNLIKE("unlike", "DELETE /films/{id}/like/{userId}", 5),
+    ADD_FRIEND("friend", "PUT /users/{id}/friends/{friendId}", 10),
+    REMOVE_FRIEND("unfriend", "DELETE /users/{id}/friends/{friendId}", 5),
+    CREATE_FILM("createFilm", "POST /films", 5),
+    CREATE_USER("createUser", "POST /users", 5);
+
+    private final String key;
+    private final String endpoint;
+    private final int defaultWeight;
+
+    public static Operation byName(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная операция: " + key));
+    }
+}
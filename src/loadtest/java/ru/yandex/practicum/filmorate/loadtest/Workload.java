@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+/**
+ * Смешанная нагрузка на каталог. Фильмы для лайков и пользователи, чьих друзей читают и с кем дружат,
+ * выбираются по закону Ципфа (как в {@code BenchmarkData}), поэтому горячие записи получают большую часть
+ * запросов; второй участник лайка или дружбы выбирается равномерно.
+ */
+public class Workload {
+
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int SEED_CHUNK = 10_000;
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final String baseUrl;
+    private final int users;
+    private final int films;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public Workload(String baseUrl, int users, int films, Map<Operation, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.films = films;
+        this.operations = mix.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toArray(Operation[]::new);
+        if (operations.length == 0) {
+            throw new IllegalArgumentException("В смеси нет ни одной операции");
+        }
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Заполняет только что поднятое приложение пакетными запросами: фильмы получают id 1..films,
+     * пользователи — 1..users, сверху по два лайка и по две дружбы на пользователя.
+     */
+    public void seed(HttpClient client, long seed) throws IOException, InterruptedException {
+        Random random = new Random(seed);
+        post(client, "/users/batch", users, i -> user(random, i));
+        post(client, "/films/batch", films, i -> film(random, i));
+        post(client, "/films/likes/batch", users * 2L, i -> "{\"filmId\":" + zipf(random, films)
+                + ",\"userId\":" + (1 + random.nextInt(users)) + "}");
+        post(client, "/users/friends/batch", users * 2L, i -> {
+            long[] pair = friendPair(random);
+            return "{\"userId\":" + pair[0] + ",\"friendId\":" + pair[1] + "}";
+        });
+    }
+
+    public Operation nextOperation(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    public HttpRequest request(Operation operation, Random random) {
+        return switch (operation) {
+            case POPULAR -> get("/films/popular?count=10");
+            case FRIENDS -> get("/users/" + zipf(random, users) + "/friends");
+            case COMMON_FRIENDS -> {
+                long[] pair = friendPair(random);
+                yield get("/users/" + pair[0] + "/friends/common/" + pair[1]);
+            }
+            case LIKE -> builder("/films/" + zipf(random, films) + "/like/" + (1 + random.nextInt(users)))
+                    .PUT(HttpRequest.BodyPublishers.noBody()).build();
+            case UNLIKE -> builder("/films/" + zipf(random, films) + "/like/" + (1 + random.nextInt(users)))
+                    .DELETE().build();
+            case ADD_FRIEND -> {
+                long[] pair = friendPair(random);
+                yield builder("/users/" + pair[0] + "/friends/" + pair[1])
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build();
+            }
+            case REMOVE_FRIEND -> {
+                long[] pair = friendPair(random);
+                yield builder("/users/" + pair[0] + "/friends/" + pair[1]).DELETE().build();
+            }
+            case CREATE_FILM -> json("/films", film(random, random.nextInt(Integer.MAX_VALUE)));
+            case CREATE_USER -> json("/users", user(random, random.nextInt(Integer.MAX_VALUE)));
+        };
+    }
+
+    private long[] friendPair(Random random) {
+        long userId = zipf(random, users);
+        long friendId = 1 + random.nextInt(users);
+        if (friendId == userId) {
+            friendId = friendId % users + 1;
+        }
+        return new long[]{userId, friendId};
+    }
+
+    private void post(HttpClient client, String path, long count, LongFunction<String> line)
+            throws IOException, InterruptedException {
+        for (long from = 0; from < count; from += SEED_CHUNK) {
+            StringBuilder body = new StringBuilder();
+            for (long i = from; i < Math.min(count, from + SEED_CHUNK); i++) {
+                body.append(line.apply(i)).append('\n');
+            }
+            HttpRequest request = builder(path)
+                    .header("Content-Type", NDJSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Не удалось заполнить " + path + ": " + response.statusCode()
+                        + " " + response.body());
+            }
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return builder(path).GET().build();
+    }
+
+    private HttpRequest json(String path, String body) {
+        return builder(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path));
+    }
+
+    private static String film(Random random, long index) {
+        return "{\"name\":\"Фильм " + index + "\",\"description\":\"Описание фильма номер " + index
+                + "\",\"releaseDate\":\"" + LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000))
+                + "\",\"duration\":" + (60 + random.nextInt(120)) + "}";
+    }
+
+    private static String user(Random random, long index) {
+        return "{\"email\":\"user" + index + "@example.com\",\"login\":\"user" + index
+                + "\",\"name\":\"Пользователь " + index + "\",\"birthday\":\""
+                + LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)) + "\"}";
+    }
+
+    /**
+     * Ранг от 1 до n с вероятностью, приблизительно пропорциональной 1 / rank^s.
+     */
+    private static long zipf(Random random, long n) {
+        double oneMinusS = 1 - ZIPF_EXPONENT;
+        double max = Math.pow(n + 1, oneMinusS);
+        double value = Math.pow((max - 1) * random.nextDouble() + 1, 1 / oneMinusS);
+        return Math.min(n, Math.max(1, (long) value));
+    }
+}
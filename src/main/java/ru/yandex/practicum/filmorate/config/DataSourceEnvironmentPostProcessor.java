@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Поднимает {@code DataSource} и применяет {@code schema.sql} только для {@code filmorate.storage.type=jdbc}:
+ * для остальных типов хранилища автоконфигурация источника данных исключается, и встроенная H2 не стартует.
+ * Свойства добавляются с наименьшим приоритетом, поэтому явные {@code spring.autoconfigure.exclude} и
+ * {@code spring.sql.init.mode} из конфигурации не перекрываются.
+ */
+public class DataSourceEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PROPERTY_SOURCE = "filmorateDataSource";
+
+    private static final String DATA_SOURCE_AUTO_CONFIGURATION =
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String type = environment.getProperty("filmorate.storage.type", StorageType.MEMORY.name());
+        Map<String, Object> properties = StorageType.JDBC.name().equalsIgnoreCase(type.trim())
+                ? Map.of("spring.sql.init.mode", "always")
+                : Map.of("spring.autoconfigure.exclude", DATA_SOURCE_AUTO_CONFIGURATION);
+        environment.getPropertySources().addLast(new MapPropertySource(PROPERTY_SOURCE, properties));
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.controller.JsonFragmentHttpMessageConverter;
+import ru.yandex.practicum.filmorate.controller.JsonFragments;
+
+/**
+ * Кэш готового JSON имеет смысл только для хранилища в памяти: у остальных множества изменяемые
+ * и всё равно сериализуются заново.
+ */
+@Configuration
+@EnableConfigurationProperties(JsonCacheProperties.class)
+@ConditionalOnProperty(prefix = "filmorate.json-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JsonCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+    public JsonFragmentHttpMessageConverter jsonFragmentHttpMessageConverter(JsonCacheProperties properties,
+                                                                             ObjectMapper objectMapper,
+                                                                             MeterRegistry meterRegistry) {
+        return new JsonFragmentHttpMessageConverter(new JsonFragments(objectMapper,
+                properties.getMaximumSize().toBytes(), meterRegistry));
+    }
+}
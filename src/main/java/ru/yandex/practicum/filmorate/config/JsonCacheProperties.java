@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.json-cache")
+public class JsonCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Предел готового JSON отдельно для фильмов и для пользователей.
+     */
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+@Configuration
+@EnableConfigurationProperties(LikeWriteBehindProperties.class)
+public class LikeWriteBehindConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "filmorate.likes.write-behind", name = "enabled", havingValue = "true")
+    public LikeWriteBuffer likeWriteBuffer(LikeWriteBehindProperties properties, FilmStorage filmStorage,
+                                           BackgroundThreads backgroundThreads, MeterRegistry meterRegistry) {
+        return new LikeWriteBuffer(filmStorage, properties.getShards(), properties.getCapacity(),
+                properties.getBatchSize(), properties.getFlushInterval(),
+                backgroundThreads.threadFactory("filmorate-likes-"), meterRegistry);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.likes.write-behind")
+public class LikeWriteBehindProperties {
+
+    /**
+     * Принимать лайки в буфер и записывать их в хранилище пачками в фоне.
+     */
+    private boolean enabled = false;
+
+    private int shards = 16;
+
+    /**
+     * Ёмкость очереди одного шарда. Если она заполнена, запрос сам записывает накопленные лайки.
+     */
+    private int capacity = 16 * 1024;
+
+    private int batchSize = 1024;
+
+    private Duration flushInterval = Duration.ofMillis(5);
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.service.PopularityFeed;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+@Configuration
+@EnableConfigurationProperties(PopularStreamProperties.class)
+public class PopularStreamConfig {
+
+    @Bean(destroyMethod = "close")
+    public PopularityFeed popularityFeed(PopularStreamProperties properties, ObjectProvider<FilmStorage> filmStorage,
+                                         ObjectMapper objectMapper, BackgroundThreads backgroundThreads,
+                                         MeterRegistry meterRegistry) {
+        PopularityFeed feed = new PopularityFeed(filmStorage::getObject, objectMapper, properties.getMaxCount(),
+                properties.getBuffer(), properties.getMaxFilmUpdates(), properties.getTimeout(), meterRegistry);
+        feed.start(backgroundThreads.threadFactory("filmorate-popular-stream-"), properties.getSenderThreads(),
+                properties.getTick(), properties.getHeartbeat(), properties.getSendTimeout());
+        return feed;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.popular-stream")
+public class PopularStreamProperties {
+
+    /**
+     * Как часто рассылать накопленные изменения: все лайки за такт уходят одним событием.
+     */
+    private Duration tick = Duration.ofSeconds(1);
+
+    /**
+     * Как часто слать пустой комментарий, чтобы прокси не закрывали простаивающие соединения.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    private Duration timeout = Duration.ofMinutes(30);
+
+    private int maxCount = 100;
+
+    /**
+     * Сколько событий может ждать отправки у одного подписчика, прежде чем он будет отключён.
+     */
+    private int buffer = 64;
+
+    private int maxFilmUpdates = 1_000;
+
+    private int senderThreads = 8;
+
+    /**
+     * Сколько может длиться отправка одного события клиенту, прежде чем он будет отключён, а поток
+     * отправки заменён новым.
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.service.PopularityFeed;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.durable.DurabilityManager;
+import ru.yandex.practicum.filmorate.storage.durable.DurableFilmStorage;
+import ru.yandex.practicum.filmorate.storage.durable.DurableUserStorage;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.ListeningFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.MeteredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+import ru.yandex.practicum.filmorate.storage.film.VersionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedCatalog;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.GraphIndexedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.MeteredUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.VersionedUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean
+    public InMemoryFilmStorage inMemoryFilmStorage(StorageProperties properties) {
+        return new InMemoryFilmStorage(properties.getShards());
+    }
+
+    @Bean
+    public InMemoryUserStorage inMemoryUserStorage(StorageProperties properties) {
+        return new InMemoryUserStorage(properties.getShards());
+    }
+
+    @Bean
+    public StorageVersions storageVersions() {
+        return new StorageVersions();
+    }
+
+    @Bean
+    public FriendshipGraph friendshipGraph(ObjectProvider<UserStorage> userStorage) {
+        // Граф строится при первом обращении, когда хранилище уже собрано и восстановлено
+        return new FriendshipGraph((after, limit) -> userStorage.getObject().getAllUsers(after, limit));
+    }
+
+    @Bean
+    public LikeIndex likeIndex(ObjectProvider<FilmStorage> filmStorage) {
+        return new LikeIndex((after, limit) -> filmStorage.getObject().getAllFilms(after, limit));
+    }
+
+    @Bean
+    public FilmSearchIndex filmSearchIndex(ObjectProvider<FilmStorage> filmStorage) {
+        return new FilmSearchIndex((after, limit) -> filmStorage.getObject().getAllFilms(after, limit));
+    }
+
+    @Bean
+    public FilmRangeIndex filmRangeIndex(ObjectProvider<FilmStorage> filmStorage) {
+        return new FilmRangeIndex((after, limit) -> filmStorage.getObject().getAllFilms(after, limit));
+    }
+
+    @Bean(destroyMethod = "close")
+    public TrendingIndex trendingIndex(StorageProperties properties, BackgroundThreads backgroundThreads) {
+        StorageProperties.Trending trending = properties.getTrending();
+        TrendingIndex index = new TrendingIndex(trending.getWindows(), trending.getBuckets(), Clock.systemUTC());
+        index.start(backgroundThreads.threadFactory("filmorate-trending-"));
+        return index;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "filmorate.storage.durable", name = "enabled", havingValue = "true")
+    public DurabilityManager durabilityManager(StorageProperties properties,
+                                               InMemoryFilmStorage films,
+                                               InMemoryUserStorage users,
+                                               BackgroundThreads backgroundThreads) throws IOException {
+        if (properties.getType() != StorageType.MEMORY) {
+            throw new IllegalStateException("Журнал изменений поддерживается только для хранилища в памяти");
+        }
+        DurabilityManager manager = new DurabilityManager(properties.getDurable(), films, users,
+                backgroundThreads.threadFactory("filmorate-durable-"));
+        manager.start();
+        return manager;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "filmorate.storage", name = "type", havingValue = "mapped")
+    public MappedCatalog mappedCatalog(StorageProperties properties) throws IOException {
+        return new MappedCatalog(Path.of(properties.getMapped().getFile()), properties.getMapped().isSaveOnShutdown());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "filmorate.storage", name = "type", havingValue = "jdbc")
+    public JdbcFilmStorage jdbcFilmStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactions) {
+        return new JdbcFilmStorage(jdbc, transactions);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "filmorate.storage", name = "type", havingValue = "jdbc")
+    public JdbcUserStorage jdbcUserStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactions) {
+        return new JdbcUserStorage(jdbc, transactions);
+    }
+
+    @Bean
+    @Primary
+    public FilmStorage filmStorage(StorageProperties properties,
+                                   InMemoryFilmStorage films,
+                                   ObjectProvider<DurabilityManager> durabilityManager,
+                                   ObjectProvider<MappedCatalog> mappedCatalog,
+                                   ObjectProvider<JdbcFilmStorage> jdbcFilmStorage,
+                                   LikeIndex likeIndex,
+                                   TrendingIndex trendingIndex,
+                                   FilmSearchIndex searchIndex,
+                                   FilmRangeIndex rangeIndex,
+                                   PopularityFeed popularityFeed,
+                                   StorageVersions versions,
+                                   MeterRegistry meterRegistry) {
+        FilmStorage storage = switch (properties.getType()) {
+            case MEMORY -> {
+                DurabilityManager manager = durabilityManager.getIfAvailable();
+                yield manager == null ? films : new DurableFilmStorage(films, manager.getWriteAheadLog());
+            }
+            case MAPPED -> mappedCatalog.getObject().getFilmStorage();
+            case JDBC -> jdbcFilmStorage.getObject();
+        };
+        StorageProperties.Cache cache = properties.getCache();
+        if (cache.isEnabled()) {
+            storage = new CachingFilmStorage(storage, cache.getMaximumSize(), cache.getTtl(), cache.getPopularTtl(),
+                    meterRegistry);
+        }
+        storage = new ListeningFilmStorage(storage, List.of(likeIndex, trendingIndex, searchIndex, rangeIndex,
+                popularityFeed));
+        return new MeteredFilmStorage(new VersionedFilmStorage(storage, versions), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public UserStorage userStorage(StorageProperties properties,
+                                   InMemoryUserStorage users,
+                                   ObjectProvider<DurabilityManager> durabilityManager,
+                                   ObjectProvider<MappedCatalog> mappedCatalog,
+                                   ObjectProvider<JdbcUserStorage> jdbcUserStorage,
+                                   FriendshipGraph friendshipGraph,
+                                   StorageVersions versions,
+                                   MeterRegistry meterRegistry) {
+        UserStorage storage = switch (properties.getType()) {
+            case MEMORY -> {
+                DurabilityManager manager = durabilityManager.getIfAvailable();
+                yield manager == null ? users : new DurableUserStorage(users, manager.getWriteAheadLog());
+            }
+            case MAPPED -> mappedCatalog.getObject().getUserStorage();
+            case JDBC -> jdbcUserStorage.getObject();
+        };
+        StorageProperties.Cache cache = properties.getCache();
+        if (cache.isEnabled()) {
+            storage = new CachingUserStorage(storage, cache.getMaximumSize(), cache.getTtl(), meterRegistry);
+        }
+        storage = new GraphIndexedUserStorage(storage, friendshipGraph);
+        return new MeteredUserStorage(new VersionedUserStorage(storage, versions), meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.yandex.practicum.filmorate.storage.durable.FsyncPolicy;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.storage")
+public class StorageProperties {
+
+    private StorageType type = StorageType.MEMORY;
+
+    /**
+     * На сколько шардов по id делить фильмы и пользователей в памяти.
+     */
+    private int shards = 1;
+
+    private Durable durable = new Durable();
+
+    private Mapped mapped = new Mapped();
+
+    private Cache cache = new Cache();
+
+    private Trending trending = new Trending();
+
+    @Data
+    public static class Durable {
+
+        /**
+         * Писать все изменения в журнал упреждающей записи и восстанавливать состояние при старте.
+         */
+        private boolean enabled = false;
+
+        private String directory = "data";
+
+        private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+
+        /**
+         * Как часто вызывать fsync в режиме {@link FsyncPolicy#INTERVAL}.
+         */
+        private Duration fsyncInterval = Duration.ofMillis(50);
+
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Mapped {
+
+        private String file = "data/catalog.bin";
+
+        /**
+         * Сохранять текущее состояние обратно в файл каталога при остановке приложения.
+         */
+        private boolean saveOnShutdown = true;
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Кэшировать фильмы и пользователей по id и списки популярных фильмов поверх основного хранилища.
+         */
+        private boolean enabled = false;
+
+        private long maximumSize = 100_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+
+        private Duration popularTtl = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Trending {
+
+        private List<Duration> windows = List.of(Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7));
+
+        /**
+         * На сколько корзин делится каждое окно: окно сдвигается шагом в одну корзину.
+         */
+        private int buckets = 60;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.config;
+
+public enum StorageType {
+    /**
+     * Все данные в памяти, при включённом журнале переживают перезапуск.
+     */
+    MEMORY,
+    /**
+     * Двоичный снимок каталога, отображённый в память; записи читаются из файла по мере обращения.
+     */
+    MAPPED,
+    /**
+     * Реляционная БД из {@code spring.datasource}, схема в {@code schema.sql}.
+     */
+    JDBC
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Пакетные запросы: тело читается потоком (JSON-массив или NDJSON) и обрабатывается пачками
+ * по {@link #CHUNK_SIZE} элементов. Пачка валидируется параллельно, корректные элементы применяются
+ * одним вызовом сервиса, а ошибки отдельных элементов попадают в ответ и не прерывают запрос.
+ */
+final class BatchRequests {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private BatchRequests() {
+    }
+
+    interface ChunkHandler<T> {
+
+        /**
+         * Применяет корректные элементы пачки и возвращает количество применённых.
+         * Ошибки сообщаются по позиции элемента в переданном списке.
+         */
+        long apply(List<T> items, BiConsumer<Integer, String> errors);
+    }
+
+    static <T> BatchResult process(ObjectMapper objectMapper,
+                                   Validator validator,
+                                   InputStream body,
+                                   Class<T> type,
+                                   ChunkHandler<T> handler) throws IOException {
+        BatchResult result = new BatchResult();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        long[] indices = new long[CHUNK_SIZE];
+        long index = 0;
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    T item = iterator.nextValue();
+                    indices[chunk.size()] = index;
+                    chunk.add(item);
+                } catch (JsonMappingException e) {
+                    // Элемент с неверными типами пропускаем, итератор продолжит со следующего
+                    result.error(index, e.getOriginalMessage());
+                } catch (JsonParseException e) {
+                    result.error(index, "Некорректный JSON: " + e.getOriginalMessage());
+                    break;
+                }
+                index++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    applyChunk(validator, chunk, indices, handler, result);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(validator, chunk, indices, handler, result);
+        }
+        return result.sorted();
+    }
+
+    private static <T> void applyChunk(Validator validator,
+                                       List<T> chunk,
+                                       long[] indices,
+                                       ChunkHandler<T> handler,
+                                       BatchResult result) {
+        String[] violations = new String[chunk.size()];
+        IntStream.range(0, chunk.size())
+                .parallel()
+                .forEach(i -> violations[i] = describe(validator.validate(chunk.get(i))));
+
+        List<T> valid = new ArrayList<>(chunk.size());
+        long[] validIndices = new long[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (violations[i] != null) {
+                result.error(indices[i], violations[i]);
+            } else {
+                validIndices[valid.size()] = indices[i];
+                valid.add(chunk.get(i));
+            }
+        }
+        if (!valid.isEmpty()) {
+            result.applied(handler.apply(valid, (position, message) -> result.error(validIndices[position], message)));
+        }
+    }
+
+    private static <T> String describe(Set<ConstraintViolation<T>> violations) {
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
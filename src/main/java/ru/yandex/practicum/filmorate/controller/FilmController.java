@@ -1,9 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,12 +21,27 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSort;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityFeed;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 @Slf4j
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/films")
@@ -26,6 +49,12 @@ public class FilmController {
 
     private final FilmService filmService;
 
+    private final PopularityFeed popularityFeed;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
     @PostMapping
     public Film addFilm(@Valid @RequestBody Film film) {
         Film addedFilm = filmService.addFilm(film);
@@ -33,6 +62,14 @@ public class FilmController {
         return addedFilm;
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.NDJSON})
+    public BatchResult addFilms(InputStream body) throws IOException {
+        BatchResult result = BatchRequests.process(objectMapper, validator, body, Film.class,
+                (films, errors) -> filmService.addFilms(films).size());
+        log.info("Пакетно добавлено фильмов: {}, ошибок: {}", result.getApplied(), result.getErrors().size());
+        return result;
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         Film updatedFilm = filmService.updateFilm(film);
@@ -41,12 +78,46 @@ public class FilmController {
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        List<Film> films = filmService.getAllFilms();
-        log.info("Список всех фильмов {}", films);
+    public List<Film> getAllFilms(@RequestParam(required = false) @Positive Integer limit,
+                                  @RequestParam(defaultValue = "0") long after,
+                                  @RequestParam(required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+                                  @RequestParam(required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+                                  @RequestParam(required = false) Integer minDuration,
+                                  @RequestParam(required = false) Integer maxDuration,
+                                  @RequestParam(defaultValue = "id") String sort,
+                                  WebRequest request) {
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        FilmSort order = parseSort(sort);
+        if (request.checkNotModified(filmService.getFilmsTag())) {
+            return null;
+        }
+        List<Film> films = limit == null && filter.isEmpty() && order == FilmSort.ID
+                ? filmService.getAllFilms()
+                : filmService.getFilms(filter, order, after, limit == null ? Integer.MAX_VALUE : limit);
+        log.info("Получено фильмов: {}", films.size());
         return films;
     }
 
+    @GetMapping(produces = NdjsonResponses.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms(@RequestParam(defaultValue = "0") long after) {
+        log.info("Потоковая выдача фильмов после id {}", after);
+        return ResponseEntity.ok()
+                .contentType(NdjsonResponses.NDJSON_TYPE)
+                .body(NdjsonResponses.stream(objectMapper, after, filmService::getAllFilms, Film::getId));
+    }
+
+    @GetMapping("/{id}")
+    public Film getFilmById(@PathVariable long id, WebRequest request) {
+        if (request.checkNotModified(filmService.getFilmTag(id))) {
+            return null;
+        }
+        Film film = filmService.getFilmById(id);
+        log.info("Получен фильм: {}", film);
+        return film;
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public ResponseEntity<Void> addLike(@PathVariable long id, @PathVariable long userId) {
         filmService.addLike(id, userId);
@@ -54,6 +125,14 @@ public class FilmController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping(value = "/likes/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.NDJSON})
+    public BatchResult addLikes(InputStream body) throws IOException {
+        BatchResult result = BatchRequests.process(objectMapper, validator, body, FilmLike.class,
+                filmService::addLikes);
+        log.info("Пакетно поставлено лайков: {}, ошибок: {}", result.getApplied(), result.getErrors().size());
+        return result;
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public ResponseEntity<Void> removeLike(@PathVariable long id, @PathVariable long userId) {
         filmService.removeLike(id, userId);
@@ -62,10 +141,53 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
+    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count, WebRequest request) {
+        if (request.checkNotModified(filmService.getFilmsTag())) {
+            return null;
+        }
         List<Film> popularFilms = filmService.getPopularFilms(count);
         log.info("Популярные фильмы: {}", popularFilms);
         return popularFilms;
     }
 
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPopularFilms(@RequestParam(defaultValue = "10") @Positive int count) {
+        SseEmitter emitter = popularityFeed.subscribe(count);
+        log.info("Подписка на популярные фильмы, топ {}, подписчиков: {}", count,
+                popularityFeed.getSubscriberCount());
+        return emitter;
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                       @RequestParam(defaultValue = "10") @Positive int count) {
+        List<Film> trendingFilms = filmService.getTrendingFilms(parseWindow(window), count);
+        log.info("Фильмы в тренде за {}: {}", window, trendingFilms.size());
+        return trendingFilms;
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(defaultValue = "10") @Positive int count,
+                                  @RequestParam(defaultValue = "0.5") @PositiveOrZero double likeWeight) {
+        List<Film> films = filmService.searchFilms(q, count, likeWeight);
+        log.info("Поиск фильмов по запросу «{}»: {}", q, films.size());
+        return films;
+    }
+
+    private static FilmSort parseSort(String sort) {
+        try {
+            return FilmSort.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректная сортировка: " + sort);
+        }
+    }
+
+    private static Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректное окно: " + window);
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Отдаёт фильмы, пользователей и их списки из {@link JsonFragments}: готовые фрагменты пишутся прямо в тело
+ * ответа через запятую, без дерева объектов Jackson. Стоит перед Jackson и берёт только эти типы,
+ * запросы читает и всё остальное пишет по-прежнему Jackson.
+ */
+public class JsonFragmentHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final JsonFragments fragments;
+
+    public JsonFragmentHttpMessageConverter(JsonFragments fragments) {
+        super(MediaType.APPLICATION_JSON);
+        this.fragments = fragments;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Film.class || clazz == User.class;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (type == null) {
+            return supports(clazz);
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        if (Collection.class.isAssignableFrom(resolved.toClass())) {
+            Class<?> element = resolved.asCollection().resolveGeneric(0);
+            return element != null && supports(element);
+        }
+        return supports(resolved.toClass());
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream body = outputMessage.getBody();
+        if (value instanceof Collection<?> values) {
+            body.write('[');
+            boolean first = true;
+            for (Object element : values) {
+                if (!first) {
+                    body.write(',');
+                }
+                first = false;
+                write(element, body);
+            }
+            body.write(']');
+        } else {
+            write(value, body);
+        }
+    }
+
+    private void write(Object value, OutputStream body) throws IOException {
+        if (value instanceof Film film) {
+            fragments.writeFilm(film, body);
+        } else {
+            fragments.writeUser((User) value, body);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Фрагменты JSON только пишутся", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Фрагменты JSON только пишутся", inputMessage);
+    }
+}
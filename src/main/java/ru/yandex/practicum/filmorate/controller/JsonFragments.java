@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Готовый UTF-8 JSON фильмов и пользователей, закодированный Jackson один раз на версию.
+ *
+ * <p>Хранилище в памяти публикует неизменяемые версии: при добавлении и обновлении сохраняется копия, лайки
+ * и друзья лежат в {@link PersistentLongSet}, и любое изменение заменяет версию новой. Поэтому фрагмент фильма
+ * годен, пока отдаётся та же версия (по ссылке), и новые поля модели проверять отдельно не нужно. Изменяемые
+ * множества JDBC и отображённого хранилища так проверить нельзя, они всегда идут через Jackson.
+ *
+ * <p>Лайки пользователя берутся из индекса лайков, а не из его версии, и сервис отдаёт копию версии с ними.
+ * Поэтому фрагмент пользователя сверяется с копией без лайков через {@code equals} модели (друзья совпадают
+ * по ссылке), в фрагменте {@code likedFilms} пустой и при записи заменяется текущими.
+ */
+public class JsonFragments {
+
+    private static final byte[] EMPTY_LIKED_FILMS = "\"likedFilms\":[]}".getBytes(StandardCharsets.UTF_8);
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, FilmFragment> films;
+    private final Cache<Long, UserFragment> users;
+    private volatile boolean usersCacheable = true;
+
+    public JsonFragments(ObjectMapper objectMapper, long maximumBytes, MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.films = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .<Long, FilmFragment>weigher((id, fragment) -> ENTRY_OVERHEAD + fragment.json().length)
+                .recordStats()
+                .build();
+        this.users = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .<Long, UserFragment>weigher((id, fragment) -> ENTRY_OVERHEAD + fragment.json().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, films, "filmorate.json.films");
+        CaffeineCacheMetrics.monitor(registry, users, "filmorate.json.users");
+    }
+
+    public void writeFilm(Film film, OutputStream out) throws IOException {
+        if (!(film.getLikedUsers() instanceof PersistentLongSet)) {
+            out.write(objectMapper.writeValueAsBytes(film));
+            return;
+        }
+        FilmFragment fragment = films.getIfPresent(film.getId());
+        if (fragment == null || fragment.version() != film) {
+            fragment = new FilmFragment(film, objectMapper.writeValueAsBytes(film));
+            films.put(film.getId(), fragment);
+        }
+        out.write(fragment.json());
+    }
+
+    public void writeUser(User user, OutputStream out) throws IOException {
+        if (!usersCacheable || !(user.getFriends() instanceof PersistentLongSet)) {
+            out.write(objectMapper.writeValueAsBytes(user));
+            return;
+        }
+        User withoutLikes = user.withLikedFilms(PersistentLongSet.empty());
+        UserFragment fragment = users.getIfPresent(user.getId());
+        if (fragment == null || !fragment.version().equals(withoutLikes)) {
+            fragment = encode(withoutLikes);
+            if (fragment == null) {
+                out.write(objectMapper.writeValueAsBytes(user));
+                return;
+            }
+            users.put(user.getId(), fragment);
+        }
+        byte[] json = fragment.json();
+        // Фрагмент оканчивается на "likedFilms":[]}, текущие лайки вставляются перед ]}
+        out.write(json, 0, json.length - 2);
+        writeLongs(user.getLikedFilms(), out);
+        out.write(json, json.length - 2, 2);
+    }
+
+    private UserFragment encode(User withoutLikes) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(withoutLikes);
+        if (json.length < EMPTY_LIKED_FILMS.length || !Arrays.equals(json, json.length - EMPTY_LIKED_FILMS.length,
+                json.length, EMPTY_LIKED_FILMS, 0, EMPTY_LIKED_FILMS.length)) {
+            // ObjectMapper настроен иначе (порядок или пропуск пустых полей), вставить лайки некуда
+            usersCacheable = false;
+            return null;
+        }
+        return new UserFragment(withoutLikes, json);
+    }
+
+    private static void writeLongs(LongSet values, OutputStream out) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        long[] array = values.toLongArray();
+        byte[] buffer = new byte[array.length * 21];
+        int position = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                buffer[position++] = ',';
+            }
+            position = writeLong(array[i], buffer, position);
+        }
+        out.write(buffer, 0, position);
+    }
+
+    private static int writeLong(long value, byte[] buffer, int position) {
+        if (value < 0) {
+            byte[] digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(digits, 0, buffer, position, digits.length);
+            return position + digits.length;
+        }
+        int end = position + digits(value);
+        int index = end;
+        do {
+            buffer[--index] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private record FilmFragment(Film version, byte[] json) {
+    }
+
+    private record UserFragment(User version, byte[] json) {
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потоковая выдача коллекций в формате NDJSON: сущности читаются страницами по ключу
+ * и сразу пишутся в ответ, поэтому память не зависит от размера хранилища.
+ */
+final class NdjsonResponses {
+
+    static final String NDJSON = "application/x-ndjson";
+    static final MediaType NDJSON_TYPE = MediaType.parseMediaType(NDJSON);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private NdjsonResponses() {
+    }
+
+    static <T> StreamingResponseBody stream(ObjectMapper objectMapper,
+                                            long after,
+                                            BiFunction<Long, Integer, List<T>> pageLoader,
+                                            ToLongFunction<T> idExtractor) {
+        ObjectWriter writer = objectMapper.writer();
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                long cursor = after;
+                List<T> page = pageLoader.apply(cursor, PAGE_SIZE);
+                while (!page.isEmpty()) {
+                    for (T item : page) {
+                        writer.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    cursor = idExtractor.applyAsLong(page.get(page.size() - 1));
+                    page = page.size() < PAGE_SIZE ? List.of() : pageLoader.apply(cursor, PAGE_SIZE);
+                }
+            }
+        };
+    }
+}
@@ -1,9 +1,14 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,13 +16,23 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
@@ -25,6 +40,12 @@ public class UserController {
 
     private final UserService userService;
 
+    private final FilmService filmService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
         User createdUser = userService.addUser(user);
@@ -32,6 +53,14 @@ public class UserController {
         return createdUser;
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.NDJSON})
+    public BatchResult createUsers(InputStream body) throws IOException {
+        BatchResult result = BatchRequests.process(objectMapper, validator, body, User.class,
+                (users, errors) -> userService.addUsers(users).size());
+        log.info("Пакетно создано пользователей: {}, ошибок: {}", result.getApplied(), result.getErrors().size());
+        return result;
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
         User updatedUser = userService.updateUser(user);
@@ -40,18 +69,49 @@ public class UserController {
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        log.info("Список всех пользователей {}", users);
+    public List<User> getAllUsers(@RequestParam(required = false) @Positive Integer limit,
+                                  @RequestParam(defaultValue = "0") long after,
+                                  WebRequest request) {
+        if (request.checkNotModified(userService.getUsersTag())) {
+            return null;
+        }
+        List<User> users = limit == null ? userService.getAllUsers() : userService.getAllUsers(after, limit);
+        log.info("Получено пользователей: {}", users.size());
         return users;
     }
 
+    @GetMapping(produces = NdjsonResponses.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestParam(defaultValue = "0") long after) {
+        log.info("Потоковая выдача пользователей после id {}", after);
+        return ResponseEntity.ok()
+                .contentType(NdjsonResponses.NDJSON_TYPE)
+                .body(NdjsonResponses.stream(objectMapper, after, userService::getAllUsers, User::getId));
+    }
+
+    @GetMapping("/{id}")
+    public User getUserById(@PathVariable long id, WebRequest request) {
+        if (request.checkNotModified(userService.getUserTag(id))) {
+            return null;
+        }
+        User user = userService.getUserById(id);
+        log.info("Получен пользователь: {}", user);
+        return user;
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable long id, @PathVariable long friendId) {
         userService.addFriend(id, friendId);
         log.info("Пользователь {} добавил в друзья пользователя {}", id, friendId);
     }
 
+    @PostMapping(value = "/friends/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.NDJSON})
+    public BatchResult addFriends(InputStream body) throws IOException {
+        BatchResult result = BatchRequests.process(objectMapper, validator, body, Friendship.class,
+                userService::addFriends);
+        log.info("Пакетно добавлено дружб: {}, ошибок: {}", result.getApplied(), result.getErrors().size());
+        return result;
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable long id, @PathVariable long friendId) {
         userService.removeFriend(id, friendId);
@@ -59,12 +119,27 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public ResponseEntity<List<User>> getFriends(@PathVariable long id) {
+    public ResponseEntity<List<User>> getFriends(@PathVariable long id, WebRequest request) {
+        if (request.checkNotModified(userService.getFriendsTag(id))) {
+            return null;
+        }
         List<User> friends = userService.getFriends(id);
         log.info("Список друзей пользователя {} получен", id);
         return ResponseEntity.ok(friends);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable long id,
+                                           @RequestParam(defaultValue = "10") @Positive int count) {
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable long id,
+                                         @RequestParam(defaultValue = "10") @Positive int count) {
+        return filmService.getRecommendations(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public ResponseEntity<List<User>> getCommonFriends(
             @PathVariable long id,
@@ -72,4 +147,9 @@ public class UserController {
         return ResponseEntity.ok(userService.getCommonFriends(id, otherId));
     }
 
+    @GetMapping("/{id}/friends/common/{otherId}/count")
+    public int getCommonFriendsCount(@PathVariable long id, @PathVariable long otherId) {
+        return userService.getCommonFriendsCount(id, otherId);
+    }
+
 }
\ No newline at end of file
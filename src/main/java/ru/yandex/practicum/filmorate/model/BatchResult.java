@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Итог пакетной операции: сколько элементов применено и ошибки отдельных элементов
+ * с их порядковыми номерами в запросе.
+ */
+@Getter
+public class BatchResult {
+
+    private long applied;
+
+    private final List<Error> errors = new ArrayList<>();
+
+    public void applied(long count) {
+        applied += count;
+    }
+
+    public void error(long index, String message) {
+        errors.add(new Error(index, message));
+    }
+
+    public BatchResult sorted() {
+        errors.sort(Comparator.comparingLong(Error::index));
+        return this;
+    }
+
+    public record Error(long index, String message) {
+    }
+}
@@ -3,14 +3,26 @@ package ru.yandex.practicum.filmorate.model;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
-import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
 import ru.yandex.practicum.filmorate.annotation.ValidReleaseDate;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
-@Data
+/**
+ * Неизменяемая версия фильма: хранилища отдают её читателям без копирования, поэтому правки делаются только
+ * через {@code withX} или {@link #toBuilder()}. Тело запроса Jackson собирает через тот же построитель.
+ */
+@Value
+@With
+@Builder(toBuilder = true)
+@Jacksonized
+@AllArgsConstructor
 public class Film {
 
     private long id;
@@ -27,5 +39,6 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть положительным числом")
     private int duration;
 
-    private Set<Long> likedUsers = new HashSet<>();
+    @Builder.Default
+    private LongSet likedUsers = new CompactLongSet();
 }
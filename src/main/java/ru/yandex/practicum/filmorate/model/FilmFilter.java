@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+/**
+ * Диапазоны для выборки фильмов: даты выхода и продолжительность, границы включаются. Незаданная граница
+ * ({@code null}) не ограничивает выборку.
+ */
+public record FilmFilter(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration) {
+
+    public boolean hasReleaseRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean isEmpty() {
+        return !hasReleaseRange() && !hasDurationRange();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Лайк пользователя фильму в пакетном запросе.
+ */
+public record FilmLike(long filmId, long userId) {
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Порядок выдачи списка фильмов: по id или по числу лайков (при равенстве — по id).
+ */
+public enum FilmSort {
+    ID,
+    POPULAR
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Дружба двух пользователей в пакетном запросе.
+ */
+public record Friendship(long userId, long friendId) {
+}
@@ -4,13 +4,25 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
-import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
-@Data
+/**
+ * Неизменяемая версия пользователя: хранилища отдают её читателям без копирования, поэтому правки делаются только
+ * через {@code withX} или {@link #toBuilder()}. Тело запроса Jackson собирает через тот же построитель.
+ */
+@Value
+@With
+@Builder(toBuilder = true)
+@Jacksonized
+@AllArgsConstructor
 public class User {
 
     private long id;
@@ -28,7 +40,9 @@ public class User {
     @PastOrPresent(message = "Дата рождения не может быть в будущем")
     private LocalDate birthday;
 
-    private Set<Long> friends = new HashSet<>();
+    @Builder.Default
+    private LongSet friends = new CompactLongSet();
 
-    private Set<Long> likedFilms = new HashSet<>();
+    @Builder.Default
+    private LongSet likedFilms = new CompactLongSet();
 }
@@ -1,62 +1,262 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.LongStream;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class FilmService {
 
     private final FilmStorage filmStorage;
 
     private final UserService userService;
 
+    private final DistributionSummary popularFilmsSize;
+
+    private final LikeWriteBuffer likeBuffer;
+
+    private final StorageVersions versions;
+
+    private final LikeIndex likeIndex;
+
+    private final TrendingIndex trendingIndex;
+
+    private final FilmSearchIndex searchIndex;
+
+    private final FilmRangeIndex rangeIndex;
+
+    /**
+     * @param likeBuffer отложенная запись лайков, {@code null}, если она выключена
+     */
+    public FilmService(FilmStorage filmStorage, UserService userService, MeterRegistry meterRegistry,
+                       @Nullable LikeWriteBuffer likeBuffer, StorageVersions versions, LikeIndex likeIndex,
+                       TrendingIndex trendingIndex, FilmSearchIndex searchIndex, FilmRangeIndex rangeIndex) {
+        this.filmStorage = filmStorage;
+        this.userService = userService;
+        this.likeBuffer = likeBuffer;
+        this.versions = versions;
+        this.likeIndex = likeIndex;
+        this.trendingIndex = trendingIndex;
+        this.searchIndex = searchIndex;
+        this.rangeIndex = rangeIndex;
+        this.popularFilmsSize = DistributionSummary.builder("filmorate.films.popular.size")
+                .description("Размер ответа /films/popular")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     public Film addFilm(Film film) {
         return filmStorage.addFilm(film);
     }
 
+    public List<Film> addFilms(List<Film> films) {
+        return filmStorage.addFilms(films);
+    }
+
     public Film updateFilm(Film film) {
         return filmStorage.updateFilm(film);
     }
 
     public Film getFilmById(long id) {
-        Film film = filmStorage.getFilmById(id);
-        if (film == null) {
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
-        }
-        return film;
+        flushLikes(id);
+        return findFilm(id);
     }
 
     public List<Film> getAllFilms() {
+        flushLikes();
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getAllFilms(long after, int limit) {
+        flushLikes();
+        return filmStorage.getAllFilms(after, limit);
+    }
+
+    /**
+     * Страница фильмов из диапазонов дат выхода и продолжительности. При сортировке по популярности
+     * {@code after} — id последнего фильма предыдущей страницы, а не нижняя граница id.
+     */
+    public List<Film> getFilms(FilmFilter filter, FilmSort sort, long after, int limit) {
+        if (filter.isEmpty() && sort == FilmSort.ID) {
+            return getAllFilms(after, limit);
+        }
+        flushLikes();
+        return LongStream.of(rangeIndex.find(filter, sort, after, limit))
+                .mapToObj(filmStorage::getFilmById)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     public void addLike(long filmId, long userId) {
-        Film film = getFilmById(filmId);
-        userService.getUserById(userId);
+        Film film = findFilm(filmId);
+        userService.checkUserExists(userId);
 
-        if (!film.getLikedUsers().add(userId)) {
+        boolean added = likeBuffer != null
+                ? likeBuffer.submit(filmId, userId, true, () -> isLiked(filmId, userId))
+                : filmStorage.addLike(film.getId(), userId);
+        if (!added) {
             throw new ValidationException("Пользователь уже поставил лайк этому фильму");
         }
     }
 
     public void removeLike(long filmId, long userId) {
-        Film film = getFilmById(filmId);
-        userService.getUserById(userId);
+        Film film = findFilm(filmId);
+        userService.checkUserExists(userId);
 
-        if (!film.getLikedUsers().remove(userId)) {
+        boolean removed = likeBuffer != null
+                ? likeBuffer.submit(filmId, userId, false, () -> isLiked(filmId, userId))
+                : filmStorage.removeLike(film.getId(), userId);
+        if (!removed) {
             throw new ValidationException("Пользователь не ставил лайк этому фильму");
         }
     }
 
+    /**
+     * Лайк по текущей версии фильма: прочитанная до очереди версия могла устареть, пока отложенная запись
+     * применяла предыдущие события.
+     */
+    private boolean isLiked(long filmId, long userId) {
+        Film film = filmStorage.getFilmById(filmId);
+        return film != null && film.getLikedUsers().contains(userId);
+    }
+
+    /**
+     * Ставит пачку лайков: проверяет фильмы и пользователей, отбрасывает повторы и пишет лайки
+     * одним вызовом хранилища на фильм. Ошибки сообщаются по позиции в списке и не прерывают пачку.
+     * Возвращает количество поставленных лайков.
+     */
+    public int addLikes(List<FilmLike> likes, BiConsumer<Integer, String> errors) {
+        flushLikes();
+        Set<Long> existingUsers = userService.getExistingUserIds(likes.stream().map(FilmLike::userId).toList());
+        Map<Long, Film> films = new HashMap<>();
+        Map<Long, List<Long>> usersByFilm = new LinkedHashMap<>();
+        Set<FilmLike> seen = new HashSet<>();
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            Film film = films.computeIfAbsent(like.filmId(), filmStorage::getFilmById);
+            if (film == null) {
+                errors.accept(i, "Фильм с id=" + like.filmId() + " не найден");
+            } else if (!existingUsers.contains(like.userId())) {
+                errors.accept(i, "Пользователь с id " + like.userId() + " не найден");
+            } else if (film.getLikedUsers().contains(like.userId()) || !seen.add(like)) {
+                errors.accept(i, "Пользователь уже поставил лайк этому фильму");
+            } else {
+                usersByFilm.computeIfAbsent(like.filmId(), id -> new ArrayList<>()).add(like.userId());
+            }
+        }
+        int added = 0;
+        for (Map.Entry<Long, List<Long>> entry : usersByFilm.entrySet()) {
+            added += filmStorage.addLikes(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+        flushLikes();
+        List<Film> films = filmStorage.getPopularFilms(count);
+        popularFilmsSize.record(films.size());
+        return films;
+    }
+
+    /**
+     * Фильмы, которые нравятся пользователям с похожими лайками, но ещё не лайкнуты самим пользователем.
+     */
+    public List<Film> getRecommendations(long userId, int count) {
+        userService.checkUserExists(userId);
+        flushLikes();
+        List<Film> recommendations = LongStream.of(likeIndex.recommendations(userId, count))
+                .mapToObj(filmStorage::getFilmById)
+                .filter(Objects::nonNull)
+                .toList();
+        log.info("Рекомендовано фильмов пользователю {}: {}", userId, recommendations.size());
+        return recommendations;
+    }
+
+    /**
+     * Фильмы, набравшие больше всего лайков за окно времени. Поддерживаются только окна,
+     * которые заданы в настройках трендов.
+     */
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        if (!trendingIndex.getWindows().contains(window)) {
+            throw new ValidationException("Окно " + window + " не поддерживается, доступны: "
+                    + trendingIndex.getWindows());
+        }
+        flushLikes();
+        return trendingIndex.top(window, count).stream()
+                .map(filmStorage::getFilmById)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Поиск по названию и описанию; последнее слово запроса может быть недописанным.
+     * {@code likeWeight} задаёт, насколько лайки поднимают фильм над остальными совпадениями.
+     */
+    public List<Film> searchFilms(String query, int count, double likeWeight) {
+        flushLikes();
+        return LongStream.of(searchIndex.search(query, count, likeWeight))
+                .mapToObj(filmStorage::getFilmById)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * ETag списков фильмов: меняется при любом изменении фильмов или лайков.
+     */
+    public String getFilmsTag() {
+        flushLikes();
+        return versions.tag(versions.films());
+    }
+
+    public String getFilmTag(long id) {
+        flushLikes(id);
+        return versions.tag(versions.film(id));
     }
 
+    private Film findFilm(long id) {
+        Film film = filmStorage.getFilmById(id);
+        if (film == null) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        return film;
+    }
+
+    private void flushLikes() {
+        if (likeBuffer != null) {
+            likeBuffer.flushAll();
+        }
+    }
+
+    private void flushLikes(long filmId) {
+        if (likeBuffer != null) {
+            likeBuffer.flush(filmId);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Отложенная запись лайков. Запрос только проверяет и ставит событие в очередь шарда фильма, фоновый поток
+ * раз в интервал забирает события пачками и применяет их к хранилищу: лайки одного фильма уходят
+ * одним вызовом {@link FilmStorage#addLikes} или {@link FilmStorage#removeLikes}, а пара «лайк и снятие лайка» внутри пачки схлопывается.
+ *
+ * <p>Последнее намеренное состояние каждой пары фильм-пользователь хранится в {@code pending}, пока
+ * не применено, поэтому повторный лайк отклоняется сразу. Чтения перед обращением к хранилищу
+ * вызывают {@link #flush(long)} или {@link #flushAll()}, так что автор лайка видит его в следующем ответе.
+ */
+@Slf4j
+public class LikeWriteBuffer implements Closeable {
+
+    private final FilmStorage storage;
+    private final Shard[] shards;
+    private final int batchSize;
+    private final Map<Key, State> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService drainer;
+    private final DistributionSummary batchSizes;
+
+    public LikeWriteBuffer(FilmStorage storage, int shards, int capacity, int batchSize, Duration flushInterval,
+                           ThreadFactory threadFactory, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(capacity);
+        }
+        this.batchSize = batchSize;
+        this.batchSizes = DistributionSummary.builder("filmorate.likes.batch.size")
+                .description("Количество событий лайков, применённых к хранилищу за одну пачку")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.likes.pending", pending, Map::size)
+                .description("Лайки, принятые, но ещё не записанные в хранилище")
+                .register(meterRegistry);
+        this.drainer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long intervalNanos = flushInterval.toNanos();
+        drainer.scheduleWithFixedDelay(this::drainQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Принимает лайк ({@code like = true}) или его снятие. {@code currentlyLiked} спрашивается только если
+     * для пары нет неприменённого события. Возвращает {@code false}, если состояние уже такое.
+     */
+    public boolean submit(long filmId, long userId, boolean like, BooleanSupplier currentlyLiked) {
+        Key key = new Key(filmId, userId);
+        long seq = sequence.incrementAndGet();
+        State accepted = new State(like, seq);
+        State result = pending.compute(key, (k, state) -> {
+            boolean liked = state != null ? state.liked() : currentlyLiked.getAsBoolean();
+            return liked == like ? state : accepted;
+        });
+        if (result != accepted) {
+            return false;
+        }
+        Shard shard = shard(filmId);
+        while (!shard.queue.offer(key)) {
+            // Очередь шарда заполнена: вызывающий поток сам разгружает её, это и есть обратное давление
+            drain(shard);
+        }
+        return true;
+    }
+
+    public void flush(long filmId) {
+        flush(shard(filmId));
+    }
+
+    public void flushAll() {
+        for (Shard shard : shards) {
+            flush(shard);
+        }
+    }
+
+    /**
+     * Пустая очередь ещё не значит, что всё записано: фоновый поток мог забрать пачку и применять её.
+     * Тогда ждём его на блокировке шарда.
+     */
+    private void flush(Shard shard) {
+        if (!shard.queue.isEmpty() || shard.lock.isLocked()) {
+            drain(shard);
+        }
+    }
+
+    @Override
+    public void close() {
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+    }
+
+    private Shard shard(long filmId) {
+        return shards[(int) Math.floorMod(filmId, (long) shards.length)];
+    }
+
+    private void drainQuietly() {
+        try {
+            flushAll();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пачку лайков", e);
+        }
+    }
+
+    private void drain(Shard shard) {
+        List<Key> keys = new ArrayList<>(batchSize);
+        shard.lock.lock();
+        try {
+            int remaining = shard.queue.size();
+            while (remaining > 0 && shard.queue.drainTo(keys, Math.min(batchSize, remaining)) > 0) {
+                remaining -= keys.size();
+                apply(keys);
+                keys.clear();
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private void apply(List<Key> keys) {
+        // Для каждой пары применяется последнее намеренное состояние из pending. Если записи там уже нет,
+        // более позднее событие этой пары уже применено и текущее устарело
+        Map<Key, State> states = new LinkedHashMap<>();
+        for (Key key : keys) {
+            State state = pending.get(key);
+            if (state != null) {
+                states.put(key, state);
+            }
+        }
+        Map<Long, List<Long>> likesByFilm = new HashMap<>();
+        Map<Long, List<Long>> unlikesByFilm = new HashMap<>();
+        states.forEach((key, state) -> (state.liked() ? likesByFilm : unlikesByFilm)
+                .computeIfAbsent(key.filmId(), id -> new ArrayList<>())
+                .add(key.userId()));
+        likesByFilm.forEach(storage::addLikes);
+        unlikesByFilm.forEach(storage::removeLikes);
+        states.forEach(pending::remove);
+        batchSizes.record(keys.size());
+    }
+
+    private record Key(long filmId, long userId) {
+    }
+
+    private record State(boolean liked, long seq) {
+    }
+
+    private static final class Shard {
+
+        private final BlockingQueue<Key> queue;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Shard(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmListener;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Поток изменений популярности для {@code GET /films/popular/stream} (Server-Sent Events). Лайки только
+ * отмечают фильм изменённым; раз в такт отмеченные фильмы и разница топа с прошлым тактом уходят
+ * подписчикам одним событием {@code likes} и одним {@code top}, сколько бы лайков ни пришло за такт.
+ *
+ * <p>Событие готовится один раз на такт (для {@code top} — на каждую запрошенную длину топа) и кладётся
+ * в ограниченную очередь каждого подписчика; очереди разбирает небольшой пул отправки. Подписчик, который
+ * не успевает разбирать очередь, отключается: клиент переподключится и получит снимок заново. Открытые
+ * соединения держит асинхронная обработка сервлетов, отдельный поток на соединение не нужен.
+ *
+ * <p>Отправка блокируется, пока клиент не примет данные, поэтому клиент, который перестал читать, держит
+ * поток пула. Отправка дольше {@code sendTimeout} отключает подписчика: его поток прерывается и списывается,
+ * а пул получает вместо него новый, чтобы остальные подписчики не ждали. Закрыть соединение сразу нельзя:
+ * завершение эмиттера ждёт ту же блокировку, что и зависшая отправка, поэтому эмиттер завершается,
+ * когда отправка вернётся.
+ */
+@Slf4j
+public class PopularityFeed implements FilmListener, Closeable {
+
+    private final Supplier<FilmStorage> storage;
+    private final ObjectMapper objectMapper;
+    private final int maxCount;
+    private final int bufferSize;
+    private final int maxFilmUpdates;
+    private final Duration timeout;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> changedFilms = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+    private List<FilmLikes> top;
+    private volatile Executor sender = Runnable::run;
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param maxCount       наибольшая длина топа, на которую можно подписаться
+     * @param bufferSize     сколько событий может ждать отправки у одного подписчика
+     * @param maxFilmUpdates сколько изменённых фильмов уходит за такт; остальные переходят в следующий
+     * @param timeout        сколько держать соединение, после чего клиент переподключается
+     */
+    public PopularityFeed(Supplier<FilmStorage> storage, ObjectMapper objectMapper, int maxCount, int bufferSize,
+                          int maxFilmUpdates, Duration timeout, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.objectMapper = objectMapper;
+        this.maxCount = maxCount;
+        this.bufferSize = bufferSize;
+        this.maxFilmUpdates = maxFilmUpdates;
+        this.timeout = timeout;
+        Gauge.builder("filmorate.films.popular.stream.subscribers", subscribers, Set::size)
+                .description("Открытые подписки на поток популярных фильмов")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("filmorate.films.popular.stream.dropped")
+                .description("Подписчики, отключённые из-за переполненной очереди событий")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param sendTimeout сколько может длиться одна отправка, прежде чем подписчик будет отключён
+     */
+    public void start(ThreadFactory threadFactory, int senderThreads, Duration tick, Duration heartbeat,
+                      Duration sendTimeout) {
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        sender = senders;
+        ticker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        ticker.scheduleWithFixedDelay(this::tickQuietly, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+        long checkMillis = Math.max(1, sendTimeout.toMillis() / 2);
+        ticker.scheduleWithFixedDelay(() -> disconnectStalled(sendTimeout), checkMillis, checkMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+        markChanged(filmId);
+    }
+
+    @Override
+    public void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+        markChanged(filmId);
+    }
+
+    /**
+     * Подписка на топ из {@code count} фильмов: сначала событие {@code snapshot} с текущим топом, дальше
+     * {@code top} с изменившимися местами и {@code likes} с новыми счётчиками изменённых фильмов.
+     */
+    public SseEmitter subscribe(int count) {
+        return subscribe(count, new SseEmitter(timeout.toMillis()));
+    }
+
+    synchronized SseEmitter subscribe(int count, SseEmitter emitter) {
+        if (count > maxCount) {
+            throw new ValidationException("Длина топа не может быть больше " + maxCount);
+        }
+        if (top == null) {
+            top = loadTop();
+        }
+        Subscriber subscriber = new Subscriber(emitter, count);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        List<FilmLikes> prefix = top.subList(0, Math.min(count, top.size()));
+        subscriber.offer(event("snapshot", new TopUpdate(ranks(prefix, List.of(), count), prefix.size())));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Собирает изменения за такт и раздаёт их подписчикам.
+     */
+    synchronized void tick() {
+        if (subscribers.isEmpty()) {
+            changedFilms.clear();
+            top = null;
+            return;
+        }
+        FilmStorage filmStorage = storage.get();
+        List<FilmLikes> films = new ArrayList<>();
+        Iterator<Long> iterator = changedFilms.iterator();
+        while (iterator.hasNext() && films.size() < maxFilmUpdates) {
+            long filmId = iterator.next();
+            // Сначала снимаем отметку, потом читаем счётчик: лайк после чтения снова отметит фильм
+            iterator.remove();
+            Film film = filmStorage.getFilmById(filmId);
+            if (film != null) {
+                films.add(new FilmLikes(filmId, film.getLikedUsers().size()));
+            }
+        }
+        if (films.isEmpty()) {
+            return;
+        }
+        List<FilmLikes> previous = top;
+        top = loadTop();
+        Set<DataWithMediaType> likes = event("likes", new LikesUpdate(films));
+        Map<Integer, Optional<Set<DataWithMediaType>>> topByCount = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            topByCount.computeIfAbsent(subscriber.count, count -> topEvent(previous, top, count))
+                    .ifPresent(subscriber::offer);
+            subscriber.offer(likes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void markChanged(long filmId) {
+        if (!subscribers.isEmpty()) {
+            changedFilms.add(filmId);
+        }
+    }
+
+    private List<FilmLikes> loadTop() {
+        return storage.get().getPopularFilms(maxCount).stream()
+                .map(film -> new FilmLikes(film.getId(), film.getLikedUsers().size()))
+                .toList();
+    }
+
+    private Optional<Set<DataWithMediaType>> topEvent(List<FilmLikes> previous, List<FilmLikes> current,
+                                                      int count) {
+        List<RankedFilm> ranks = ranks(current, previous, count);
+        int size = Math.min(count, current.size());
+        if (ranks.isEmpty() && size == Math.min(count, previous.size())) {
+            return Optional.empty();
+        }
+        return Optional.of(event("top", new TopUpdate(ranks, size)));
+    }
+
+    /**
+     * Места первых {@code count} фильмов топа, на которых фильм или его счётчик отличаются от прежних.
+     */
+    private static List<RankedFilm> ranks(List<FilmLikes> current, List<FilmLikes> previous, int count) {
+        List<RankedFilm> result = new ArrayList<>();
+        for (int rank = 0; rank < Math.min(count, current.size()); rank++) {
+            FilmLikes film = current.get(rank);
+            if (rank >= previous.size() || !previous.get(rank).equals(film)) {
+                result.add(new RankedFilm(rank, film.filmId(), film.likes()));
+            }
+        }
+        return result;
+    }
+
+    private Set<DataWithMediaType> event(String name, Object data) {
+        try {
+            return SseEmitter.event().name(name).data(objectMapper.writeValueAsString(data)).build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void heartbeat() {
+        Set<DataWithMediaType> comment = SseEmitter.event().comment("").build();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(comment);
+        }
+    }
+
+    /**
+     * Отключает подписчиков, чья отправка идёт дольше {@code sendTimeout}, и даёт пулу поток вместо
+     * каждого зависшего.
+     */
+    private void disconnectStalled(Duration sendTimeout) {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            Send send = subscriber.inFlight.get();
+            if (send != null && send != Send.STALLED && now - send.started() > sendTimeout.toNanos()
+                    && subscriber.inFlight.compareAndSet(send, Send.STALLED)) {
+                subscribers.remove(subscriber);
+                dropped.increment();
+                log.debug("Отправка подписчику популярных фильмов не завершилась за {}, подписчик отключён",
+                        sendTimeout);
+                resizeSenders(1);
+                send.thread().interrupt();
+            }
+        }
+    }
+
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            if (delta > 0) {
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            } else {
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.error("Не удалось разослать изменения популярных фильмов", e);
+        }
+    }
+
+    public record FilmLikes(long filmId, long likes) {
+    }
+
+    public record RankedFilm(int rank, long filmId, long likes) {
+    }
+
+    /**
+     * Изменившиеся места топа и его новая длина; места дальше {@code size} клиент отбрасывает.
+     */
+    public record TopUpdate(List<RankedFilm> ranks, int size) {
+    }
+
+    public record LikesUpdate(List<FilmLikes> films) {
+    }
+
+    /**
+     * Идущая отправка: поток и время начала. {@link #STALLED} — отправка списана по таймауту.
+     */
+    private record Send(Thread thread, long started) {
+
+        static final Send STALLED = new Send(null, 0);
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final int count;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicReference<Send> inFlight = new AtomicReference<>();
+
+        Subscriber(SseEmitter emitter, int count) {
+            this.emitter = emitter;
+            this.count = count;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (!queue.offer(event)) {
+                if (subscribers.remove(this)) {
+                    dropped.increment();
+                    log.debug("Подписчик популярных фильмов не успевает читать события и отключён");
+                    emitter.complete();
+                }
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while (inFlight.get() != Send.STALLED && (event = queue.poll()) != null) {
+                    Send send = new Send(Thread.currentThread(), System.nanoTime());
+                    inFlight.set(send);
+                    boolean sent = false;
+                    try {
+                        emitter.send(event);
+                        sent = true;
+                    } finally {
+                        if (!inFlight.compareAndSet(send, null)) {
+                            stalled(sent);
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент закрыл соединение или подписка уже завершена
+                subscribers.remove(this);
+                queue.clear();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty() && inFlight.get() != Send.STALLED && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * Зависшая отправка наконец вернулась: поток снова свободен, а пул возвращается к прежнему размеру.
+         */
+        private void stalled(boolean sent) {
+            Thread.interrupted();
+            queue.clear();
+            resizeSenders(-1);
+            if (sent) {
+                emitter.complete();
+            }
+        }
+    }
+}
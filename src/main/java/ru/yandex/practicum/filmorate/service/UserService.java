@@ -1,33 +1,88 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.LongSets;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserService {
     private final UserStorage userStorage;
 
+    private final DistributionSummary friendsSize;
+
+    private final StorageVersions versions;
+
+    private final FriendshipGraph friendshipGraph;
+
+    private final LikeIndex likeIndex;
+
+    private final LikeWriteBuffer likeBuffer;
+
+    /**
+     * @param likeBuffer отложенная запись лайков, {@code null}, если она выключена
+     */
+    public UserService(UserStorage userStorage, MeterRegistry meterRegistry, @Nullable LikeWriteBuffer likeBuffer,
+                       StorageVersions versions, FriendshipGraph friendshipGraph, LikeIndex likeIndex) {
+        this.userStorage = userStorage;
+        this.likeBuffer = likeBuffer;
+        this.versions = versions;
+        this.friendshipGraph = friendshipGraph;
+        this.likeIndex = likeIndex;
+        this.friendsSize = DistributionSummary.builder("filmorate.users.friends.size")
+                .description("Размер ответа /users/{id}/friends")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     public User addUser(User user) {
-        setDefaultName(user);
-        return userStorage.addUser(user);
+        return userStorage.addUser(withDefaultName(user));
+    }
+
+    public List<User> addUsers(List<User> users) {
+        return userStorage.addUsers(users.stream().map(UserService::withDefaultName).toList());
     }
 
     public User updateUser(User user) {
-        setDefaultName(user);
-        return userStorage.updateUser(user);
+        return userStorage.updateUser(withDefaultName(user));
     }
 
     public User getUserById(long id) {
+        flushLikes();
+        return withLikedFilms(findUser(id));
+    }
+
+    public void checkUserExists(long id) {
+        findUser(id);
+    }
+
+    /**
+     * Пользователь из хранилища без подстановки лайков: для проверки существования и чтения друзей,
+     * где лайки не нужны.
+     */
+    private User findUser(long id) {
         User user = userStorage.getUserById(id);
         if (user == null) {
             throw new NotFoundException("Пользователь с id " + id + " не найден");
@@ -35,56 +90,155 @@ public class UserService {
         return user;
     }
 
+    public Set<Long> getExistingUserIds(Collection<Long> ids) {
+        return userStorage.getUsersByIds(ids.stream().distinct().toList()).stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+    }
+
     public List<User> getAllUsers() {
-        return userStorage.getAllUsers();
+        flushLikes();
+        return withLikedFilms(userStorage.getAllUsers());
     }
 
-    private void setDefaultName(User user) {
+    public List<User> getAllUsers(long after, int limit) {
+        flushLikes();
+        return withLikedFilms(userStorage.getAllUsers(after, limit));
+    }
+
+    private static User withDefaultName(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
+            return user.withName(user.getLogin());
         }
+        return user;
+    }
+
+    /**
+     * Лайки пользователя и версии в его ETag меняются, только когда отложенный лайк записан в хранилище,
+     * поэтому чтения пользователей, как и чтения фильмов, сначала сбрасывают буфер: автор лайка видит его
+     * в следующем ответе, а не старый ответ с прежним ETag.
+     */
+    private void flushLikes() {
+        if (likeBuffer != null) {
+            likeBuffer.flushAll();
+        }
+    }
+
+    /**
+     * Лайки ставятся через хранилище фильмов, поэтому фильмы пользователя берутся из индекса лайков,
+     * а не из хранилища пользователей: так они всегда совпадают с лайками фильмов. Пользователь из хранилища
+     * может быть общей неизменяемой версией, поэтому лайки подставляются в копию.
+     */
+    private User withLikedFilms(User user) {
+        return user.withLikedFilms(likeIndex.films(user.getId()));
+    }
+
+    private List<User> withLikedFilms(List<User> users) {
+        return users.stream().map(this::withLikedFilms).toList();
     }
 
     public void addFriend(long userId, long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
+        findUser(userId);
+        findUser(friendId);
 
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        userStorage.addFriend(userId, friendId);
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     }
 
     public void removeFriend(long userId, long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
+        findUser(userId);
+        findUser(friendId);
 
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
+        userStorage.removeFriend(userId, friendId);
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
 
+    /**
+     * Добавляет пачку дружб. Ошибки сообщаются по позиции в списке и не прерывают пачку.
+     * Возвращает количество добавленных дружб.
+     */
+    public int addFriends(List<Friendship> friendships, BiConsumer<Integer, String> errors) {
+        Set<Long> existing = getExistingUserIds(friendships.stream()
+                .flatMap(friendship -> Stream.of(friendship.userId(), friendship.friendId()))
+                .toList());
+        int added = 0;
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (!existing.contains(friendship.userId())) {
+                errors.accept(i, "Пользователь с id " + friendship.userId() + " не найден");
+            } else if (!existing.contains(friendship.friendId())) {
+                errors.accept(i, "Пользователь с id " + friendship.friendId() + " не найден");
+            } else {
+                userStorage.addFriend(friendship.userId(), friendship.friendId());
+                added++;
+            }
+        }
+        return added;
+    }
+
     public List<User> getFriends(long userId) {
-        Set<Long> friendIds = getUserById(userId).getFriends();
-        List<User> friends = friendIds.stream()
-                .map(this::getUserById)
-                .collect(Collectors.toList());
-        log.info("Список друзей пользователя {}: {}", userId, friends);
+        flushLikes();
+        List<User> friends = withLikedFilms(userStorage.getUsersByIds(findUser(userId).getFriends()));
+        friendsSize.record(friends.size());
+        log.info("У пользователя {} друзей: {}", userId, friends.size());
         return friends;
     }
 
     public List<User> getCommonFriends(long userId, long otherId) {
-        Set<Long> userFriends = getUserById(userId).getFriends();
-        Set<Long> otherFriends = getUserById(otherId).getFriends();
-
-        Set<Long> commonFriendIds = userFriends.stream()
-                .filter(otherFriends::contains)
-                .collect(Collectors.toSet());
+        flushLikes();
+        LongSet userFriends = findUser(userId).getFriends();
+        LongSet otherFriends = findUser(otherId).getFriends();
 
-        List<User> commonFriends = commonFriendIds.stream()
-                .map(this::getUserById)
-                .collect(Collectors.toList());
+        long[] commonFriendIds = LongSets.intersection(userFriends, otherFriends);
+        List<User> commonFriends = withLikedFilms(
+                userStorage.getUsersByIds(LongStream.of(commonFriendIds).boxed().toList()));
 
-        log.info("Общие друзья между {} и {}: {}", userId, otherId, commonFriends);
+        log.info("Общих друзей у {} и {}: {}", userId, otherId, commonFriends.size());
         return commonFriends;
     }
+
+    /**
+     * Друзья друзей по убыванию числа общих друзей, по графу дружбы.
+     */
+    public List<User> getFriendSuggestions(long userId, int count) {
+        flushLikes();
+        findUser(userId);
+        long[] suggestedIds = friendshipGraph.suggestions(userId, count);
+        Map<Long, User> byId = userStorage.getUsersByIds(LongStream.of(suggestedIds).boxed().toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> suggestions = LongStream.of(suggestedIds)
+                .mapToObj(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::withLikedFilms)
+                .toList();
+        log.info("Рекомендовано друзей пользователю {}: {}", userId, suggestions.size());
+        return suggestions;
+    }
+
+    public int getCommonFriendsCount(long userId, long otherId) {
+        LongSet userFriends = findUser(userId).getFriends();
+        LongSet otherFriends = findUser(otherId).getFriends();
+        return LongSets.intersectionSize(userFriends, otherFriends);
+    }
+
+    public String getUsersTag() {
+        flushLikes();
+        return versions.tag(versions.users());
+    }
+
+    public String getUserTag(long id) {
+        flushLikes();
+        return versions.tag(versions.user(id));
+    }
+
+    /**
+     * ETag списка друзей: зависит и от набора друзей, и от данных каждого друга,
+     * поэтому читает только сам пользователь, без загрузки друзей.
+     */
+    public String getFriendsTag(long userId) {
+        flushLikes();
+        long version = versions.user(userId);
+        long[] friendIds = findUser(userId).getFriends().toLongArray();
+        return versions.tag(version, versions.users(friendIds));
+    }
 }
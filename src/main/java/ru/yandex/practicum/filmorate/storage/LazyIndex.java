@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Состояние индекса рядом с хранилищем, которое строится при первом обращении. Изменения хранилища
+ * до постройки индексу не нужны: загрузка прочитает их сама, поэтому слушатели берут {@link #loaded()}
+ * и пропускают ещё не построенный индекс, а запросы берут {@link #get()}.
+ *
+ * @param <T> состояние индекса
+ */
+public final class LazyIndex<T> {
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private final Supplier<T> loader;
+    private volatile T value;
+
+    public LazyIndex(Supplier<T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Все записи хранилища по возрастанию id, страница за страницей по мере обхода.
+     */
+    public static <E> Iterable<E> scan(BiFunction<Long, Integer, List<E>> pageLoader, ToLongFunction<E> idOf) {
+        return () -> new Iterator<>() {
+            private List<E> page = pageLoader.apply(0L, PAGE_SIZE);
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.size() && page.size() == PAGE_SIZE) {
+                    page = pageLoader.apply(idOf.applyAsLong(page.get(PAGE_SIZE - 1)), PAGE_SIZE);
+                    position = 0;
+                }
+                return position < page.size();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
+            }
+        };
+    }
+
+    public T get() {
+        T current = value;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (value == null) {
+                value = loader.get();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Построенное состояние или {@code null}, если загрузка ещё не начиналась.
+     */
+    @Nullable
+    public T loaded() {
+        T current = value;
+        if (current != null) {
+            return current;
+        }
+        // Если загрузка идёт, монитор дождётся её; если ещё не начиналась, она прочитает эту запись сама
+        synchronized (this) {
+            return value;
+        }
+    }
+
+    /**
+     * Заменяет построенное состояние, например после слияния накопленных изменений.
+     */
+    public void set(T replacement) {
+        value = replacement;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики версий хранилищ для условных запросов: общий счётчик фильмов и пользователей
+ * и счётчики отдельных сущностей. Счётчики сущностей разложены по полосам, поэтому память
+ * не зависит от числа сущностей; общая полоса у двух сущностей даёт лишь лишний полный ответ.
+ *
+ * <p>Версия увеличивается после записи в хранилище, а читается до чтения данных, поэтому
+ * версия в ответе никогда не опережает сами данные. Эпоха отличает версии разных запусков.
+ */
+public class StorageVersions {
+
+    private static final int STRIPES = 1 << 16;
+
+    private final long epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    private final AtomicLong films = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLongArray filmStripes = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray userStripes = new AtomicLongArray(STRIPES);
+
+    public long films() {
+        return films.get();
+    }
+
+    public long film(long id) {
+        return filmStripes.get(stripe(id));
+    }
+
+    public long users() {
+        return users.get();
+    }
+
+    public long user(long id) {
+        return userStripes.get(stripe(id));
+    }
+
+    /**
+     * Сумма версий нескольких пользователей. Версии только растут, поэтому при том же наборе
+     * идентификаторов сумма меняется при любом изменении любого из них.
+     */
+    public long users(long[] ids) {
+        long sum = 0;
+        for (long id : ids) {
+            sum += userStripes.get(stripe(id));
+        }
+        return sum;
+    }
+
+    /**
+     * ETag из эпохи и перечисленных версий.
+     */
+    public String tag(long... parts) {
+        StringBuilder tag = new StringBuilder(Long.toHexString(epoch));
+        for (long part : parts) {
+            tag.append('-').append(Long.toHexString(part));
+        }
+        return tag.toString();
+    }
+
+    public void filmAdded() {
+        films.incrementAndGet();
+    }
+
+    public void filmChanged(long id) {
+        filmStripes.incrementAndGet(stripe(id));
+        films.incrementAndGet();
+    }
+
+    public void userAdded() {
+        users.incrementAndGet();
+    }
+
+    public void userChanged(long id) {
+        userStripes.incrementAndGet(stripe(id));
+        users.incrementAndGet();
+    }
+
+    private static int stripe(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичное представление сущностей и записей журнала. Общее для журнала и снимков,
+ * чтобы восстановление не зависело от Jackson и читало данные без промежуточного JSON.
+ */
+final class BinaryCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private BinaryCodec() {
+    }
+
+    static void writeRecord(DataOutput out, WalRecord record) throws IOException {
+        out.writeByte(record.type().ordinal());
+        switch (record.type()) {
+            case ADD_FILM, UPDATE_FILM -> writeFilm(out, record.film(), false);
+            case ADD_USER, UPDATE_USER -> writeUser(out, record.user(), false);
+            default -> {
+                out.writeLong(record.first());
+                out.writeLong(record.second());
+            }
+        }
+    }
+
+    static WalRecord readRecord(DataInput in) throws IOException {
+        WalRecord.Type type = WalRecord.Type.values()[in.readUnsignedByte()];
+        return switch (type) {
+            case ADD_FILM, UPDATE_FILM -> {
+                Film film = readFilm(in, false);
+                yield new WalRecord(type, film.getId(), 0, film, null);
+            }
+            case ADD_USER, UPDATE_USER -> {
+                User user = readUser(in, false);
+                yield new WalRecord(type, user.getId(), 0, null, user);
+            }
+            default -> new WalRecord(type, in.readLong(), in.readLong(), null, null);
+        };
+    }
+
+    static void writeFilm(DataOutput out, Film film, boolean withLikes) throws IOException {
+        out.writeLong(film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+        if (withLikes) {
+            writeIds(out, film.getLikedUsers());
+        }
+    }
+
+    static Film readFilm(DataInput in, boolean withLikes) throws IOException {
+        Film.FilmBuilder film = Film.builder()
+                .id(in.readLong())
+                .name(readString(in))
+                .description(readString(in))
+                .releaseDate(readDate(in))
+                .duration(in.readInt());
+        if (withLikes) {
+            film.likedUsers(readIds(in));
+        }
+        return film.build();
+    }
+
+    static void writeUser(DataOutput out, User user, boolean withRelations) throws IOException {
+        out.writeLong(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        writeDate(out, user.getBirthday());
+        if (withRelations) {
+            writeIds(out, user.getFriends());
+            writeIds(out, user.getLikedFilms());
+        }
+    }
+
+    static User readUser(DataInput in, boolean withRelations) throws IOException {
+        User.UserBuilder user = User.builder()
+                .id(in.readLong())
+                .email(readString(in))
+                .login(readString(in))
+                .name(readString(in))
+                .birthday(readDate(in));
+        if (withRelations) {
+            user.friends(readIds(in));
+            user.likedFilms(readIds(in));
+        }
+        return user.build();
+    }
+
+    private static void writeIds(DataOutput out, LongSet ids) throws IOException {
+        long[] values = ids == null ? new long[0] : ids.toLongArray();
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static LongSet readIds(DataInput in) throws IOException {
+        int size = in.readInt();
+        CompactLongSet ids = new CompactLongSet();
+        for (int i = 0; i < size; i++) {
+            ids.add(in.readLong());
+        }
+        return ids;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
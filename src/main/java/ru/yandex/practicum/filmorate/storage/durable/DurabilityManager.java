@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.config.StorageProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Восстанавливает хранилища в памяти из последнего снимка и журнала, затем открывает журнал
+ * для новых изменений и периодически делает снимки, чтобы время восстановления не росло бесконечно.
+ */
+@Slf4j
+public class DurabilityManager implements Closeable {
+
+    private final StorageProperties.Durable properties;
+    private final Path directory;
+    private final InMemoryFilmStorage films;
+    private final InMemoryUserStorage users;
+    private final ThreadFactory threadFactory;
+    private ScheduledExecutorService scheduler;
+    private WriteAheadLog writeAheadLog;
+
+    public DurabilityManager(StorageProperties.Durable properties, InMemoryFilmStorage films,
+                             InMemoryUserStorage users, ThreadFactory threadFactory) {
+        this.properties = properties;
+        this.directory = Path.of(properties.getDirectory());
+        this.films = films;
+        this.users = users;
+        this.threadFactory = threadFactory;
+    }
+
+    public void start() throws IOException {
+        long nextSegment = recover();
+        writeAheadLog = new WriteAheadLog(directory, properties.getFsync(), properties.getFsyncInterval(),
+                nextSegment, threadFactory);
+
+        long intervalMillis = properties.getSnapshotInterval().toMillis();
+        if (intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public WriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    /**
+     * Переключает журнал на новый сегмент и сохраняет снимок. Изменения продолжают приниматься: каждое
+     * применяется в памяти раньше, чем пишется в журнал, поэтому всё из старых сегментов снимок уже видит.
+     * Часть записей нового сегмента он тоже может захватить, но их повторное применение ничего не меняет.
+     */
+    public void snapshot() throws IOException {
+        long started = System.nanoTime();
+        long segment = writeAheadLog.rotate();
+        SnapshotStore.write(directory, segment, films, users);
+        SnapshotStore.deleteBefore(directory, segment);
+        WriteAheadLog.deleteSegmentsBefore(directory, segment);
+        log.info("Снимок {} сохранён за {} мс", segment, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    private long recover() throws IOException {
+        long started = System.nanoTime();
+        OptionalLong snapshot = SnapshotStore.latest(directory);
+        long fromSegment = 0;
+        if (snapshot.isPresent()) {
+            fromSegment = snapshot.getAsLong();
+            SnapshotStore.load(directory, fromSegment, films, users);
+        }
+
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        long records = 0;
+        long lastSegment = fromSegment;
+        for (long segment : segments) {
+            if (segment >= fromSegment) {
+                records += WriteAheadLog.replay(directory, segment, this::apply);
+                lastSegment = Math.max(lastSegment, segment);
+            }
+        }
+        log.info("Восстановлено фильмов: {}, пользователей: {}, записей журнала: {} за {} мс",
+                films.getFilmsCount(), users.getUsersCount(), records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return lastSegment + 1;
+    }
+
+    private void apply(WalRecord record) {
+        switch (record.type()) {
+            case ADD_FILM -> films.restoreFilm(record.film());
+            case UPDATE_FILM -> updateFilm(record.film());
+            case ADD_USER -> users.restoreUser(record.user());
+            case UPDATE_USER -> updateUser(record.user());
+            case ADD_LIKE -> films.addLike(record.first(), record.second());
+            case REMOVE_LIKE -> films.removeLike(record.first(), record.second());
+            case ADD_FRIEND -> users.addFriend(record.first(), record.second());
+            case REMOVE_FRIEND -> users.removeFriend(record.first(), record.second());
+        }
+    }
+
+    private void updateFilm(Film film) {
+        if (films.getFilmById(film.getId()) == null) {
+            films.restoreFilm(film);
+        } else {
+            films.updateFilm(film);
+        }
+    }
+
+    private void updateUser(User user) {
+        if (users.getUserById(user.getId()) == null) {
+            users.restoreUser(user);
+        } else {
+            users.updateUser(user);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось сохранить снимок", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.LockStripes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Хранилище фильмов, которое записывает каждое изменение в журнал. Изменение применяется в памяти
+ * и ставится в журнал под блокировкой своего фильма, а ожидание fsync идёт уже без блокировки,
+ * чтобы запросы к одному фильму сбрасывались на диск общей пачкой.
+ *
+ * <p>Новый фильм сначала получает id, затем кладётся в память и его добавление ставится в журнал под той же
+ * блокировкой. Лайк нового фильма ждёт эту блокировку и попадает в журнал после добавления, а снимок,
+ * который переключил журнал раньше записи добавления, уже видит фильм в памяти.
+ */
+public class DurableFilmStorage implements FilmStorage {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final InMemoryFilmStorage delegate;
+    private final WriteAheadLog writeAheadLog;
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public DurableFilmStorage(InMemoryFilmStorage delegate, WriteAheadLog writeAheadLog) {
+        this.delegate = delegate;
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film added = film.withId(delegate.reserveIds(1));
+        add(added).join();
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        long id = delegate.reserveIds(films.size());
+        CompletableFuture<Long> durable = null;
+        List<Film> added = new ArrayList<>(films.size());
+        for (Film film : films) {
+            Film withId = film.withId(id++);
+            durable = add(withId);
+            added.add(withId);
+        }
+        if (durable != null) {
+            durable.join();
+        }
+        return added;
+    }
+
+    private CompletableFuture<Long> add(Film film) {
+        locks.lock(film.getId());
+        try {
+            delegate.restoreFilm(film);
+            return writeAheadLog.append(WalRecord.addFilm(film));
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated;
+        CompletableFuture<Long> durable;
+        locks.lock(film.getId());
+        try {
+            updated = delegate.updateFilm(film);
+            durable = writeAheadLog.append(WalRecord.updateFilm(updated));
+        } finally {
+            locks.unlock(film.getId());
+        }
+        durable.join();
+        return updated;
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return delegate.getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return delegate.getAllFilms(after, limit);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        CompletableFuture<Long> durable;
+        locks.lock(filmId);
+        try {
+            if (!delegate.addLike(filmId, userId)) {
+                return false;
+            }
+            durable = writeAheadLog.append(WalRecord.addLike(filmId, userId));
+        } finally {
+            locks.unlock(filmId);
+        }
+        durable.join();
+        return true;
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        int added = 0;
+        CompletableFuture<Long> durable = null;
+        locks.lock(filmId);
+        try {
+            for (Long userId : userIds) {
+                if (delegate.addLike(filmId, userId)) {
+                    durable = writeAheadLog.append(WalRecord.addLike(filmId, userId));
+                    added++;
+                }
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        // Записи пачки идут в журнал по порядку, поэтому достаточно дождаться последней
+        if (durable != null) {
+            durable.join();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        CompletableFuture<Long> durable;
+        locks.lock(filmId);
+        try {
+            if (!delegate.removeLike(filmId, userId)) {
+                return false;
+            }
+            durable = writeAheadLog.append(WalRecord.removeLike(filmId, userId));
+        } finally {
+            locks.unlock(filmId);
+        }
+        durable.join();
+        return true;
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        int removed = 0;
+        CompletableFuture<Long> durable = null;
+        locks.lock(filmId);
+        try {
+            for (Long userId : userIds) {
+                if (delegate.removeLike(filmId, userId)) {
+                    durable = writeAheadLog.append(WalRecord.removeLike(filmId, userId));
+                    removed++;
+                }
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        if (durable != null) {
+            durable.join();
+        }
+        return removed;
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+}
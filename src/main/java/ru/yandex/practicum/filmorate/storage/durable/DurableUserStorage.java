@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LockStripes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Хранилище пользователей, которое записывает каждое изменение в журнал.
+ * Дружба меняет двух пользователей, поэтому берутся блокировки обоих в фиксированном порядке.
+ * Новый пользователь, как и фильм в {@link DurableFilmStorage}, кладётся в память до записи его добавления
+ * в журнал под блокировкой своего id.
+ */
+public class DurableUserStorage implements UserStorage {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final InMemoryUserStorage delegate;
+    private final WriteAheadLog writeAheadLog;
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public DurableUserStorage(InMemoryUserStorage delegate, WriteAheadLog writeAheadLog) {
+        this.delegate = delegate;
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    @Override
+    public User addUser(User user) {
+        User added = user.withId(delegate.reserveIds(1));
+        add(added).join();
+        return added;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        long id = delegate.reserveIds(users.size());
+        CompletableFuture<Long> durable = null;
+        List<User> added = new ArrayList<>(users.size());
+        for (User user : users) {
+            User withId = user.withId(id++);
+            durable = add(withId);
+            added.add(withId);
+        }
+        if (durable != null) {
+            durable.join();
+        }
+        return added;
+    }
+
+    private CompletableFuture<Long> add(User user) {
+        locks.lock(user.getId());
+        try {
+            delegate.restoreUser(user);
+            return writeAheadLog.append(WalRecord.addUser(user));
+        } finally {
+            locks.unlock(user.getId());
+        }
+    }
+
+    @Override
+    public User updateUser(User user) {
+        User updated;
+        CompletableFuture<Long> durable;
+        locks.lock(user.getId());
+        try {
+            updated = delegate.updateUser(user);
+            durable = writeAheadLog.append(WalRecord.updateUser(updated));
+        } finally {
+            locks.unlock(user.getId());
+        }
+        durable.join();
+        return updated;
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return delegate.getUsersByIds(ids);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return delegate.getAllUsers(after, limit);
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        CompletableFuture<Long> durable;
+        locks.lockBoth(userId, friendId);
+        try {
+            delegate.addFriend(userId, friendId);
+            durable = writeAheadLog.append(WalRecord.addFriend(userId, friendId));
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+        durable.join();
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        CompletableFuture<Long> durable;
+        locks.lockBoth(userId, friendId);
+        try {
+            delegate.removeFriend(userId, friendId);
+            durable = writeAheadLog.append(WalRecord.removeFriend(userId, friendId));
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+        durable.join();
+    }
+
+    @Override
+    public long getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return delegate.getFriendsCount();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+public enum FsyncPolicy {
+
+    /**
+     * Изменение подтверждается только после fsync. Записи, пришедшие одновременно, сбрасываются
+     * на диск одной пачкой (group commit).
+     */
+    ALWAYS,
+
+    /**
+     * Изменение подтверждается сразу после постановки в очередь, fsync выполняется по таймеру.
+     * При сбое питания теряется не больше одного интервала.
+     */
+    INTERVAL,
+
+    /**
+     * Запись в файл без fsync, сохранность на совести операционной системы.
+     */
+    NONE
+}
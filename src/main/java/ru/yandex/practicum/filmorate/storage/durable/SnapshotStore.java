@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимки состояния хранилищ. Снимок с номером N содержит всё, что было записано в сегменты журнала до N,
+ * поэтому при восстановлении после него достаточно проиграть сегменты начиная с N. Снимок пишется
+ * во временный файл и атомарно переименовывается, в конце лежит CRC32 всего содержимого.
+ */
+public final class SnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int MAGIC = 0x464C4D53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int PAGE_SIZE = 10_000;
+    private static final byte FILM_MARKER = 1;
+    private static final byte USER_MARKER = 2;
+    private static final byte END_MARKER = 0;
+
+    private SnapshotStore() {
+    }
+
+    public static void write(Path directory, long segment, InMemoryFilmStorage films, InMemoryUserStorage users)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path target = snapshotPath(directory, segment);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            long after = 0;
+            List<Film> filmPage = films.getAllFilms(after, PAGE_SIZE);
+            while (!filmPage.isEmpty()) {
+                for (Film film : filmPage) {
+                    out.writeByte(FILM_MARKER);
+                    BinaryCodec.writeFilm(out, film, true);
+                }
+                after = filmPage.get(filmPage.size() - 1).getId();
+                filmPage = films.getAllFilms(after, PAGE_SIZE);
+            }
+
+            after = 0;
+            List<User> userPage = users.getAllUsers(after, PAGE_SIZE);
+            while (!userPage.isEmpty()) {
+                for (User user : userPage) {
+                    out.writeByte(USER_MARKER);
+                    BinaryCodec.writeUser(out, user, true);
+                }
+                after = userPage.get(userPage.size() - 1).getId();
+                userPage = users.getAllUsers(after, PAGE_SIZE);
+            }
+
+            out.writeByte(END_MARKER);
+            out.flush();
+            long checksum = checked.getChecksum().getValue();
+            out.writeLong(checksum);
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void load(Path directory, long segment, InMemoryFilmStorage films, InMemoryUserStorage users)
+            throws IOException {
+        try (InputStream file = Files.newInputStream(snapshotPath(directory, segment))) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Неизвестный формат снимка " + snapshotPath(directory, segment));
+            }
+            while (true) {
+                byte marker = in.readByte();
+                if (marker == FILM_MARKER) {
+                    films.restoreFilm(BinaryCodec.readFilm(in, true));
+                } else if (marker == USER_MARKER) {
+                    users.restoreUser(BinaryCodec.readUser(in, true));
+                } else if (marker == END_MARKER) {
+                    break;
+                } else {
+                    throw new IOException("Повреждённый снимок " + snapshotPath(directory, segment));
+                }
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Контрольная сумма снимка не совпадает: " + snapshotPath(directory, segment));
+            }
+        }
+    }
+
+    public static OptionalLong latest(Path directory) throws IOException {
+        return list(directory).stream().mapToLong(Long::longValue).max();
+    }
+
+    public static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long existing : list(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(snapshotPath(directory, existing));
+            }
+        }
+    }
+
+    private static List<Long> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length())))
+                    .toList();
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%012d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Запись журнала. Для лайков и дружбы {@code first}/{@code second} — это пара id,
+ * для фильмов и пользователей заполнено соответствующее поле сущности.
+ */
+public record WalRecord(Type type, long first, long second, Film film, User user) {
+
+    public enum Type {
+        ADD_FILM,
+        UPDATE_FILM,
+        ADD_USER,
+        UPDATE_USER,
+        ADD_LIKE,
+        REMOVE_LIKE,
+        ADD_FRIEND,
+        REMOVE_FRIEND
+    }
+
+    public static WalRecord addFilm(Film film) {
+        return new WalRecord(Type.ADD_FILM, film.getId(), 0, film, null);
+    }
+
+    public static WalRecord updateFilm(Film film) {
+        return new WalRecord(Type.UPDATE_FILM, film.getId(), 0, film, null);
+    }
+
+    public static WalRecord addUser(User user) {
+        return new WalRecord(Type.ADD_USER, user.getId(), 0, null, user);
+    }
+
+    public static WalRecord updateUser(User user) {
+        return new WalRecord(Type.UPDATE_USER, user.getId(), 0, null, user);
+    }
+
+    public static WalRecord addLike(long filmId, long userId) {
+        return new WalRecord(Type.ADD_LIKE, filmId, userId, null, null);
+    }
+
+    public static WalRecord removeLike(long filmId, long userId) {
+        return new WalRecord(Type.REMOVE_LIKE, filmId, userId, null, null);
+    }
+
+    public static WalRecord addFriend(long userId, long friendId) {
+        return new WalRecord(Type.ADD_FRIEND, userId, friendId, null, null);
+    }
+
+    public static WalRecord removeFriend(long userId, long friendId) {
+        return new WalRecord(Type.REMOVE_FRIEND, userId, friendId, null, null);
+    }
+}
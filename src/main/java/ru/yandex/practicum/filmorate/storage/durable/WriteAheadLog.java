@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи. Вызывающие потоки только кладут записи в очередь, единственный поток-писатель
+ * забирает их пачками, пишет одним вызовом в текущий сегмент и, в зависимости от {@link FsyncPolicy},
+ * делает fsync на пачку целиком. Каждая запись хранится как {@code [длина][crc32][данные]},
+ * поэтому оборванный при сбое хвост сегмента при чтении просто отбрасывается.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final int MAX_BATCH = 4096;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final CompletableFuture<Long> NOT_AWAITED = CompletableFuture.completedFuture(0L);
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream(64 * 1024);
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(512);
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    private FileChannel channel;
+    private volatile long segment;
+
+    public WriteAheadLog(Path directory, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+                         long firstSegment, ThreadFactory threadFactory) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        openSegment(firstSegment);
+        this.writer = threadFactory.newThread(this::run);
+        this.writer.start();
+    }
+
+    /**
+     * Ставит запись в журнал. В режиме {@link FsyncPolicy#ALWAYS} возвращённый future завершается
+     * после fsync пачки, в остальных режимах он уже завершён.
+     */
+    public CompletableFuture<Long> append(WalRecord record) {
+        CompletableFuture<Long> durable = fsyncPolicy == FsyncPolicy.ALWAYS ? new CompletableFuture<>() : null;
+        enqueue(new Pending(record, durable));
+        return durable == null ? NOT_AWAITED : durable;
+    }
+
+    /**
+     * Закрывает текущий сегмент (с fsync) и начинает новый. Все записи, поставленные до вызова,
+     * оказываются в старых сегментах. Возвращает номер нового сегмента.
+     */
+    public long rotate() {
+        CompletableFuture<Long> rotated = new CompletableFuture<>();
+        enqueue(new Pending(null, rotated));
+        return rotated.join();
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Читает записи сегмента по порядку. Оборванная или повреждённая запись завершает чтение сегмента.
+     * Возвращает количество прочитанных записей.
+     */
+    public static long replay(Path directory, long segment, Consumer<WalRecord> consumer) throws IOException {
+        long records = 0;
+        CRC32 checksum = new CRC32();
+        try (InputStream file = Files.newInputStream(segmentPath(directory, segment));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    log.warn("Повреждённая запись в сегменте {} после {} записей, остаток сегмента пропущен",
+                            segment, records);
+                    break;
+                }
+                consumer.accept(BinaryCodec.readRecord(new DataInputStream(new ByteArrayInputStream(payload))));
+                records++;
+            }
+        }
+        return records;
+    }
+
+    public static void deleteSegmentsBefore(Path directory, long segment) throws IOException {
+        for (long existing : listSegments(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private void enqueue(Pending pending) {
+        if (failure != null) {
+            throw new IllegalStateException("Журнал недоступен для записи", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запись в журнал прервана", e);
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        List<CompletableFuture<Long>> awaiting = new ArrayList<>(MAX_BATCH);
+        long pollNanos = fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : IDLE_POLL_NANOS;
+        long lastSync = System.nanoTime();
+        boolean unsynced = false;
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                for (Pending pending : batch) {
+                    if (pending.record() == null) {
+                        flushBatch();
+                        channel.force(false);
+                        unsynced = false;
+                        complete(awaiting);
+                        openSegment(segment + 1);
+                        pending.done().complete(segment);
+                    } else {
+                        encode(pending.record());
+                        if (pending.done() != null) {
+                            awaiting.add(pending.done());
+                        }
+                    }
+                }
+                batch.clear();
+                unsynced |= flushBatch();
+                long now = System.nanoTime();
+                boolean syncDue = fsyncPolicy == FsyncPolicy.ALWAYS
+                        || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalNanos);
+                if (unsynced && syncDue) {
+                    channel.force(false);
+                    lastSync = now;
+                    unsynced = false;
+                }
+                complete(awaiting);
+            }
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.error("Ошибка записи журнала, дальнейшие изменения будут отклоняться", e);
+            failure = e;
+            awaiting.forEach(future -> future.completeExceptionally(e));
+            batch.forEach(pending -> failPending(pending, e));
+            queue.forEach(pending -> failPending(pending, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encode(WalRecord record) throws IOException {
+        recordBuffer.reset();
+        BinaryCodec.writeRecord(recordOutput, record);
+        recordOutput.flush();
+        byte[] payload = recordBuffer.toByteArray();
+        crc.reset();
+        crc.update(payload);
+        DataOutputStream frame = new DataOutputStream(batchBuffer);
+        frame.writeInt(payload.length);
+        frame.writeInt((int) crc.getValue());
+        frame.write(payload);
+    }
+
+    private boolean flushBatch() throws IOException {
+        if (batchBuffer.size() == 0) {
+            return false;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(batchBuffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        batchBuffer.reset();
+        return true;
+    }
+
+    private void openSegment(long number) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Files.createDirectories(directory);
+        channel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segment = number;
+    }
+
+    private static void complete(List<CompletableFuture<Long>> awaiting) {
+        for (CompletableFuture<Long> future : awaiting) {
+            future.complete(0L);
+        }
+        awaiting.clear();
+    }
+
+    private static void failPending(Pending pending, IOException e) {
+        if (pending.done() != null) {
+            pending.done().completeExceptionally(e);
+        }
+    }
+
+    private record Pending(WalRecord record, CompletableFuture<Long> done) {
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэширующий декоратор хранилища фильмов для медленных реализаций. Фильмы по id кэшируются с ограничением
+ * размера и временем жизни; после любого изменения фильм удаляется из кэша уже после записи в хранилище,
+ * а Caffeine дожидается идущей загрузки того же ключа, поэтому устаревшая копия в кэше не остаётся.
+ *
+ * <p>Списки популярных фильмов живут недолго и помечены номером версии данных на момент начала чтения.
+ * Каждое изменение увеличивает версию, и список, прочитанный до изменения, больше не отдаётся.
+ */
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final Cache<Long, Film> films;
+    private final Cache<Integer, VersionedFilms> popularFilms;
+    private final AtomicLong version = new AtomicLong();
+
+    public CachingFilmStorage(FilmStorage delegate, long maximumSize, Duration ttl, Duration popularTtl,
+                              MeterRegistry registry) {
+        this.delegate = delegate;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.popularFilms = Caffeine.newBuilder()
+                .maximumSize(1024)
+                .expireAfterWrite(popularTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, films, "filmorate.films");
+        CaffeineCacheMetrics.monitor(registry, popularFilms, "filmorate.films.popular");
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film added = delegate.addFilm(film);
+        version.incrementAndGet();
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        List<Film> added = delegate.addFilms(films);
+        version.incrementAndGet();
+        return added;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        try {
+            return delegate.updateFilm(film);
+        } finally {
+            changed(film.getId());
+        }
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return films.get(id, delegate::getFilmById);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return delegate.getAllFilms(after, limit);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        long current = version.get();
+        VersionedFilms cached = popularFilms.getIfPresent(count);
+        if (cached != null && cached.version() == current) {
+            return cached.films();
+        }
+        List<Film> loaded = List.copyOf(delegate.getPopularFilms(count));
+        popularFilms.put(count, new VersionedFilms(current, loaded));
+        return loaded;
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            changed(filmId);
+        }
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        try {
+            return delegate.addLikes(filmId, userIds);
+        } finally {
+            changed(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            changed(filmId);
+        }
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        try {
+            return delegate.removeLikes(filmId, userIds);
+        } finally {
+            changed(filmId);
+        }
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+
+    private void changed(long filmId) {
+        version.incrementAndGet();
+        films.invalidate(filmId);
+    }
+
+    private record VersionedFilms(long version, List<Film> films) {
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+
+/**
+ * Получатель изменений фильмов и лайков, которые прошли через {@link ListeningFilmStorage}. Вызывается
+ * после записи в хранилище под блокировкой фильма, поэтому изменения одного фильма приходят по порядку.
+ * Среди переданных пользователей могут быть те, для кого ничего не изменилось (лайк уже стоял или
+ * не ставился), а {@code changed} — сколько лайков изменилось на самом деле.
+ */
+public interface FilmListener {
+
+    /**
+     * Фильм добавлен или обновлён. Лайки нового фильма приходят следом отдельным {@link #likesAdded}.
+     */
+    default void filmSaved(Film film) {
+    }
+
+    default void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+    }
+
+    default void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+    }
+}
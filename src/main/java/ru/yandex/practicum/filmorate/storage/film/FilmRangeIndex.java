@@ -0,0 +1,290 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LazyIndex;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Упорядоченные индексы фильмов по дате выхода и продолжительности для выборок по диапазонам, а также по id
+ * и по популярности для постраничного обхода. Как и другие индексы рядом с хранилищем, строится постранично
+ * при первом обращении и дальше обновляется {@link ListeningFilmStorage}, в том числе когда обновление
+ * переносит фильм на другое значение ключа.
+ */
+public class FilmRangeIndex implements FilmListener {
+
+    private static final int MAX_INITIAL_CAPACITY = 1_024;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::value)
+            .thenComparingLong(key -> key.entry().filmId);
+    private static final Comparator<long[]> POPULAR_WORST_FIRST = Comparator.<long[]>comparingLong(hit -> hit[1])
+            .thenComparing(Comparator.<long[]>comparingLong(hit -> hit[0]).reversed());
+
+    private final LazyIndex<Tables> tables;
+
+    public FilmRangeIndex(BiFunction<Long, Integer, List<Film>> pageLoader) {
+        this.tables = new LazyIndex<>(() -> Tables.load(pageLoader));
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        Tables current = tables.loaded();
+        if (current != null) {
+            current.index(film, -1);
+        }
+    }
+
+    @Override
+    public void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+        addLikes(filmId, changed);
+    }
+
+    @Override
+    public void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+        addLikes(filmId, -changed);
+    }
+
+    /**
+     * Id фильмов из диапазонов фильтра. По id — возрастающие id больше {@code after}; по популярности —
+     * по убыванию лайков (при равенстве по id) начиная с места после фильма {@code after}, если он задан.
+     * <p>
+     * Страницу можно собрать двумя путями: идти по порядку сортировки с места после {@code after}, отбрасывая
+     * фильмы вне фильтра, или пройти диапазон целиком и выбрать из него первые. Оба пути идут по шагу
+     * по очереди, и ответ даёт тот, что закончится раньше: широкий фильтр быстро набирает страницу по порядку,
+     * узкий диапазон быстро кончается. Без фильтра страница читается прямо по порядку.
+     */
+    public long[] find(FilmFilter filter, FilmSort sort, long after, int limit) {
+        if (limit <= 0) {
+            return new long[0];
+        }
+        Tables current = tables.get();
+        Iterator<Long> ordered = sort == FilmSort.POPULAR
+                ? current.popularity.after(after)
+                : current.entries.tailMap(after, false).keySet().iterator();
+        List<Iterator<Key>> ranges = new ArrayList<>();
+        List<List<Key>> scanned = new ArrayList<>();
+        for (NavigableSet<Key> range : current.ranges(filter)) {
+            ranges.add(range.iterator());
+            scanned.add(new ArrayList<>());
+        }
+        Set<Long> seen = new HashSet<>();
+        List<Long> page = new ArrayList<>();
+        while (ordered.hasNext()) {
+            long filmId = ordered.next();
+            Entry entry = current.entries.get(filmId);
+            // При переносе фильма на новое место рейтинга он может встретиться дважды
+            if (entry != null && entry.matches(filter) && seen.add(filmId)) {
+                page.add(filmId);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+            for (int i = 0; i < ranges.size(); i++) {
+                if (!ranges.get(i).hasNext()) {
+                    return current.top(scanned.get(i), filter, sort, after, limit);
+                }
+                scanned.get(i).add(ranges.get(i).next());
+            }
+        }
+        return page.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void addLikes(long filmId, int delta) {
+        Tables current = tables.loaded();
+        if (current == null) {
+            return;
+        }
+        Entry entry = current.entries.get(filmId);
+        if (entry != null) {
+            // Изменения одного фильма приходят под его блокировкой, поэтому запись без гонок
+            entry.likes += delta;
+            current.popularity.adjust(filmId, delta);
+        }
+    }
+
+    private static long releaseDay(LocalDate date) {
+        return date == null ? NO_DATE : date.toEpochDay();
+    }
+
+    /**
+     * Текущие значения фильма. Меняются только под блокировкой фильма; ключ в индексе, значение которого
+     * уже не совпадает с текущим, считается устаревшим и пропускается.
+     */
+    private static final class Entry {
+
+        private final long filmId;
+        private volatile long releaseDay;
+        private volatile int duration;
+        private volatile long likes;
+
+        Entry(long filmId, long releaseDay, int duration, long likes) {
+            this.filmId = filmId;
+            this.releaseDay = releaseDay;
+            this.duration = duration;
+            this.likes = likes;
+        }
+
+        boolean matches(FilmFilter filter) {
+            long day = releaseDay;
+            if (filter.hasReleaseRange() && (day == NO_DATE
+                    || filter.releasedFrom() != null && day < filter.releasedFrom().toEpochDay()
+                    || filter.releasedTo() != null && day > filter.releasedTo().toEpochDay())) {
+                return false;
+            }
+            int minutes = duration;
+            return (filter.minDuration() == null || minutes >= filter.minDuration())
+                    && (filter.maxDuration() == null || minutes <= filter.maxDuration());
+        }
+    }
+
+    private record Key(long value, Entry entry, ToLongFunction<Entry> attribute) {
+
+        boolean isCurrent() {
+            return attribute.applyAsLong(entry) == value;
+        }
+    }
+
+    private static final class Tables {
+
+        private static final ToLongFunction<Entry> RELEASE = entry -> entry.releaseDay;
+        private static final ToLongFunction<Entry> DURATION = entry -> entry.duration;
+        private static final Entry LOWEST = new Entry(Long.MIN_VALUE, NO_DATE, 0, 0);
+        private static final Entry HIGHEST = new Entry(Long.MAX_VALUE, NO_DATE, 0, 0);
+
+        private final ConcurrentNavigableMap<Long, Entry> entries = new ConcurrentSkipListMap<>();
+        private final PopularityIndex popularity = new PopularityIndex();
+        private final NavigableSet<Key> byRelease = new ConcurrentSkipListSet<>(KEY_ORDER);
+        private final NavigableSet<Key> byDuration = new ConcurrentSkipListSet<>(KEY_ORDER);
+
+        static Tables load(BiFunction<Long, Integer, List<Film>> pageLoader) {
+            Tables tables = new Tables();
+            for (Film film : LazyIndex.scan(pageLoader, Film::getId)) {
+                tables.index(film, film.getLikedUsers().size());
+            }
+            return tables;
+        }
+
+        /**
+         * Новый ключ добавляется раньше, чем убирается старый: читатель не теряет фильм при переносе,
+         * а повтор отсеивается сверкой ключа с текущим значением.
+         *
+         * @param likes лайки фильма или {@code -1}, чтобы оставить прежние (новому фильму лайки придут следом)
+         */
+        void index(Film film, long likes) {
+            long day = releaseDay(film.getReleaseDate());
+            int duration = film.getDuration();
+            Entry entry = entries.get(film.getId());
+            if (entry == null) {
+                entry = new Entry(film.getId(), day, duration, Math.max(0, likes));
+                entries.put(film.getId(), entry);
+                popularity.add(film.getId(), entry.likes);
+                if (day != NO_DATE) {
+                    byRelease.add(new Key(day, entry, RELEASE));
+                }
+                byDuration.add(new Key(duration, entry, DURATION));
+                return;
+            }
+            long previousDay = entry.releaseDay;
+            if (day != previousDay) {
+                if (day != NO_DATE) {
+                    byRelease.add(new Key(day, entry, RELEASE));
+                }
+                entry.releaseDay = day;
+                byRelease.remove(new Key(previousDay, entry, RELEASE));
+            }
+            int previousDuration = entry.duration;
+            if (duration != previousDuration) {
+                byDuration.add(new Key(duration, entry, DURATION));
+                entry.duration = duration;
+                byDuration.remove(new Key(previousDuration, entry, DURATION));
+            }
+            if (likes >= 0) {
+                entry.likes = likes;
+                popularity.add(film.getId(), likes);
+            }
+        }
+
+        /**
+         * Диапазоны фильтра: ни одного, если фильтр пуст.
+         */
+        List<NavigableSet<Key>> ranges(FilmFilter filter) {
+            List<NavigableSet<Key>> ranges = new ArrayList<>(2);
+            if (filter.hasReleaseRange()) {
+                ranges.add(releaseRange(filter));
+            }
+            if (filter.hasDurationRange()) {
+                ranges.add(durationRange(filter));
+            }
+            return ranges;
+        }
+
+        /**
+         * Первые {@code limit} фильмов из пройденного целиком диапазона в порядке сортировки после {@code after}.
+         */
+        long[] top(List<Key> keys, FilmFilter filter, FilmSort sort, long after, int limit) {
+            Entry cursor = sort == FilmSort.POPULAR && after > 0 ? entries.get(after) : null;
+            long cursorLikes = cursor == null ? Long.MAX_VALUE : cursor.likes;
+            PriorityQueue<long[]> top = new PriorityQueue<>(Math.min(limit, MAX_INITIAL_CAPACITY) + 1,
+                    sort == FilmSort.POPULAR ? POPULAR_WORST_FIRST
+                            : Comparator.<long[]>comparingLong(hit -> hit[0]).reversed());
+            for (Key key : keys) {
+                Entry entry = key.entry();
+                if (!key.isCurrent() || !entry.matches(filter)) {
+                    continue;
+                }
+                long likes = entry.likes;
+                boolean afterCursor = sort == FilmSort.POPULAR
+                        ? cursor == null || likes < cursorLikes || likes == cursorLikes && entry.filmId > after
+                        : entry.filmId > after;
+                if (afterCursor) {
+                    top.add(new long[]{entry.filmId, likes});
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            long[] result = new long[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = top.poll()[0];
+            }
+            return result;
+        }
+
+        private NavigableSet<Key> releaseRange(FilmFilter filter) {
+            long from = filter.releasedFrom() == null ? NO_DATE + 1 : filter.releasedFrom().toEpochDay();
+            long to = filter.releasedTo() == null ? Long.MAX_VALUE : filter.releasedTo().toEpochDay();
+            return range(byRelease, from, to, RELEASE);
+        }
+
+        private NavigableSet<Key> durationRange(FilmFilter filter) {
+            long from = filter.minDuration() == null ? Long.MIN_VALUE : filter.minDuration();
+            long to = filter.maxDuration() == null ? Long.MAX_VALUE : filter.maxDuration();
+            return range(byDuration, from, to, DURATION);
+        }
+
+        private static NavigableSet<Key> range(NavigableSet<Key> index, long from, long to,
+                                               ToLongFunction<Entry> attribute) {
+            if (from > to) {
+                return new ConcurrentSkipListSet<>(KEY_ORDER);
+            }
+            return index.subSet(new Key(from, LOWEST, attribute), true, new Key(to, HIGHEST, attribute), true);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LazyIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Полнотекстовый поиск по названию и описанию фильмов: обратный индекс «слово → фильмы» со словарём,
+ * упорядоченным для поиска по префиксу. Как и индекс лайков, строится постранично при первом обращении
+ * и дальше обновляется {@link ListeningFilmStorage}.
+ *
+ * <p>Все слова запроса должны встретиться в фильме, последнее — хотя бы как начало слова, чтобы поиск
+ * работал при наборе. Вес совпадения зависит от редкости слова, совпадение в названии весит больше, чем
+ * в описании, а точное — больше, чем по префиксу; затем вес умножается на множитель от числа лайков.
+ */
+public class FilmSearchIndex implements FilmListener {
+
+    static final int CANDIDATE_BUDGET = 1_024;
+
+    private static final int MAX_EXPANSIONS = 64;
+    private static final double NAME_WEIGHT = 2;
+    private static final double PREFIX_WEIGHT = 0.75;
+
+    private final LazyIndex<Tables> tables;
+
+    public FilmSearchIndex(BiFunction<Long, Integer, List<Film>> pageLoader) {
+        this.tables = new LazyIndex<>(() -> Tables.load(pageLoader));
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        Tables current = tables.loaded();
+        if (current != null) {
+            current.index(film, -1);
+        }
+    }
+
+    @Override
+    public void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+        addLikes(filmId, changed);
+    }
+
+    @Override
+    public void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+        addLikes(filmId, -changed);
+    }
+
+    /**
+     * Id найденных фильмов по убыванию веса, при равенстве меньший id раньше.
+     *
+     * @param likeWeight насколько лайки поднимают фильм: вес совпадения умножается на
+     *                   {@code 1 + likeWeight * ln(1 + лайки)}, ноль — только релевантность текста
+     */
+    public long[] search(String query, int count, double likeWeight) {
+        List<String> tokens = tokens(query);
+        if (tokens.isEmpty() || count <= 0) {
+            return new long[0];
+        }
+        Tables current = tables.get();
+        List<Match> matches = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Match match = current.match(tokens.get(i), i == tokens.size() - 1);
+            if (match.frequency() == 0) {
+                return new long[0];
+            }
+            matches.add(match);
+        }
+        double films = Math.max(1, current.docs.size());
+        double[] rarity = new double[matches.size()];
+        for (int i = 0; i < rarity.length; i++) {
+            rarity[i] = Math.log(1 + films / matches.get(i).frequency());
+        }
+
+        // Кандидатов даёт самое редкое слово, остальные проверяются по словам самого фильма
+        Match driver = matches.stream().min(Comparator.comparingLong(Match::frequency)).orElseThrow();
+        PriorityQueue<Hit> top = new PriorityQueue<>(count + 1, Hit.WORST_FIRST);
+        int visited = 0;
+        for (Slice postings : driver.postings()) {
+            // Свежие фильмы просматриваются первыми: у частого слова весь список не укладывается в бюджет
+            for (int i = postings.size() - 1; i >= 0 && visited < CANDIDATE_BUDGET; i--, visited++) {
+                long filmId = postings.ids()[i];
+                Doc doc = current.docs.get(filmId);
+                double score = doc == null ? 0 : score(doc, matches, rarity);
+                if (score <= 0) {
+                    continue;
+                }
+                Hit hit = new Hit(filmId, score * (1 + likeWeight * Math.log1p(Math.max(0, doc.likes))));
+                // Повтор фильма в списке возможен после смены слов, пока список не вычищен; вес у повтора тот же
+                if ((top.size() < count || Hit.WORST_FIRST.compare(hit, top.peek()) > 0) && !top.contains(hit)) {
+                    top.add(hit);
+                    if (top.size() > count) {
+                        top.poll();
+                    }
+                }
+            }
+        }
+        long[] result = new long[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().filmId();
+        }
+        return result;
+    }
+
+    /**
+     * Слова текста в нижнем регистре без повторов: буквы любого алфавита и цифры, «ё» приравнивается к «е».
+     */
+    static List<String> tokens(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                int lower = Character.toLowerCase(codePoint);
+                token.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private void addLikes(long filmId, int delta) {
+        Tables current = tables.loaded();
+        if (current == null) {
+            return;
+        }
+        Doc doc = current.docs.get(filmId);
+        if (doc != null) {
+            // Изменения одного фильма приходят под его блокировкой, поэтому запись без гонок
+            doc.likes += delta;
+        }
+    }
+
+    private static double score(Doc doc, List<Match> matches, double[] rarity) {
+        double score = 0;
+        for (int i = 0; i < rarity.length; i++) {
+            double weight = doc.weight(matches.get(i));
+            if (weight == 0) {
+                return 0;
+            }
+            score += weight * rarity[i];
+        }
+        return score;
+    }
+
+    /**
+     * Слово запроса и совпавшие с ним слова словаря: номер точно совпавшего слова (или -1), номера слов,
+     * которые начинаются с него, в виде маленькой хэш-таблицы, их списки фильмов и сколько фильмов их содержат.
+     */
+    private record Match(int exact, boolean prefix, int[] terms, List<Slice> postings, long frequency) {
+
+        static int[] table(int[] terms) {
+            int[] table = new int[Integer.highestOneBit(Math.max(1, terms.length) * 2) << 1];
+            Arrays.fill(table, -1);
+            for (int term : terms) {
+                int slot = slot(term, table.length - 1);
+                while (table[slot] != -1) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = term;
+            }
+            return table;
+        }
+
+        boolean containsAny(int[] docTerms, int from, int to) {
+            int mask = terms.length - 1;
+            for (int i = from; i < to; i++) {
+                int term = docTerms[i];
+                for (int slot = slot(term, mask); terms[slot] != -1; slot = (slot + 1) & mask) {
+                    if (terms[slot] == term) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static int slot(int term, int mask) {
+            return (term * 0x9E3779B9 >>> 16) & mask;
+        }
+    }
+
+    private record Slice(long[] ids, int size) {
+    }
+
+    private record Hit(long filmId, double score) {
+
+        static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Comparator.comparingLong(Hit::filmId).reversed());
+    }
+
+    /**
+     * Слова одного фильма как номера слов словаря: сначала отсортированные слова названия, затем
+     * отсортированные слова, которые есть только в описании. Числа сравниваются быстрее строк,
+     * а один массив на фильм — меньше промахов кэша при проверке кандидатов.
+     */
+    private static final class Doc {
+
+        private final int[] terms;
+        private final int nameLength;
+        private volatile long likes;
+
+        Doc(int[] terms, int nameLength, long likes) {
+            this.terms = terms;
+            this.nameLength = nameLength;
+            this.likes = likes;
+        }
+
+        boolean contains(int term) {
+            return Arrays.binarySearch(terms, 0, nameLength, term) >= 0
+                    || Arrays.binarySearch(terms, nameLength, terms.length, term) >= 0;
+        }
+
+        double weight(Match match) {
+            double weight = weight(match, 0, nameLength);
+            return weight > 0 ? weight * NAME_WEIGHT : weight(match, nameLength, terms.length);
+        }
+
+        private double weight(Match match, int from, int to) {
+            if (match.exact() >= 0 && Arrays.binarySearch(terms, from, to, match.exact()) >= 0) {
+                return 1;
+            }
+            return match.prefix() && match.containsAny(terms, from, to) ? PREFIX_WEIGHT : 0;
+        }
+    }
+
+    /**
+     * Фильмы, в которых встречается слово. Список только дописывается: когда слово уходит из фильма,
+     * уменьшается лишь счётчик, а устаревшие записи вычищаются, когда их становится больше живых.
+     * Массив после записи не меняется, поэтому читатель берёт его вместе с длиной и читает без блокировки.
+     */
+    private static final class Postings {
+
+        private final int term;
+        private long[] ids = new long[4];
+        private int size;
+        private int live;
+
+        Postings(int term) {
+            this.term = term;
+        }
+
+        synchronized void add(long filmId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = filmId;
+            live++;
+        }
+
+        synchronized void remove(Map<Long, Doc> docs) {
+            live--;
+            if (size - live > Math.max(live, 16)) {
+                compact(docs);
+            }
+        }
+
+        synchronized int live() {
+            return live;
+        }
+
+        synchronized Slice snapshot() {
+            return new Slice(ids, size);
+        }
+
+        private void compact(Map<Long, Doc> docs) {
+            long[] kept = new long[Math.max(4, live)];
+            Set<Long> seen = new HashSet<>();
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                Doc doc = docs.get(ids[i]);
+                if (doc != null && doc.contains(term) && seen.add(ids[i])) {
+                    if (count == kept.length) {
+                        kept = Arrays.copyOf(kept, count * 2);
+                    }
+                    kept[count++] = ids[i];
+                }
+            }
+            ids = kept;
+            size = count;
+        }
+    }
+
+    private static final class Tables {
+
+        private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+        private final Map<String, Postings> terms = new ConcurrentHashMap<>();
+        private final ConcurrentNavigableMap<String, Postings> sortedTerms = new ConcurrentSkipListMap<>();
+        private final Map<Integer, Postings> termsById = new ConcurrentHashMap<>();
+        private final AtomicInteger nextTerm = new AtomicInteger();
+
+        static Tables load(BiFunction<Long, Integer, List<Film>> pageLoader) {
+            Tables tables = new Tables();
+            for (Film film : LazyIndex.scan(pageLoader, Film::getId)) {
+                tables.index(film, film.getLikedUsers().size());
+            }
+            return tables;
+        }
+
+        /**
+         * Индексирует новый или изменённый фильм. Сначала публикуется новый набор слов фильма, потом
+         * дописываются списки: чистка списка сверяется с фильмом и не выбросит ещё не дописанную запись.
+         *
+         * @param likes лайки фильма или {@code -1}, чтобы оставить прежние (новому фильму лайки придут следом)
+         */
+        void index(Film film, long likes) {
+            Doc previous = docs.get(film.getId());
+            List<String> nameTokens = tokens(film.getName());
+            Set<String> allTokens = new LinkedHashSet<>(nameTokens);
+            allTokens.addAll(tokens(film.getDescription()));
+
+            Map<String, Postings> postings = new HashMap<>();
+            for (String token : allTokens) {
+                postings.put(token, terms.computeIfAbsent(token, this::newPostings));
+            }
+            int[] name = nameTokens.stream().mapToInt(token -> postings.get(token).term).sorted().toArray();
+            int[] description = allTokens.stream().skip(name.length)
+                    .mapToInt(token -> postings.get(token).term).sorted().toArray();
+            int[] terms = Arrays.copyOf(name, name.length + description.length);
+            System.arraycopy(description, 0, terms, name.length, description.length);
+            long keptLikes = likes >= 0 ? likes : previous == null ? 0 : previous.likes;
+            Doc doc = new Doc(terms, name.length, keptLikes);
+            docs.put(film.getId(), doc);
+
+            for (Postings term : postings.values()) {
+                if (previous == null || !previous.contains(term.term)) {
+                    term.add(film.getId());
+                }
+            }
+            if (previous != null) {
+                for (int term : previous.terms) {
+                    if (!doc.contains(term)) {
+                        termsById.get(term).remove(docs);
+                    }
+                }
+            }
+        }
+
+        Match match(String token, boolean prefix) {
+            Postings exact = terms.get(token);
+            Collection<Postings> candidates = prefix
+                    ? sortedTerms.subMap(token, true, token + Character.MAX_VALUE, false).values()
+                    : exact == null ? List.of() : List.of(exact);
+            List<Slice> postings = new ArrayList<>();
+            int[] matched = new int[MAX_EXPANSIONS];
+            long frequency = 0;
+            for (Postings candidate : candidates) {
+                int live = candidate.live();
+                if (live > 0) {
+                    matched[postings.size()] = candidate.term;
+                    postings.add(candidate.snapshot());
+                    frequency += live;
+                    if (postings.size() == MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+            return new Match(exact == null ? -1 : exact.term, prefix, Match.table(Arrays.copyOf(matched, postings.size())),
+                    postings, frequency);
+        }
+
+        private Postings newPostings(String token) {
+            // Вызывается внутри computeIfAbsent хэш-таблицы, то есть один раз на слово
+            Postings postings = new Postings(nextTerm.getAndIncrement());
+            termsById.put(postings.term, postings);
+            sortedTerms.put(token, postings);
+            return postings;
+        }
+    }
+}
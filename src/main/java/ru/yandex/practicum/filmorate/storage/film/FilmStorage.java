@@ -2,17 +2,41 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    /**
+     * Добавляет несколько фильмов за один вызов, id выделяются подряд в порядке списка.
+     */
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film getFilmById(long id);
 
     List<Film> getAllFilms();
 
+    List<Film> getAllFilms(long after, int limit);
+
     List<Film> getPopularFilms(int count);
+
+    boolean addLike(long filmId, long userId);
+
+    /**
+     * Ставит фильму лайки от нескольких пользователей за один вызов, уже поставленные пропускаются.
+     * Возвращает количество добавленных лайков.
+     */
+    int addLikes(long filmId, Collection<Long> userIds);
+
+    boolean removeLike(long filmId, long userId);
+
+    int removeLikes(long filmId, Collection<Long> userIds);
+
+    long getFilmsCount();
+
+    long getLikesCount();
 }
@@ -1,53 +1,251 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+import ru.yandex.practicum.filmorate.util.Shards;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 
-@Component
+/**
+ * Фильмы в памяти. Хранятся неизменяемые версии: фильм с лайками не меняется после публикации, лайк
+ * публикует новую версию через compare-and-swap, а набор лайков ({@link PersistentLongSet}) делит с прежней
+ * версией почти всю структуру. Читатели, включая сериализацию и популярные фильмы, не берут блокировок
+ * и всегда видят целую версию.
+ *
+ * <p>Фильмы делятся по id на шарды (id n лежит в шарде n mod N) со своей картой и своим
+ * рейтингом: соседние id не спорят за одни и те же узлы, а сборщик мусора обходит несколько небольших
+ * структур вместо одной большой. Страницы и популярные фильмы читаются ленивым слиянием шардов ровно
+ * на нужную длину, а полный список собирается из шардов параллельно в пуле fork-join.
+ */
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
-    private long currentId = 1;
+    /**
+     * С какого числа просматриваемых фильмов обход шардов имеет смысл распараллеливать.
+     */
+    private static final int PARALLEL_THRESHOLD = 4_096;
+    private static final int PAGE_CAPACITY = 1_024;
+
+    private final Shard[] shards;
+    private final AtomicLong idGenerator = new AtomicLong(1);
+    private final LongAdder filmsCount = new LongAdder();
+    private final LongAdder likesCount = new LongAdder();
+
+    public InMemoryFilmStorage() {
+        this(1);
+    }
+
+    public InMemoryFilmStorage(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным");
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+    }
 
     @Override
     public Film addFilm(Film film) {
-        film.setId(currentId++);
-        films.put(film.getId(), film);
-        return film;
+        Film added = film.withId(idGenerator.getAndIncrement());
+        shard(added.getId()).put(added);
+        filmsCount.increment();
+        likesCount.add(added.getLikedUsers().size());
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> batch) {
+        long id = idGenerator.getAndAdd(batch.size());
+        long likes = 0;
+        List<Film> added = new ArrayList<>(batch.size());
+        for (Film film : batch) {
+            Film withId = film.withId(id++);
+            shard(withId.getId()).put(withId);
+            likes += withId.getLikedUsers().size();
+            added.add(withId);
+        }
+        filmsCount.add(batch.size());
+        likesCount.add(likes);
+        return added;
+    }
+
+    /**
+     * Резервирует {@code count} подряд идущих id и возвращает первый из них. Фильмы с этими id
+     * кладутся через {@link #restoreFilm} перед записью их добавления в журнал.
+     */
+    public long reserveIds(int count) {
+        return idGenerator.getAndAdd(count);
+    }
+
+    /**
+     * Кладёт фильм с уже известным id вместе с его лайками: при восстановлении состояния и перед записью
+     * в журнал добавления с id из {@link #reserveIds}.
+     */
+    public void restoreFilm(Film film) {
+        Film previous = shard(film.getId()).put(film);
+        idGenerator.accumulateAndGet(film.getId() + 1, Math::max);
+        if (previous == null) {
+            filmsCount.increment();
+        } else {
+            likesCount.add(-previous.getLikedUsers().size());
+        }
+        likesCount.add(film.getLikedUsers().size());
     }
 
     @Override
     public Film updateFilm(Film film) {
-        if (!films.containsKey(film.getId())) {
+        // Лайки меняются только через addLike/removeLike, поэтому при обновлении
+        // переносим текущий набор, иначе параллельно поставленный лайк потеряется
+        Film updated = shard(film.getId()).films.computeIfPresent(film.getId(),
+                (id, stored) -> film.withLikedUsers(stored.getLikedUsers()));
+        if (updated == null) {
             throw new ValidationException(String.format("Фильм с id = %d не найден", film.getId()));
         }
-        films.put(film.getId(), film);
-        return film;
+        return updated;
     }
 
     @Override
     public Film getFilmById(long id) {
-        return films.get(id);
+        return shard(id).films.get(id);
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(films.values());
+        List<List<Film>> parts = Shards.map(shards, shard -> new ArrayList<>(shard.films.values()),
+                filmsCount.sum() >= PARALLEL_THRESHOLD);
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        List<Film> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        Shards.mergeByKey(parts.stream().map(List::iterator).toList(), Film::getId).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        Iterator<Film> films = Shards.mergeByKey(Arrays.stream(shards)
+                .map(shard -> shard.films.tailMap(after, false).values().iterator())
+                .toList(), Film::getId);
+        List<Film> result = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+        while (result.size() < limit && films.hasNext()) {
+            result.add(films.next());
+        }
+        return result;
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        return films.values().stream()
-                .sorted(Comparator.comparingLong((Film film) -> film.getLikedUsers().size()).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+        Iterator<PopularityIndex.Entry> ranking = Shards.merge(Arrays.stream(shards)
+                .map(shard -> shard.popularity.entries())
+                .toList(), PopularityIndex.ORDER);
+        List<Film> result = new ArrayList<>(Math.min(count, PAGE_CAPACITY));
+        Set<Long> seen = new HashSet<>();
+        while (result.size() < count && ranking.hasNext()) {
+            long filmId = ranking.next().filmId();
+            Film film = getFilmById(filmId);
+            if (film != null && seen.add(filmId)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        Shard shard = shard(filmId);
+        if (!shard.update(filmId, likes -> likes.with(userId))) {
+            return false;
+        }
+        likesCount.increment();
+        shard.popularity.adjust(filmId, 1);
+        return true;
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        int added = 0;
+        for (Long userId : userIds) {
+            if (addLike(filmId, userId)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        Shard shard = shard(filmId);
+        if (!shard.update(filmId, likes -> likes.without(userId))) {
+            return false;
+        }
+        likesCount.decrement();
+        shard.popularity.adjust(filmId, -1);
+        return true;
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        int removed = 0;
+        for (Long userId : userIds) {
+            if (removeLike(filmId, userId)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return filmsCount.sum();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return likesCount.sum();
+    }
+
+    private Shard shard(long filmId) {
+        return shards[Shards.index(filmId, shards.length)];
+    }
+
+    private static final class Shard {
+
+        private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+        private final PopularityIndex popularity = new PopularityIndex();
+
+        Film put(Film film) {
+            Film stored = film.withLikedUsers(PersistentLongSet.copyOf(film.getLikedUsers()));
+            Film previous = films.put(stored.getId(), stored);
+            popularity.add(stored.getId(), stored.getLikedUsers().size());
+            return previous;
+        }
+
+        /**
+         * Публикует новую версию фильма с изменёнными лайками. Возвращает {@code false}, если фильма нет
+         * или набор лайков не изменился. {@code computeIfPresent} у {@link ConcurrentSkipListMap} не блокирует:
+         * он меняет значение узла через compare-and-swap и при гонке вызывает функцию заново с новой версией.
+         */
+        boolean update(long filmId, UnaryOperator<PersistentLongSet> change) {
+            boolean[] changed = new boolean[1];
+            films.computeIfPresent(filmId, (id, current) -> {
+                PersistentLongSet likes = PersistentLongSet.copyOf(current.getLikedUsers());
+                PersistentLongSet updated = change.apply(likes);
+                changed[0] = updated != likes;
+                return current.withLikedUsers(updated);
+            });
+            return changed[0];
+        }
     }
 }
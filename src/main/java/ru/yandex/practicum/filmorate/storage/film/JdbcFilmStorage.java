@@ -0,0 +1,281 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.MutableLongSet;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Хранилище фильмов в реляционной БД. Число лайков хранится в колонке {@code like_count}, которая меняется
+ * в одной транзакции с {@code film_likes}, поэтому популярные фильмы читаются по индексу без агрегации.
+ * Лайки для списка фильмов загружаются одним запросом на весь список.
+ */
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String FILM_COLUMNS = "id, name, description, release_date, duration";
+
+    private static final String INSERT_FILM = "INSERT INTO films (name, description, release_date, duration) "
+            + "VALUES (:name, :description, :releaseDate, :duration)";
+
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) "
+            + "SELECT :filmId, :userId FROM films f "
+            + "WHERE f.id = :filmId AND EXISTS (SELECT 1 FROM users u WHERE u.id = :userId) "
+            + "AND NOT EXISTS (SELECT 1 FROM film_likes l WHERE l.film_id = :filmId AND l.user_id = :userId)";
+
+    private static final RowMapper<Film> FILM_MAPPER = (rs, rowNum) -> {
+        Date releaseDate = rs.getDate("release_date");
+        return Film.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate == null ? null : releaseDate.toLocalDate())
+                .duration(rs.getInt("duration"))
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public JdbcFilmStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        List<Film> added = transactions.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbc.update(INSERT_FILM, filmParameters(film), keyHolder, new String[]{"id"});
+            List<Film> withId = List.of(film.withId(Objects.requireNonNull(keyHolder.getKey()).longValue()));
+            insertLikedUsers(withId);
+            return withId;
+        });
+        return withLikes(Objects.requireNonNull(added)).get(0);
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        SqlParameterSource[] batch = films.stream()
+                .map(JdbcFilmStorage::filmParameters)
+                .toArray(SqlParameterSource[]::new);
+        List<Film> added = transactions.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbc.batchUpdate(INSERT_FILM, batch, keyHolder, new String[]{"id"});
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            List<Film> withIds = new ArrayList<>(films.size());
+            for (int i = 0; i < films.size(); i++) {
+                withIds.add(films.get(i).withId(((Number) keys.get(i).values().iterator().next()).longValue()));
+            }
+            insertLikedUsers(withIds);
+            return withIds;
+        });
+        return withLikes(Objects.requireNonNull(added));
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        int updated = jdbc.update("UPDATE films SET name = :name, description = :description, "
+                + "release_date = :releaseDate, duration = :duration WHERE id = :id", filmParameters(film));
+        if (updated == 0) {
+            throw new ValidationException(String.format("Фильм с id = %d не найден", film.getId()));
+        }
+        return film.withLikedUsers(loadLikes(List.of(film.getId())).get(film.getId()));
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        List<Film> films = jdbc.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id = :id",
+                Map.of("id", id), FILM_MAPPER);
+        return withLikes(films).stream().findFirst().orElse(null);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        List<Film> rows = jdbc.query("SELECT " + FILM_COLUMNS + " FROM films ORDER BY id", FILM_MAPPER);
+        List<Film> films = new ArrayList<>(rows.size());
+        Map<Long, MutableLongSet> likes = new HashMap<>();
+        for (Film film : rows) {
+            CompactLongSet likedUsers = new CompactLongSet();
+            films.add(film.withLikedUsers(likedUsers));
+            likes.put(film.getId(), likedUsers);
+        }
+        jdbc.getJdbcTemplate().query("SELECT film_id, user_id FROM film_likes", rs -> {
+            MutableLongSet likedUsers = likes.get(rs.getLong("film_id"));
+            if (likedUsers != null) {
+                likedUsers.add(rs.getLong("user_id"));
+            }
+        });
+        return films;
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return withLikes(jdbc.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id > :after ORDER BY id LIMIT :limit",
+                Map.of("after", after, "limit", limit), FILM_MAPPER));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return withLikes(jdbc.query("SELECT " + FILM_COLUMNS + " FROM films "
+                + "ORDER BY like_count DESC, id LIMIT :count", Map.of("count", count), FILM_MAPPER));
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return addLikes(filmId, List.of(userId)) == 1;
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        SqlParameterSource[] batch = likeParameters(filmId, userIds);
+        try {
+            Integer added = transactions.execute(status -> {
+                int inserted = 0;
+                for (int count : jdbc.batchUpdate(INSERT_LIKE, batch)) {
+                    inserted += Math.max(count, 0);
+                }
+                if (inserted > 0) {
+                    jdbc.update("UPDATE films SET like_count = like_count + :delta WHERE id = :filmId",
+                            Map.of("delta", inserted, "filmId", filmId));
+                }
+                return inserted;
+            });
+            return added == null ? 0 : added;
+        } catch (DuplicateKeyException e) {
+            // Параллельная вставка того же лайка: пачка откатана целиком, повторяем по одному
+            return userIds.size() == 1 ? 0 : userIds.stream().mapToInt(userId -> addLike(filmId, userId) ? 1 : 0).sum();
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return removeLikes(filmId, List.of(userId)) == 1;
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        SqlParameterSource[] batch = likeParameters(filmId, userIds);
+        Integer removed = transactions.execute(status -> {
+            int deleted = 0;
+            for (int count : jdbc.batchUpdate("DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId",
+                    batch)) {
+                deleted += Math.max(count, 0);
+            }
+            if (deleted > 0) {
+                jdbc.update("UPDATE films SET like_count = like_count - :delta WHERE id = :filmId",
+                        Map.of("delta", deleted, "filmId", filmId));
+            }
+            return deleted;
+        });
+        return removed == null ? 0 : removed;
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return count("SELECT COUNT(*) FROM films");
+    }
+
+    @Override
+    public long getLikesCount() {
+        return count("SELECT COALESCE(SUM(like_count), 0) FROM films");
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.getJdbcTemplate().queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, MutableLongSet> likes = loadLikes(films.stream().map(Film::getId).toList());
+        List<Film> result = new ArrayList<>(films.size());
+        for (Film film : films) {
+            result.add(film.withLikedUsers(likes.get(film.getId())));
+        }
+        return result;
+    }
+
+    private Map<Long, MutableLongSet> loadLikes(Collection<Long> filmIds) {
+        Map<Long, MutableLongSet> likes = new HashMap<>();
+        for (Long filmId : filmIds) {
+            likes.put(filmId, new CompactLongSet());
+        }
+        jdbc.query("SELECT film_id, user_id FROM film_likes WHERE film_id IN (:ids)", Map.of("ids", filmIds),
+                rs -> {
+                    likes.get(rs.getLong("film_id")).add(rs.getLong("user_id"));
+                });
+        return likes;
+    }
+
+    /**
+     * Лайки новых фильмов одной пачкой вместе с их счётчиками; вызывается в транзакции вставки фильмов,
+     * чтобы фильмы не сохранились без своих лайков.
+     */
+    private void insertLikedUsers(List<Film> films) {
+        List<SqlParameterSource> likes = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getLikedUsers() != null) {
+                for (long userId : film.getLikedUsers().toLongArray()) {
+                    likes.add(new MapSqlParameterSource("filmId", film.getId()).addValue("userId", userId));
+                }
+            }
+        }
+        if (likes.isEmpty()) {
+            return;
+        }
+        int[] counts = jdbc.batchUpdate(INSERT_LIKE, likes.toArray(SqlParameterSource[]::new));
+        Map<Long, Integer> inserted = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.merge((Long) likes.get(i).getValue("filmId"), counts[i], Integer::sum);
+            }
+        }
+        jdbc.batchUpdate("UPDATE films SET like_count = like_count + :delta WHERE id = :filmId",
+                inserted.entrySet().stream()
+                        .map(entry -> new MapSqlParameterSource("filmId", entry.getKey())
+                                .addValue("delta", entry.getValue()))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
+    private static SqlParameterSource[] likeParameters(long filmId, Collection<Long> userIds) {
+        return userIds.stream()
+                .map(userId -> new MapSqlParameterSource("filmId", filmId).addValue("userId", userId))
+                .toArray(SqlParameterSource[]::new);
+    }
+
+    private static MapSqlParameterSource filmParameters(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("id", film.getId())
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("releaseDate", film.getReleaseDate())
+                .addValue("duration", film.getDuration());
+    }
+}
@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LazyIndex;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongCounter;
+import ru.yandex.practicum.filmorate.util.LongSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Лайки в обе стороны: фильмы каждого пользователя и пользователи каждого фильма. Индекс лежит рядом
+ * с хранилищем, строится постранично из фильмов при первом обращении и дальше обновляется
+ * {@link ListeningFilmStorage}. Пока идёт загрузка, запись ждёт её окончания и применяется поверх,
+ * поэтому лайк, поставленный во время загрузки, не теряется.
+ *
+ * <p>По индексу считаются рекомендации: пользователи с наибольшим пересечением лайков и фильмы,
+ * которые нравятся им, но ещё не лайкнуты самим пользователем.
+ */
+public class LikeIndex implements FilmListener {
+
+    static final int SAMPLE_SIZE = 256;
+
+    private static final int VISIT_BUDGET = 1 << 16;
+    private static final int NEIGHBOURS = 50;
+    private static final int VISITS_PER_TASK = 8_192;
+    private static final int HEAVY_USER_LIKES = 100;
+    private static final int CACHED_RECOMMENDATIONS = 50;
+    private static final double RARITY_SCALE = 1024;
+
+    private final Cache<Long, long[]> heavyUsers;
+    private final LazyIndex<Tables> tables;
+
+    public LikeIndex(BiFunction<Long, Integer, List<Film>> pageLoader) {
+        this(pageLoader, 10_000, Duration.ofMinutes(1));
+    }
+
+    /**
+     * @param cacheSize сколько пользователей с большим числом лайков держать в кэше рекомендаций
+     * @param cacheTtl  время жизни рекомендаций в кэше; свои лайки пользователя сбрасывают их сразу
+     */
+    public LikeIndex(BiFunction<Long, Integer, List<Film>> pageLoader, long cacheSize, Duration cacheTtl) {
+        this.tables = new LazyIndex<>(() -> Tables.load(pageLoader));
+        this.heavyUsers = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Фильмы, которые лайкнул пользователь: неизменяемый снимок, который не меняется вместе с индексом.
+     */
+    public LongSet films(long userId) {
+        Likes films = tables.get().filmsByUser.get(userId);
+        return films == null ? PersistentLongSet.empty() : films.snapshot();
+    }
+
+    @Override
+    public void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+        Tables current = tables.loaded();
+        if (current == null) {
+            return;
+        }
+        Likes users = current.usersByFilm.computeIfAbsent(filmId, id -> new Likes());
+        for (Long userId : userIds) {
+            users.add(userId);
+            current.filmsByUser.computeIfAbsent(userId, id -> new Likes()).add(filmId);
+            heavyUsers.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+        Tables current = tables.loaded();
+        if (current == null) {
+            return;
+        }
+        Likes users = current.usersByFilm.get(filmId);
+        for (Long userId : userIds) {
+            if (users != null) {
+                users.remove(userId);
+            }
+            Likes films = current.filmsByUser.get(userId);
+            if (films != null) {
+                films.remove(filmId);
+            }
+            heavyUsers.invalidate(userId);
+        }
+    }
+
+    /**
+     * Рекомендованные фильмы по убыванию веса (при равенстве — по id). Сначала ищутся {@link #NEIGHBOURS}
+     * пользователей с наибольшим пересечением лайков, где общий фильм весит тем меньше, чем он популярнее,
+     * затем их фильмы взвешиваются этим пересечением. У популярных фильмов и активных пользователей
+     * просматривается только выборка из {@link #SAMPLE_SIZE} элементов, а у пользователя с очень большим
+     * числом лайков — равномерная часть его фильмов, так что запрос укладывается в {@link #VISIT_BUDGET}.
+     * Большие проходы делятся между потоками общего пула, рекомендации активных пользователей кэшируются.
+     */
+    public long[] recommendations(long userId, int count) {
+        Tables current = tables.get();
+        Likes own = current.filmsByUser.get(userId);
+        if (own == null || own.size() == 0 || count <= 0) {
+            return new long[0];
+        }
+        long[] liked = own.all.toLongArray();
+        if (liked.length < HEAVY_USER_LIKES || count > CACHED_RECOMMENDATIONS) {
+            return recommend(current, userId, liked, count);
+        }
+        long[] cached = heavyUsers.get(userId, id -> recommend(current, id, liked, CACHED_RECOMMENDATIONS));
+        return Arrays.copyOf(cached, Math.min(count, cached.length));
+    }
+
+    private static long[] recommend(Tables current, long userId, long[] liked, int count) {
+        int expanded = Math.min(liked.length, VISIT_BUDGET / SAMPLE_SIZE);
+        LongCounter overlap = count(expanded, (long) expanded * SAMPLE_SIZE, (counter, i) -> {
+            Likes users = current.usersByFilm.get(liked[(int) ((long) i * liked.length / expanded)]);
+            if (users != null) {
+                long weight = rarity(users.size());
+                for (long other : users.sample()) {
+                    if (other != userId) {
+                        counter.add(other, weight);
+                    }
+                }
+            }
+        });
+
+        long[][] neighbours = overlap.topEntries(NEIGHBOURS);
+        LongCounter scores = count(neighbours.length, (long) neighbours.length * SAMPLE_SIZE, (counter, i) -> {
+            Likes films = current.filmsByUser.get(neighbours[i][0]);
+            if (films != null) {
+                for (long film : films.sample()) {
+                    if (Arrays.binarySearch(liked, film) < 0) {
+                        counter.add(film, neighbours[i][1]);
+                    }
+                }
+            }
+        });
+        return scores.top(count);
+    }
+
+    /**
+     * Считает проход по {@code items} элементам: небольшой в текущем потоке, крупный — частями
+     * в общем пуле, у каждой части свой счётчик, в конце они складываются.
+     */
+    private static LongCounter count(int items, long visits, ObjIntConsumer<LongCounter> visit) {
+        int parts = (int) Math.min(Math.min(items, ForkJoinPool.getCommonPoolParallelism()),
+                Math.max(1, visits / VISITS_PER_TASK));
+        if (parts <= 1) {
+            LongCounter counter = new LongCounter();
+            for (int i = 0; i < items; i++) {
+                visit.accept(counter, i);
+            }
+            return counter;
+        }
+        return IntStream.range(0, parts)
+                .parallel()
+                .mapToObj(part -> {
+                    LongCounter counter = new LongCounter();
+                    int to = (int) ((long) (part + 1) * items / parts);
+                    for (int i = (int) ((long) part * items / parts); i < to; i++) {
+                        visit.accept(counter, i);
+                    }
+                    return counter;
+                })
+                .reduce((first, second) -> {
+                    first.addAll(second);
+                    return first;
+                })
+                .orElseGet(LongCounter::new);
+    }
+
+    /**
+     * Вес общего фильма: чем больше у фильма лайков, тем меньше он говорит о сходстве вкусов.
+     */
+    private static long rarity(int likes) {
+        return Math.round(RARITY_SCALE / (Math.log(2 + likes) / Math.log(2)));
+    }
+
+    /**
+     * Перемешивание битов id; взаимно однозначно, поэтому у разных id хеши не совпадают.
+     */
+    static long hash(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Лайки одного фильма или одного пользователя. Пока их не больше {@link #SAMPLE_SIZE}, выборкой
+     * служит само множество; дальше рядом поддерживаются элементы с наименьшими хешами (bottom-k),
+     * то есть равномерная выборка, согласованная между множествами: пользователь, попавший в выборку
+     * одного фильма, попадает и в выборки других, поэтому пересечения по выборкам сохраняются.
+     * Удаление из выборки её уменьшает, и когда она становится вдвое меньше, она пересобирается.
+     */
+    static final class Likes {
+
+        private final CompactLongSet all = new CompactLongSet();
+        private long[] hashes;
+        private long[] ids;
+        private int sampled;
+
+        synchronized void add(long id) {
+            if (!all.add(id)) {
+                return;
+            }
+            if (hashes == null) {
+                if (all.size() > SAMPLE_SIZE) {
+                    rebuild();
+                }
+                return;
+            }
+            long hash = hash(id);
+            if (hash >= hashes[sampled - 1]) {
+                // Хеш не меньше наибольшего в выборке, и она по-прежнему состоит из наименьших хешей
+                return;
+            }
+            int position = -Arrays.binarySearch(hashes, 0, sampled, hash) - 1;
+            int moved = Math.min(sampled, SAMPLE_SIZE - 1) - position;
+            System.arraycopy(hashes, position, hashes, position + 1, moved);
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            hashes[position] = hash;
+            ids[position] = id;
+            sampled = Math.min(sampled + 1, SAMPLE_SIZE);
+        }
+
+        synchronized void remove(long id) {
+            if (!all.remove(id) || hashes == null) {
+                return;
+            }
+            if (all.size() <= SAMPLE_SIZE) {
+                hashes = null;
+                ids = null;
+                sampled = 0;
+                return;
+            }
+            int position = Arrays.binarySearch(hashes, 0, sampled, hash(id));
+            if (position >= 0) {
+                System.arraycopy(hashes, position + 1, hashes, position, sampled - position - 1);
+                System.arraycopy(ids, position + 1, ids, position, sampled - position - 1);
+                sampled--;
+                if (sampled < SAMPLE_SIZE / 2) {
+                    rebuild();
+                }
+            }
+        }
+
+        int size() {
+            return all.size();
+        }
+
+        synchronized PersistentLongSet snapshot() {
+            return PersistentLongSet.copyOf(all);
+        }
+
+        synchronized long[] sample() {
+            return hashes == null ? all.toLongArray() : Arrays.copyOf(ids, sampled);
+        }
+
+        private void rebuild() {
+            long[] values = all.toLongArray();
+            long[] sorted = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                sorted[i] = hash(values[i]);
+            }
+            Arrays.sort(sorted);
+            long threshold = sorted[SAMPLE_SIZE - 1];
+            hashes = Arrays.copyOf(sorted, SAMPLE_SIZE);
+            ids = new long[SAMPLE_SIZE];
+            for (long value : values) {
+                long hash = hash(value);
+                if (hash <= threshold) {
+                    ids[Arrays.binarySearch(hashes, hash)] = value;
+                }
+            }
+            sampled = SAMPLE_SIZE;
+        }
+    }
+
+    private record Tables(Map<Long, Likes> filmsByUser, Map<Long, Likes> usersByFilm) {
+
+        static Tables load(BiFunction<Long, Integer, List<Film>> pageLoader) {
+            Tables tables = new Tables(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+            for (Film film : LazyIndex.scan(pageLoader, Film::getId)) {
+                Likes users = new Likes();
+                for (long userId : film.getLikedUsers().toLongArray()) {
+                    users.add(userId);
+                    tables.filmsByUser.computeIfAbsent(userId, id -> new Likes()).add(film.getId());
+                }
+                tables.usersByFilm.put(film.getId(), users);
+            }
+            return tables;
+        }
+    }
+}
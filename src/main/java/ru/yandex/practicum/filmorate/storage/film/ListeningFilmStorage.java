@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.LockStripes;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор хранилища фильмов, который сообщает об изменениях слушателям: индексам лайков и поиска, трендам.
+ * Запись в хранилище и уведомление идут под блокировкой фильма, поэтому для каждой пары слушатели видят
+ * действия в том же порядке, что и хранилище.
+ */
+public class ListeningFilmStorage implements FilmStorage {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final FilmStorage delegate;
+    private final List<FilmListener> listeners;
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public ListeningFilmStorage(FilmStorage delegate, List<FilmListener> listeners) {
+        this.delegate = delegate;
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film added = delegate.addFilm(film);
+        created(added);
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        List<Film> added = delegate.addFilms(films);
+        added.forEach(this::created);
+        return added;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        locks.lock(film.getId());
+        try {
+            Film updated = delegate.updateFilm(film);
+            saved(updated);
+            return updated;
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return delegate.getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return delegate.getAllFilms(after, limit);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        locks.lock(filmId);
+        try {
+            boolean added = delegate.addLike(filmId, userId);
+            if (added) {
+                added(filmId, List.of(userId), 1);
+            }
+            return added;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        locks.lock(filmId);
+        try {
+            // Ненулевой результат значит, что фильм есть; нулевой — что менять нечего
+            int added = delegate.addLikes(filmId, userIds);
+            if (added > 0) {
+                added(filmId, userIds, added);
+            }
+            return added;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        locks.lock(filmId);
+        try {
+            boolean removed = delegate.removeLike(filmId, userId);
+            if (removed) {
+                removed(filmId, List.of(userId), 1);
+            }
+            return removed;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        locks.lock(filmId);
+        try {
+            int removed = delegate.removeLikes(filmId, userIds);
+            if (removed > 0) {
+                removed(filmId, userIds, removed);
+            }
+            return removed;
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+
+    private void created(Film film) {
+        locks.lock(film.getId());
+        try {
+            saved(film);
+            if (!film.getLikedUsers().isEmpty()) {
+                added(film.getId(), film.getLikedUsers(), film.getLikedUsers().size());
+            }
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    private void saved(Film film) {
+        for (FilmListener listener : listeners) {
+            listener.filmSaved(film);
+        }
+    }
+
+    private void added(long filmId, Collection<Long> userIds, int changed) {
+        for (FilmListener listener : listeners) {
+            listener.likesAdded(filmId, userIds, changed);
+        }
+    }
+
+    private void removed(long filmId, Collection<Long> userIds, int changed) {
+        for (FilmListener listener : listeners) {
+            listener.likesRemoved(filmId, userIds, changed);
+        }
+    }
+}
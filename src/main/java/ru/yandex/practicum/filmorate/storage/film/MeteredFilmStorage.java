@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Декоратор хранилища фильмов, который замеряет время каждого метода и публикует размеры хранилища.
+ * Таймеры создаются один раз, поэтому на пути записи лайка нет поиска метрик в реестре.
+ */
+public class MeteredFilmStorage implements FilmStorage {
+
+    private static final String TIMER_NAME = "filmorate.storage.operation";
+
+    private final FilmStorage delegate;
+    private final Timer addFilmTimer;
+    private final Timer addFilmsTimer;
+    private final Timer updateFilmTimer;
+    private final Timer getFilmByIdTimer;
+    private final Timer getAllFilmsTimer;
+    private final Timer getPopularFilmsTimer;
+    private final Timer addLikeTimer;
+    private final Timer addLikesTimer;
+    private final Timer removeLikeTimer;
+    private final Timer removeLikesTimer;
+
+    public MeteredFilmStorage(FilmStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.addFilmTimer = timer(registry, "addFilm");
+        this.addFilmsTimer = timer(registry, "addFilms");
+        this.updateFilmTimer = timer(registry, "updateFilm");
+        this.getFilmByIdTimer = timer(registry, "getFilmById");
+        this.getAllFilmsTimer = timer(registry, "getAllFilms");
+        this.getPopularFilmsTimer = timer(registry, "getPopularFilms");
+        this.addLikeTimer = timer(registry, "addLike");
+        this.addLikesTimer = timer(registry, "addLikes");
+        this.removeLikeTimer = timer(registry, "removeLike");
+        this.removeLikesTimer = timer(registry, "removeLikes");
+
+        Gauge.builder("filmorate.films.count", delegate, FilmStorage::getFilmsCount)
+                .description("Количество фильмов в хранилище")
+                .register(registry);
+        Gauge.builder("filmorate.likes.count", delegate, FilmStorage::getLikesCount)
+                .description("Суммарное количество лайков")
+                .register(registry);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return addFilmTimer.record(() -> delegate.addFilm(film));
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return addFilmsTimer.record(() -> delegate.addFilms(films));
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        return updateFilmTimer.record(() -> delegate.updateFilm(film));
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return getFilmByIdTimer.record(() -> delegate.getFilmById(id));
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return getAllFilmsTimer.record(() -> delegate.getAllFilms());
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return getAllFilmsTimer.record(() -> delegate.getAllFilms(after, limit));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getPopularFilmsTimer.record(() -> delegate.getPopularFilms(count));
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            addLikeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addLikes(filmId, userIds);
+        } finally {
+            addLikesTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            removeLikeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.removeLikes(filmId, userIds);
+        } finally {
+            removeLikesTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+
+    private static Timer timer(MeterRegistry registry, String method) {
+        return Timer.builder(TIMER_NAME)
+                .tag("storage", "film")
+                .tag("method", method)
+                .register(registry);
+    }
+}
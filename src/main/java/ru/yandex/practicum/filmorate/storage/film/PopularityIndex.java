@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Рейтинг фильмов по числу лайков, который обновляется на каждом лайке, а не пересчитывается на чтении.
+ * Порядок совпадает с прежней сортировкой: больше лайков — выше, при равенстве меньший id раньше.
+ */
+public class PopularityIndex {
+
+    static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Long> likeCounts = new ConcurrentHashMap<>();
+
+    public void add(long filmId, long likes) {
+        likeCounts.compute(filmId, (id, previous) -> {
+            ranking.add(new Entry(likes, filmId));
+            if (previous != null && previous != likes) {
+                ranking.remove(new Entry(previous, filmId));
+            }
+            return likes;
+        });
+    }
+
+    public void adjust(long filmId, long delta) {
+        likeCounts.computeIfPresent(filmId, (id, previous) -> {
+            long likes = previous + delta;
+            // Сначала вставляем новую позицию, потом убираем старую: читатель может увидеть фильм дважды,
+            // но никогда не потеряет его, дубликаты отбрасываются в top()
+            ranking.add(new Entry(likes, filmId));
+            ranking.remove(new Entry(previous, filmId));
+            return likes;
+        });
+    }
+
+    /**
+     * Меняет счётчик фильма, заводя его при необходимости; фильм с нулевым счётчиком из рейтинга убирается.
+     */
+    public void increment(long filmId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        likeCounts.compute(filmId, (id, previous) -> {
+            long likes = (previous == null ? 0 : previous) + delta;
+            if (likes != 0) {
+                ranking.add(new Entry(likes, filmId));
+            }
+            if (previous != null) {
+                ranking.remove(new Entry(previous, filmId));
+            }
+            return likes == 0 ? null : likes;
+        });
+    }
+
+    public int size() {
+        return likeCounts.size();
+    }
+
+    public long getLikes(long filmId) {
+        return likeCounts.getOrDefault(filmId, 0L);
+    }
+
+    public List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.max(0, count));
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (seen.add(entry.filmId())) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Id фильмов по рейтингу начиная с места после фильма {@code filmId}, или с начала, если его нет в рейтинге.
+     * Место находится поиском по списку, а не обходом от начала. Пока фильм переносится на новое место,
+     * он может встретиться дважды.
+     */
+    public Iterator<Long> after(long filmId) {
+        Long likes = likeCounts.get(filmId);
+        Set<Entry> tail = likes == null ? ranking : ranking.tailSet(new Entry(likes, filmId), false);
+        return tail.stream().map(Entry::filmId).iterator();
+    }
+
+    /**
+     * Позиции рейтинга по порядку. Пока фильм переносится на новое место, он может встретиться дважды.
+     */
+    Iterator<Entry> entries() {
+        return ranking.iterator();
+    }
+
+    record Entry(long likes, long filmId) {
+    }
+}
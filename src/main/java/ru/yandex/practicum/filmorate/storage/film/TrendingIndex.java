@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Тренды: сколько лайков фильм набрал за последние окна времени (час, сутки, неделя). Каждое окно делится
+ * на корзины; лайк попадает в текущую корзину и сразу в рейтинг окна, а когда корзина выходит за окно,
+ * её счётчики вычитаются из рейтинга. Снятый лайк считается отрицательным событием текущей корзины.
+ *
+ * <p>Память ограничена числом корзин на число фильмов, лайкнутых за окно, и не растёт вместе с числом
+ * событий. Сдвиг окон делает фоновый поток по одной корзине, без общей блокировки: запись и чтение
+ * в это время продолжаются.
+ */
+@Slf4j
+public class TrendingIndex implements FilmListener, Closeable {
+
+    private static final long MAX_ROLL_INTERVAL_MILLIS = 1_000;
+
+    private final Map<Duration, Window> windows;
+    private final Clock clock;
+    private ScheduledExecutorService roller;
+
+    /**
+     * @param windows размеры окон
+     * @param buckets на сколько корзин делится каждое окно, то есть с какой точностью оно сдвигается
+     */
+    public TrendingIndex(Collection<Duration> windows, int buckets, Clock clock) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Число корзин должно быть положительным");
+        }
+        Map<Duration, Window> byDuration = new LinkedHashMap<>();
+        long now = clock.millis();
+        for (Duration window : windows) {
+            long bucketMillis = window.toMillis() / buckets;
+            if (bucketMillis <= 0) {
+                throw new IllegalArgumentException("Окно " + window + " слишком мало для " + buckets + " корзин");
+            }
+            byDuration.put(window, new Window(bucketMillis, buckets, now));
+        }
+        this.windows = Collections.unmodifiableMap(byDuration);
+        this.clock = clock;
+    }
+
+    public void start(ThreadFactory threadFactory) {
+        long interval = windows.values().stream()
+                .mapToLong(window -> window.bucketMillis)
+                .min()
+                .orElse(MAX_ROLL_INTERVAL_MILLIS);
+        interval = Math.min(interval, MAX_ROLL_INTERVAL_MILLIS);
+        roller = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        roller.scheduleWithFixedDelay(this::rollQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Set<Duration> getWindows() {
+        return windows.keySet();
+    }
+
+    @Override
+    public void likesAdded(long filmId, Collection<Long> userIds, int changed) {
+        for (Window window : windows.values()) {
+            window.add(filmId, changed);
+        }
+    }
+
+    @Override
+    public void likesRemoved(long filmId, Collection<Long> userIds, int changed) {
+        for (Window window : windows.values()) {
+            window.add(filmId, -changed);
+        }
+    }
+
+    /**
+     * Фильмы с наибольшим приростом лайков за окно, при равенстве меньший id раньше. Фильмы, которые
+     * за окно больше потеряли лайков, чем набрали, в тренды не попадают.
+     */
+    public List<Long> top(Duration window, int count) {
+        PopularityIndex ranking = window(window).ranking;
+        return ranking.top(count).stream()
+                .filter(filmId -> ranking.getLikes(filmId) > 0)
+                .toList();
+    }
+
+    public long getLikes(Duration window, long filmId) {
+        return window(window).ranking.getLikes(filmId);
+    }
+
+    /**
+     * Сдвигает окна до текущего времени. Если сдвига давно не было, выходят сразу все пропущенные корзины.
+     */
+    void roll() {
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.roll(now);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (roller != null) {
+            roller.shutdownNow();
+        }
+    }
+
+    private Window window(Duration window) {
+        Window result = windows.get(window);
+        if (result == null) {
+            throw new IllegalArgumentException("Окно " + window + " не поддерживается");
+        }
+        return result;
+    }
+
+    private void rollQuietly() {
+        try {
+            roll();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сдвинуть окна трендов", e);
+        }
+    }
+
+    /**
+     * Окно из {@code buckets} полных корзин и текущей, которая ещё заполняется. Кольцо на одну корзину
+     * больше окна, поэтому вычитается корзина, в которую уже целый интервал никто не пишет.
+     */
+    private static final class Window {
+
+        private final long bucketMillis;
+        private final Bucket[] ring;
+        private final PopularityIndex ranking = new PopularityIndex();
+        private volatile Bucket current;
+        private long epoch;
+
+        Window(long bucketMillis, int buckets, long now) {
+            this.bucketMillis = bucketMillis;
+            this.ring = new Bucket[buckets + 1];
+            this.epoch = now / bucketMillis;
+            this.current = new Bucket();
+            ring[slot(epoch)] = current;
+        }
+
+        void add(long filmId, long delta) {
+            current.add(filmId, delta);
+            ranking.increment(filmId, delta);
+        }
+
+        void roll(long now) {
+            long target = now / bucketMillis;
+            // После долгого простоя достаточно пройти кольцо один раз: все корзины в нём уже устарели
+            long from = Math.max(epoch, target - ring.length);
+            for (long next = from + 1; next <= target; next++) {
+                int slot = slot(next);
+                Bucket expired = ring[slot];
+                Bucket fresh = new Bucket();
+                ring[slot] = fresh;
+                current = fresh;
+                if (expired != null) {
+                    expired.counts.forEach((filmId, likes) -> ranking.increment(filmId, -likes.sum()));
+                }
+            }
+            epoch = Math.max(epoch, target);
+        }
+
+        private int slot(long epoch) {
+            return (int) (epoch % ring.length);
+        }
+    }
+
+    private static final class Bucket {
+
+        private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+        void add(long filmId, long delta) {
+            counts.computeIfAbsent(filmId, id -> new LongAdder()).add(delta);
+        }
+    }
+}
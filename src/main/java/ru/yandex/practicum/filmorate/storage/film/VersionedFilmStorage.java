@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор хранилища фильмов, который увеличивает версии после каждой записи. Лайк меняет
+ * и фильм, и поставившего его пользователя, поэтому увеличиваются версии обоих.
+ */
+public class VersionedFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final StorageVersions versions;
+
+    public VersionedFilmStorage(FilmStorage delegate, StorageVersions versions) {
+        this.delegate = delegate;
+        this.versions = versions;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        try {
+            return delegate.addFilm(film);
+        } finally {
+            versions.filmAdded();
+        }
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        try {
+            return delegate.addFilms(films);
+        } finally {
+            versions.filmAdded();
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        try {
+            return delegate.updateFilm(film);
+        } finally {
+            versions.filmChanged(film.getId());
+        }
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return delegate.getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        return delegate.getAllFilms(after, limit);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            liked(filmId, List.of(userId));
+        }
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        try {
+            return delegate.addLikes(filmId, userIds);
+        } finally {
+            liked(filmId, userIds);
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            liked(filmId, List.of(userId));
+        }
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        try {
+            return delegate.removeLikes(filmId, userIds);
+        } finally {
+            liked(filmId, userIds);
+        }
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+
+    private void liked(long filmId, Collection<Long> userIds) {
+        versions.filmChanged(filmId);
+        for (Long userId : userIds) {
+            versions.userChanged(userId);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Открывает файл каталога и создаёт поверх него хранилища. При закрытии текущее состояние,
+ * если это включено, сохраняется обратно в тот же файл.
+ */
+@Slf4j
+public class MappedCatalog implements Closeable {
+
+    private final Path file;
+    private final boolean saveOnClose;
+    private final MappedSnapshot snapshot;
+    private final MappedFilmStorage filmStorage;
+    private final MappedUserStorage userStorage;
+
+    public MappedCatalog(Path file, boolean saveOnClose) throws IOException {
+        this.file = file;
+        this.saveOnClose = saveOnClose;
+        long started = System.nanoTime();
+        if (!Files.exists(file)) {
+            MappedSnapshot.write(file, new InMemoryFilmStorage(), new InMemoryUserStorage());
+        }
+        snapshot = MappedSnapshot.open(file);
+        filmStorage = new MappedFilmStorage(snapshot);
+        userStorage = new MappedUserStorage(snapshot);
+        log.info("Каталог {} открыт за {} мс: фильмов {}, пользователей {}", file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                snapshot.getFilmCount(), snapshot.getUserCount());
+    }
+
+    public MappedFilmStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public MappedUserStorage getUserStorage() {
+        return userStorage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (saveOnClose) {
+                long started = System.nanoTime();
+                MappedSnapshot.write(file, filmStorage, userStorage);
+                log.info("Каталог сохранён в {} за {} мс", file,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        } finally {
+            snapshot.close();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.MutableLongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранилище фильмов поверх {@link MappedSnapshot}. Чтение идёт прямо из отображённого файла, фильм
+ * переносится в память только при первом изменении или обращении по id. Индекс популярности строится
+ * из индекса снимка при первом изменении лайков, до этого популярные фильмы берутся из готового порядка в файле.
+ */
+public class MappedFilmStorage implements FilmStorage {
+
+    private final MappedSnapshot snapshot;
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final AtomicLong idGenerator;
+    private final LongAdder filmsCount = new LongAdder();
+    private final LongAdder likesCount = new LongAdder();
+    private final ReentrantLock popularityIndexLock = new ReentrantLock();
+    private volatile PopularityIndex popularityIndex;
+
+    public MappedFilmStorage(MappedSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.idGenerator = new AtomicLong(snapshot.getMaxFilmId() + 1);
+        filmsCount.add(snapshot.getFilmCount());
+        likesCount.add(snapshot.getLikesCount());
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        PopularityIndex index = popularityIndex();
+        Film added = withId(film, idGenerator.getAndIncrement());
+        films.put(added.getId(), added);
+        filmsCount.increment();
+        likesCount.add(added.getLikedUsers().size());
+        index.add(added.getId(), added.getLikedUsers().size());
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> batch) {
+        PopularityIndex index = popularityIndex();
+        long id = idGenerator.getAndAdd(batch.size());
+        long likes = 0;
+        List<Film> added = new ArrayList<>(batch.size());
+        for (Film film : batch) {
+            Film stored = withId(film, id++);
+            films.put(stored.getId(), stored);
+            likes += stored.getLikedUsers().size();
+            index.add(stored.getId(), stored.getLikedUsers().size());
+            added.add(stored);
+        }
+        filmsCount.add(batch.size());
+        likesCount.add(likes);
+        return added;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        hydrate(film.getId());
+        Film updated = films.computeIfPresent(film.getId(),
+                (id, stored) -> film.withLikedUsers(stored.getLikedUsers()));
+        if (updated == null) {
+            throw new ValidationException(String.format("Фильм с id = %d не найден", film.getId()));
+        }
+        return updated;
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        return hydrate(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return getAllFilms(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getAllFilms(long after, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, 1024));
+        int position = snapshot.findFilm(after);
+        position = position >= 0 ? position + 1 : -position - 1;
+        for (; position < snapshot.getFilmCount() && result.size() < limit; position++) {
+            Film hydrated = films.get(snapshot.filmId(position));
+            result.add(hydrated != null ? hydrated : snapshot.readFilm(position));
+        }
+        long addedAfter = Math.max(after, snapshot.getMaxFilmId());
+        for (Film film : films.tailMap(addedAfter, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(film);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        PopularityIndex index = popularityIndex;
+        if (index != null) {
+            return index.top(count).stream()
+                    .map(this::hydrate)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+        int size = Math.min(count, snapshot.getFilmCount());
+        List<Film> result = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            result.add(hydrate(snapshot.popularFilmId(rank)));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        PopularityIndex index = popularityIndex();
+        Film film = hydrate(filmId);
+        if (film == null || !likedUsers(film).add(userId)) {
+            return false;
+        }
+        likesCount.increment();
+        index.adjust(filmId, 1);
+        return true;
+    }
+
+    @Override
+    public int addLikes(long filmId, Collection<Long> userIds) {
+        int added = 0;
+        for (Long userId : userIds) {
+            if (addLike(filmId, userId)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        PopularityIndex index = popularityIndex();
+        Film film = hydrate(filmId);
+        if (film == null || !likedUsers(film).remove(userId)) {
+            return false;
+        }
+        likesCount.decrement();
+        index.adjust(filmId, -1);
+        return true;
+    }
+
+    @Override
+    public int removeLikes(long filmId, Collection<Long> userIds) {
+        int removed = 0;
+        for (Long userId : userIds) {
+            if (removeLike(filmId, userId)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return filmsCount.sum();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return likesCount.sum();
+    }
+
+    private Film hydrate(long id) {
+        Film film = films.get(id);
+        if (film != null || id > snapshot.getMaxFilmId()) {
+            return film;
+        }
+        int position = snapshot.findFilm(id);
+        if (position < 0) {
+            return null;
+        }
+        return films.computeIfAbsent(id, key -> snapshot.readFilm(position));
+    }
+
+    private PopularityIndex popularityIndex() {
+        PopularityIndex index = popularityIndex;
+        if (index == null) {
+            // ReentrantLock, а не synchronized: чтение индекса может ждать подкачки страниц файла,
+            // и виртуальный поток не должен на это время занимать поток-носитель
+            popularityIndexLock.lock();
+            try {
+                index = popularityIndex;
+                if (index == null) {
+                    index = new PopularityIndex();
+                    for (int i = 0; i < snapshot.getFilmCount(); i++) {
+                        index.add(snapshot.filmId(i), snapshot.filmLikes(i));
+                    }
+                    popularityIndex = index;
+                }
+            } finally {
+                popularityIndexLock.unlock();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Новый фильм с выделенным id и собственной копией лайков, которую дальше меняют addLike и removeLike.
+     */
+    private static Film withId(Film film, long id) {
+        return film.toBuilder()
+                .id(id)
+                .likedUsers(new CompactLongSet(film.getLikedUsers()))
+                .build();
+    }
+
+    /**
+     * Лайки фильмов этого хранилища всегда лежат в его собственном {@link CompactLongSet}.
+     */
+    private static MutableLongSet likedUsers(Film film) {
+        return (MutableLongSet) film.getLikedUsers();
+    }
+}
@@ -0,0 +1,404 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Двоичный снимок каталога, который открывается через отображение файла в память и читается без разбора
+ * всего файла. Формат:
+ * <pre>
+ * заголовок (64 байта): magic, версия, число фильмов, пользователей, лайков и дружб,
+ *                       смещения индекса фильмов, индекса пользователей и порядка популярности
+ * записи фильмов и пользователей
+ * индекс фильмов:       [id][смещение записи][число лайков] по возрастанию id
+ * индекс пользователей: [id][смещение записи] по возрастанию id
+ * порядок популярности: id фильмов по убыванию числа лайков
+ * </pre>
+ * Поиск по id идёт бинарным поиском по индексу, сама запись разбирается только при обращении к ней.
+ */
+public final class MappedSnapshot implements Closeable {
+
+    private static final int MAGIC = 0x464C4D4D;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int FILM_ENTRY_SIZE = 3 * Long.BYTES;
+    private static final int USER_ENTRY_SIZE = 2 * Long.BYTES;
+    private static final int PAGE_SIZE = 10_000;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final MappedRegion region;
+    private final int filmCount;
+    private final int userCount;
+    private final long likesCount;
+    private final long friendsCount;
+    private final long filmIndex;
+    private final long userIndex;
+    private final long popularOrder;
+
+    private MappedSnapshot(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC || region.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Неизвестный формат снимка каталога");
+        }
+        filmCount = Math.toIntExact(region.getLong(8));
+        userCount = Math.toIntExact(region.getLong(16));
+        likesCount = region.getLong(24);
+        friendsCount = region.getLong(32);
+        filmIndex = region.getLong(40);
+        userIndex = region.getLong(48);
+        popularOrder = region.getLong(56);
+        if (popularOrder + (long) filmCount * Long.BYTES > region.size()) {
+            throw new IOException("Снимок каталога обрезан");
+        }
+    }
+
+    public static MappedSnapshot open(Path file) throws IOException {
+        MappedRegion region = new MappedRegion(file);
+        try {
+            return new MappedSnapshot(region);
+        } catch (IOException | RuntimeException e) {
+            region.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет содержимое хранилищ в файл. Файл пишется рядом во временный и атомарно переименовывается,
+     * поэтому уже открытые отображения старого файла остаются корректными.
+     */
+    public static void write(Path file, FilmStorage films, UserStorage users) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = parent.resolve(file.getFileName() + ".tmp");
+        Entries filmEntries = new Entries(3);
+        Entries userEntries = new Entries(2);
+        long likes = 0;
+        long friends = 0;
+        long filmIndexOffset;
+        long userIndexOffset;
+        long popularOffset;
+        try (PositionOutputStream position = new PositionOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+             DataOutputStream out = new DataOutputStream(position)) {
+            out.write(new byte[HEADER_SIZE]);
+
+            long after = 0;
+            List<Film> filmPage = films.getAllFilms(after, PAGE_SIZE);
+            while (!filmPage.isEmpty()) {
+                for (Film film : filmPage) {
+                    long[] likedUsers = film.getLikedUsers().toLongArray();
+                    filmEntries.add(film.getId(), position.position, likedUsers.length);
+                    likes += likedUsers.length;
+                    out.writeLong(film.getId());
+                    writeString(out, film.getName());
+                    writeString(out, film.getDescription());
+                    writeDate(out, film.getReleaseDate());
+                    out.writeInt(film.getDuration());
+                    writeIds(out, likedUsers);
+                }
+                after = filmPage.get(filmPage.size() - 1).getId();
+                filmPage = films.getAllFilms(after, PAGE_SIZE);
+            }
+
+            after = 0;
+            List<User> userPage = users.getAllUsers(after, PAGE_SIZE);
+            while (!userPage.isEmpty()) {
+                for (User user : userPage) {
+                    long[] userFriends = user.getFriends().toLongArray();
+                    userEntries.add(user.getId(), position.position);
+                    friends += userFriends.length;
+                    out.writeLong(user.getId());
+                    writeString(out, user.getEmail());
+                    writeString(out, user.getLogin());
+                    writeString(out, user.getName());
+                    writeDate(out, user.getBirthday());
+                    writeIds(out, userFriends);
+                    writeIds(out, user.getLikedFilms().toLongArray());
+                }
+                after = userPage.get(userPage.size() - 1).getId();
+                userPage = users.getAllUsers(after, PAGE_SIZE);
+            }
+
+            filmIndexOffset = position.position;
+            for (int i = 0; i < filmEntries.size; i++) {
+                out.writeLong(filmEntries.get(i, 0));
+                out.writeLong(filmEntries.get(i, 1));
+                out.writeLong(filmEntries.get(i, 2));
+            }
+            userIndexOffset = position.position;
+            for (int i = 0; i < userEntries.size; i++) {
+                out.writeLong(userEntries.get(i, 0));
+                out.writeLong(userEntries.get(i, 1));
+            }
+            popularOffset = position.position;
+            for (long id : popularOrder(filmEntries)) {
+                out.writeLong(id);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(filmEntries.size)
+                .putLong(userEntries.size)
+                .putLong(likes)
+                .putLong(friends)
+                .putLong(filmIndexOffset)
+                .putLong(userIndexOffset)
+                .putLong(popularOffset)
+                .flip();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public int getFilmCount() {
+        return filmCount;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    public long getLikesCount() {
+        return likesCount;
+    }
+
+    public long getFriendsCount() {
+        return friendsCount;
+    }
+
+    public long getMaxFilmId() {
+        return filmCount == 0 ? 0 : filmId(filmCount - 1);
+    }
+
+    public long getMaxUserId() {
+        return userCount == 0 ? 0 : userId(userCount - 1);
+    }
+
+    public long filmId(int index) {
+        return region.getLong(filmIndex + (long) index * FILM_ENTRY_SIZE);
+    }
+
+    public int filmLikes(int index) {
+        return (int) region.getLong(filmIndex + (long) index * FILM_ENTRY_SIZE + 2 * Long.BYTES);
+    }
+
+    public long popularFilmId(int rank) {
+        return region.getLong(popularOrder + (long) rank * Long.BYTES);
+    }
+
+    /**
+     * Позиция фильма в индексе или, как в {@link Arrays#binarySearch(long[], long)}, {@code -(точка вставки) - 1}.
+     */
+    public int findFilm(long id) {
+        return search(filmIndex, FILM_ENTRY_SIZE, filmCount, id);
+    }
+
+    public Film readFilm(int index) {
+        Cursor cursor = new Cursor(region.getLong(filmIndex + (long) index * FILM_ENTRY_SIZE + Long.BYTES));
+        return Film.builder()
+                .id(cursor.readLong())
+                .name(cursor.readString())
+                .description(cursor.readString())
+                .releaseDate(cursor.readDate())
+                .duration(cursor.readInt())
+                .likedUsers(cursor.readIds())
+                .build();
+    }
+
+    public long userId(int index) {
+        return region.getLong(userIndex + (long) index * USER_ENTRY_SIZE);
+    }
+
+    public int findUser(long id) {
+        return search(userIndex, USER_ENTRY_SIZE, userCount, id);
+    }
+
+    public User readUser(int index) {
+        Cursor cursor = new Cursor(region.getLong(userIndex + (long) index * USER_ENTRY_SIZE + Long.BYTES));
+        return User.builder()
+                .id(cursor.readLong())
+                .email(cursor.readString())
+                .login(cursor.readString())
+                .name(cursor.readString())
+                .birthday(cursor.readDate())
+                .friends(cursor.readIds())
+                .likedFilms(cursor.readIds())
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        region.close();
+    }
+
+    private int search(long index, int entrySize, int count, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = region.getLong(index + (long) middle * entrySize);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static long[] popularOrder(Entries films) {
+        // Ключ: инвертированное число лайков в старших битах, позиция в индексе (то есть порядок id) в младших
+        long[] keys = new long[films.size];
+        for (int i = 0; i < films.size; i++) {
+            keys[i] = ((Integer.MAX_VALUE - films.get(i, 2)) << 32) | i;
+        }
+        Arrays.sort(keys);
+        long[] ids = new long[films.size];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = films.get((int) keys[i], 0);
+        }
+        return ids;
+    }
+
+    private static void writeIds(DataOutputStream out, long[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private final class Cursor {
+
+        private long position;
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        private int readInt() {
+            int value = region.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        private long readLong() {
+            long value = region.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        private String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            String value = region.getString(position, length);
+            position += length;
+            return value;
+        }
+
+        private LocalDate readDate() {
+            long epochDay = readLong();
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        private LongSet readIds() {
+            int size = readInt();
+            CompactLongSet ids = new CompactLongSet();
+            for (int i = 0; i < size; i++) {
+                ids.add(readLong());
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Строки индекса фиксированной ширины, накапливаемые при записи в одном растущем массиве.
+     */
+    private static final class Entries {
+
+        private final int width;
+        private long[] values = new long[1024];
+        private int size;
+
+        private Entries(int width) {
+            this.width = width;
+        }
+
+        private void add(long... row) {
+            if ((size + 1) * width > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            System.arraycopy(row, 0, values, size * width, width);
+            size++;
+        }
+
+        private long get(int row, int column) {
+            return values[row * width + column];
+        }
+    }
+
+    private static final class PositionOutputStream extends FilterOutputStream {
+
+        private long position;
+
+        private PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.MutableLongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Хранилище пользователей поверх {@link MappedSnapshot}, пользователь переносится в память при первом
+ * изменении или обращении по id.
+ */
+public class MappedUserStorage implements UserStorage {
+
+    private final MappedSnapshot snapshot;
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicLong idGenerator;
+    private final LongAdder usersCount = new LongAdder();
+    private final LongAdder friendsCount = new LongAdder();
+
+    public MappedUserStorage(MappedSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.idGenerator = new AtomicLong(snapshot.getMaxUserId() + 1);
+        usersCount.add(snapshot.getUserCount());
+        friendsCount.add(snapshot.getFriendsCount());
+    }
+
+    @Override
+    public User addUser(User user) {
+        User added = withId(user, idGenerator.getAndIncrement());
+        users.put(added.getId(), added);
+        usersCount.increment();
+        friendsCount.add(added.getFriends().size());
+        return added;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> batch) {
+        long id = idGenerator.getAndAdd(batch.size());
+        long friends = 0;
+        List<User> added = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            User stored = withId(user, id++);
+            users.put(stored.getId(), stored);
+            friends += stored.getFriends().size();
+            added.add(stored);
+        }
+        usersCount.add(batch.size());
+        friendsCount.add(friends);
+        return added;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        hydrate(user.getId());
+        User updated = users.computeIfPresent(user.getId(), (id, stored) -> user.toBuilder()
+                .friends(stored.getFriends())
+                .likedFilms(stored.getLikedFilms())
+                .build());
+        if (updated == null) {
+            throw new ValidationException(String.format("Пользователь с id = %d не найден", user.getId()));
+        }
+        return updated;
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return hydrate(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = hydrate(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return getAllUsers(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        List<User> result = new ArrayList<>(Math.min(limit, 1024));
+        int position = snapshot.findUser(after);
+        position = position >= 0 ? position + 1 : -position - 1;
+        for (; position < snapshot.getUserCount() && result.size() < limit; position++) {
+            User hydrated = users.get(snapshot.userId(position));
+            result.add(hydrated != null ? hydrated : snapshot.readUser(position));
+        }
+        long addedAfter = Math.max(after, snapshot.getMaxUserId());
+        for (User user : users.tailMap(addedAfter, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(user);
+        }
+        return result;
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        User user = hydrate(userId);
+        User friend = hydrate(friendId);
+        if (user == null || friend == null) {
+            return;
+        }
+        if (friends(user).add(friendId)) {
+            friendsCount.increment();
+        }
+        if (friends(friend).add(userId)) {
+            friendsCount.increment();
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        User user = hydrate(userId);
+        User friend = hydrate(friendId);
+        if (user == null || friend == null) {
+            return;
+        }
+        if (friends(user).remove(friendId)) {
+            friendsCount.decrement();
+        }
+        if (friends(friend).remove(userId)) {
+            friendsCount.decrement();
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return usersCount.sum();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return friendsCount.sum();
+    }
+
+    private User hydrate(long id) {
+        User user = users.get(id);
+        if (user != null || id > snapshot.getMaxUserId()) {
+            return user;
+        }
+        int position = snapshot.findUser(id);
+        if (position < 0) {
+            return null;
+        }
+        return users.computeIfAbsent(id, key -> snapshot.readUser(position));
+    }
+
+    /**
+     * Новый пользователь с выделенным id и собственными копиями друзей и лайков.
+     */
+    private static User withId(User user, long id) {
+        return user.toBuilder()
+                .id(id)
+                .friends(new CompactLongSet(user.getFriends()))
+                .likedFilms(new CompactLongSet(user.getLikedFilms()))
+                .build();
+    }
+
+    /**
+     * Друзья пользователей этого хранилища всегда лежат в его собственном {@link CompactLongSet}.
+     */
+    private static MutableLongSet friends(User user) {
+        return (MutableLongSet) user.getFriends();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэширующий декоратор хранилища пользователей. Пакетное чтение берёт из кэша найденных пользователей,
+ * а остальных загружает одним вызовом {@link UserStorage#getUsersByIds}. Изменение пользователя
+ * или дружбы удаляет из кэша обоих участников после записи в хранилище.
+ *
+ * <p>Пакетная загрузка в Caffeine не блокирует ключи, поэтому загруженные пользователи кладутся в кэш,
+ * только если с начала загрузки не было ни одного изменения. Проверка и вставка выполняются атомарно
+ * для ключа, как и удаление при изменении, так что устаревшая копия в кэше не задерживается.
+ */
+public class CachingUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final Cache<Long, User> users;
+    private final AtomicLong version = new AtomicLong();
+
+    public CachingUserStorage(UserStorage delegate, long maximumSize, Duration ttl, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, users, "filmorate.users");
+    }
+
+    @Override
+    public User addUser(User user) {
+        return delegate.addUser(user);
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return delegate.updateUser(user);
+        } finally {
+            changed(user.getId());
+        }
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return users.get(id, delegate::getUserById);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        Map<Long, User> found = new HashMap<>(users.getAllPresent(ids));
+        if (found.size() < ids.size()) {
+            long loadVersion = version.get();
+            List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+            for (User user : delegate.getUsersByIds(missing)) {
+                found.put(user.getId(), user);
+                users.asMap().computeIfAbsent(user.getId(), id -> version.get() == loadVersion ? user : null);
+            }
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return delegate.getAllUsers(after, limit);
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            changed(userId, friendId);
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            changed(userId, friendId);
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return delegate.getFriendsCount();
+    }
+
+    private void changed(long... ids) {
+        version.incrementAndGet();
+        for (long id : ids) {
+            users.invalidate(id);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LazyIndex;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.LongCounter;
+import ru.yandex.practicum.filmorate.util.MutableLongSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * Граф дружбы для рекомендаций «друзья друзей». Основа хранится в формате CSR: отсортированные id
+ * пользователей, смещения и общий массив соседей в виде индексов, поэтому ребро занимает 4 байта.
+ * Поверх основы лежит наложение недавних изменений: для каждого затронутого пользователя добавленные
+ * и удалённые друзья. Когда наложение разрастается, оно вливается в новую основу.
+ *
+ * <p>Ребро меняется в обе стороны под одной блокировкой записи, поэтому читатель никогда не видит
+ * дружбу только с одной стороны. Основа строится лениво, постраничным чтением хранилища; изменения,
+ * сделанные до и во время чтения, хранятся в наложении как последнее действие над парой и
+ * перекрывают прочитанное, поэтому результат не зависит от того, успело ли чтение их увидеть.
+ */
+public class FriendshipGraph {
+
+    static final int VISIT_BUDGET = 50_000;
+
+    private static final int MIN_SHARE = 16;
+    private static final int MIN_COMPACTION = 1 << 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Delta> delta = new HashMap<>();
+    private final LazyIndex<Base> base;
+    private long deltaEdits;
+
+    public FriendshipGraph(BiFunction<Long, Integer, List<User>> pageLoader) {
+        this.base = new LazyIndex<>(() -> Base.load(pageLoader));
+    }
+
+    public void addEdge(long userId, long friendId) {
+        update(userId, friendId, true);
+    }
+
+    public void removeEdge(long userId, long friendId) {
+        update(userId, friendId, false);
+    }
+
+    public long[] friends(long userId) {
+        Base current = base.get();
+        lock.readLock().lock();
+        try {
+            return neighbors(current, userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Друзья друзей, ещё не ставшие друзьями, по убыванию числа общих друзей (при равенстве — по id).
+     * Обход ограничен {@link #VISIT_BUDGET} рёбрами: у друзей с большим числом связей просматривается
+     * равномерная выборка соседей, поэтому стоимость запроса не зависит от степени вершин.
+     */
+    public long[] suggestions(long userId, int count) {
+        return suggestions(userId, count, id -> {
+        });
+    }
+
+    /**
+     * То же, что {@link #suggestions(long, int)}, но сообщает {@code visited} каждое просмотренное ребро.
+     */
+    long[] suggestions(long userId, int count, LongConsumer visited) {
+        Base current = base.get();
+        lock.readLock().lock();
+        try {
+            long[] friends = neighbors(current, userId);
+            if (friends.length == 0 || count <= 0) {
+                return new long[0];
+            }
+            int expanded = Math.min(friends.length, VISIT_BUDGET / MIN_SHARE);
+            int share = Math.max(MIN_SHARE, VISIT_BUDGET / expanded);
+            LongCounter counter = new LongCounter();
+            for (int i = 0; i < expanded; i++) {
+                long friendId = friends[(int) ((long) i * friends.length / expanded)];
+                visitSample(current, friendId, share, i, candidate -> {
+                    visited.accept(candidate);
+                    if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                        counter.increment(candidate);
+                    }
+                });
+            }
+            return counter.top(count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEdgeCount() {
+        Base current = base.get();
+        lock.readLock().lock();
+        try {
+            long edges = current.neighbors.length;
+            for (Map.Entry<Long, Delta> entry : delta.entrySet()) {
+                int index = current.indexOf(entry.getKey());
+                for (long added : entry.getValue().added.toLongArray()) {
+                    if (index < 0 || !current.contains(index, added)) {
+                        edges++;
+                    }
+                }
+                for (long removed : entry.getValue().removed.toLongArray()) {
+                    if (index >= 0 && current.contains(index, removed)) {
+                        edges--;
+                    }
+                }
+            }
+            return edges / 2;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(long userId, long friendId, boolean present) {
+        // Ждём идущую загрузку вне блокировки графа, чтобы не держать на это время читателей
+        Base current = base.loaded();
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            delta.computeIfAbsent(userId, id -> new Delta()).set(friendId, present);
+            delta.computeIfAbsent(friendId, id -> new Delta()).set(userId, present);
+            deltaEdits += 2;
+            compact = deltaEdits > Math.max(MIN_COMPACTION, current == null ? 0 : current.neighbors.length / 4);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) {
+            compact(base.get());
+        }
+    }
+
+    private void compact(Base current) {
+        lock.writeLock().lock();
+        try {
+            if (base.loaded() != current || delta.isEmpty()) {
+                return;
+            }
+            base.set(current.merge(delta));
+            delta.clear();
+            deltaEdits = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long[] neighbors(Base current, long userId) {
+        int index = current.indexOf(userId);
+        Delta changes = delta.get(userId);
+        long[] fromBase = index < 0 ? new long[0] : current.neighborIds(index);
+        if (changes == null) {
+            return fromBase;
+        }
+        long[] added = changes.added.toLongArray();
+        long[] result = new long[fromBase.length + added.length];
+        int size = 0;
+        for (long id : fromBase) {
+            if (!changes.removed.contains(id) && !changes.added.contains(id)) {
+                result[size++] = id;
+            }
+        }
+        for (long id : added) {
+            result[size++] = id;
+        }
+        result = Arrays.copyOf(result, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Не больше {@code share} соседей пользователя, равномерно по основе и наложению вместе. Выборка начинается
+     * со сдвига {@code round}, чтобы у разных друзей просматривались разные позиции, а не всегда первые.
+     */
+    private void visitSample(Base current, long userId, int share, int round, LongConsumer visitor) {
+        int index = current.indexOf(userId);
+        Delta changes = delta.get(userId);
+        int from = index >= 0 ? current.offsets[index] : 0;
+        int degree = index >= 0 ? current.offsets[index + 1] - from : 0;
+        long[] added = changes != null ? changes.added.toLongArray() : new long[0];
+        long total = degree + added.length;
+        long step = Math.max(1, (total + share - 1) / share);
+        for (long i = round % step; i < total; i += step) {
+            if (i < degree) {
+                long id = current.ids[current.neighbors[from + (int) i]];
+                if (changes == null || !changes.removed.contains(id)) {
+                    visitor.accept(id);
+                }
+            } else {
+                long id = added[(int) (i - degree)];
+                if (index < 0 || !current.contains(index, id)) {
+                    visitor.accept(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Изменения дружбы одного пользователя поверх основы: последнее действие над каждой парой.
+     */
+    private static final class Delta {
+
+        private final MutableLongSet added = new CompactLongSet();
+        private final MutableLongSet removed = new CompactLongSet();
+
+        void set(long friendId, boolean present) {
+            if (present) {
+                removed.remove(friendId);
+                added.add(friendId);
+            } else {
+                added.remove(friendId);
+                removed.add(friendId);
+            }
+        }
+    }
+
+    /**
+     * Неизменяемая основа графа в формате CSR.
+     */
+    private static final class Base {
+
+        private final long[] ids;
+        private final int[] offsets;
+        private final int[] neighbors;
+
+        private Base(long[] ids, int[] offsets, int[] neighbors) {
+            this.ids = ids;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+        }
+
+        static Base load(BiFunction<Long, Integer, List<User>> pageLoader) {
+            long[] ids = new long[1024];
+            long[][] friends = new long[1024][];
+            int size = 0;
+            long edges = 0;
+            for (User user : LazyIndex.scan(pageLoader, User::getId)) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    friends = Arrays.copyOf(friends, size * 2);
+                }
+                ids[size] = user.getId();
+                friends[size] = user.getFriends().toLongArray();
+                edges += friends[size].length;
+                size++;
+            }
+            ids = Arrays.copyOf(ids, size);
+            int[] offsets = new int[size + 1];
+            int[] neighbors = new int[Math.toIntExact(edges)];
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                offsets[i] = position;
+                for (long friendId : friends[i]) {
+                    int index = Arrays.binarySearch(ids, friendId);
+                    if (index >= 0) {
+                        neighbors[position++] = index;
+                    }
+                }
+                friends[i] = null;
+            }
+            offsets[size] = position;
+            return new Base(ids, offsets, Arrays.copyOf(neighbors, position));
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        boolean contains(int index, long friendId) {
+            int friendIndex = indexOf(friendId);
+            return friendIndex >= 0
+                    && Arrays.binarySearch(neighbors, offsets[index], offsets[index + 1], friendIndex) >= 0;
+        }
+
+        long[] neighborIds(int index) {
+            int from = offsets[index];
+            long[] result = new long[offsets[index + 1] - from];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ids[neighbors[from + i]];
+            }
+            return result;
+        }
+
+        /**
+         * Новая основа из текущей и наложения. Соседи остаются отсортированными, потому что индексы
+         * возрастают вместе с id, а новые пользователи встраиваются в общий порядок.
+         */
+        Base merge(Map<Long, Delta> delta) {
+            long[] added = delta.keySet().stream()
+                    .mapToLong(Long::longValue)
+                    .filter(id -> indexOf(id) < 0)
+                    .sorted()
+                    .toArray();
+            long[] mergedIds = new long[ids.length + added.length];
+            int[] remap = new int[ids.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < ids.length || j < added.length) {
+                if (j == added.length || (i < ids.length && ids[i] < added[j])) {
+                    remap[i] = k;
+                    mergedIds[k++] = ids[i++];
+                } else {
+                    mergedIds[k++] = added[j++];
+                }
+            }
+
+            int[] mergedOffsets = new int[mergedIds.length + 1];
+            int[] mergedNeighbors = new int[neighbors.length + 1024];
+            int position = 0;
+            for (int node = 0; node < mergedIds.length; node++) {
+                mergedOffsets[node] = position;
+                long id = mergedIds[node];
+                int oldIndex = indexOf(id);
+                Delta changes = delta.get(id);
+                if (changes == null) {
+                    int from = offsets[oldIndex];
+                    int degree = offsets[oldIndex + 1] - from;
+                    mergedNeighbors = ensureCapacity(mergedNeighbors, position + degree);
+                    for (int n = 0; n < degree; n++) {
+                        mergedNeighbors[position++] = remap[neighbors[from + n]];
+                    }
+                    continue;
+                }
+                int start = position;
+                if (oldIndex >= 0) {
+                    int from = offsets[oldIndex];
+                    int degree = offsets[oldIndex + 1] - from;
+                    mergedNeighbors = ensureCapacity(mergedNeighbors, position + degree);
+                    for (int n = 0; n < degree; n++) {
+                        long friendId = ids[neighbors[from + n]];
+                        if (!changes.removed.contains(friendId) && !changes.added.contains(friendId)) {
+                            mergedNeighbors[position++] = remap[neighbors[from + n]];
+                        }
+                    }
+                }
+                long[] friendIds = changes.added.toLongArray();
+                mergedNeighbors = ensureCapacity(mergedNeighbors, position + friendIds.length);
+                for (long friendId : friendIds) {
+                    int index = Arrays.binarySearch(mergedIds, friendId);
+                    if (index >= 0) {
+                        mergedNeighbors[position++] = index;
+                    }
+                }
+                Arrays.sort(mergedNeighbors, start, position);
+            }
+            mergedOffsets[mergedIds.length] = position;
+            return new Base(mergedIds, mergedOffsets, Arrays.copyOf(mergedNeighbors, position));
+        }
+
+        private static int[] ensureCapacity(int[] array, int capacity) {
+            return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, array.length * 3 / 2));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LockStripes;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор хранилища пользователей, который переносит изменения дружбы в {@link FriendshipGraph}.
+ * Запись в хранилище и в граф идёт под блокировкой пары, поэтому для каждой пары граф видит
+ * действия в том же порядке, что и хранилище.
+ */
+public class GraphIndexedUserStorage implements UserStorage {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final UserStorage delegate;
+    private final FriendshipGraph graph;
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public GraphIndexedUserStorage(UserStorage delegate, FriendshipGraph graph) {
+        this.delegate = delegate;
+        this.graph = graph;
+    }
+
+    @Override
+    public User addUser(User user) {
+        return delegate.addUser(user);
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        return delegate.updateUser(user);
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return delegate.getUsersByIds(ids);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return delegate.getAllUsers(after, limit);
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        locks.lockBoth(userId, friendId);
+        try {
+            delegate.addFriend(userId, friendId);
+            graph.addEdge(userId, friendId);
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        locks.lockBoth(userId, friendId);
+        try {
+            delegate.removeFriend(userId, friendId);
+            graph.removeEdge(userId, friendId);
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return delegate.getFriendsCount();
+    }
+}
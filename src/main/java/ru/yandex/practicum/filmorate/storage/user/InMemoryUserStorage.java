@@ -1,42 +1,217 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+import ru.yandex.practicum.filmorate.util.Shards;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 
-@Component
+/**
+ * Пользователи в памяти: неизменяемые версии с друзьями в {@link PersistentLongSet}, разделённые по id на шарды
+ * так же, как фильмы в {@link ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage}. Дружба меняет
+ * двух пользователей, каждый получает новую версию отдельно.
+ */
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private long currentId = 1;
+
+    private static final int PARALLEL_THRESHOLD = 4_096;
+    private static final int PAGE_CAPACITY = 1_024;
+
+    private final Shard[] shards;
+    private final AtomicLong idGenerator = new AtomicLong(1);
+    private final LongAdder usersCount = new LongAdder();
+    private final LongAdder friendsCount = new LongAdder();
+
+    public InMemoryUserStorage() {
+        this(1);
+    }
+
+    public InMemoryUserStorage(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным");
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+    }
 
     @Override
     public User addUser(User user) {
-        user.setId(currentId++);
-        users.put(user.getId(), user);
-        return user;
+        User added = user.withId(idGenerator.getAndIncrement());
+        shard(added.getId()).put(added);
+        usersCount.increment();
+        friendsCount.add(added.getFriends().size());
+        return added;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> batch) {
+        long id = idGenerator.getAndAdd(batch.size());
+        long friends = 0;
+        List<User> added = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            User withId = user.withId(id++);
+            shard(withId.getId()).put(withId);
+            friends += withId.getFriends().size();
+            added.add(withId);
+        }
+        usersCount.add(batch.size());
+        friendsCount.add(friends);
+        return added;
+    }
+
+    /**
+     * Резервирует {@code count} подряд идущих id и возвращает первый из них. Пользователи с этими id
+     * кладутся через {@link #restoreUser} перед записью их добавления в журнал.
+     */
+    public long reserveIds(int count) {
+        return idGenerator.getAndAdd(count);
+    }
+
+    /**
+     * Кладёт пользователя с уже известным id вместе с друзьями: при восстановлении состояния и перед записью
+     * в журнал добавления с id из {@link #reserveIds}.
+     */
+    public void restoreUser(User user) {
+        User previous = shard(user.getId()).put(user);
+        idGenerator.accumulateAndGet(user.getId() + 1, Math::max);
+        if (previous == null) {
+            usersCount.increment();
+        } else {
+            friendsCount.add(-previous.getFriends().size());
+        }
+        friendsCount.add(user.getFriends().size());
     }
 
     @Override
     public User updateUser(User user) {
-        if (!users.containsKey(user.getId())) {
+        // Друзья и лайки меняются отдельными методами, при обновлении сохраняем текущие наборы
+        User updated = shard(user.getId()).users.computeIfPresent(user.getId(),
+                (id, stored) -> user.toBuilder()
+                        .friends(stored.getFriends())
+                        .likedFilms(stored.getLikedFilms())
+                        .build());
+        if (updated == null) {
             throw new ValidationException(String.format("Пользователь с id = %d не найден", user.getId()));
         }
-        users.put(user.getId(), user);
-        return user;
+        return updated;
     }
 
     @Override
     public User getUserById(long id) {
-        return users.get(id);
+        return shard(id).users.get(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = getUserById(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
     }
 
     @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        List<List<User>> parts = Shards.map(shards, shard -> new ArrayList<>(shard.users.values()),
+                usersCount.sum() >= PARALLEL_THRESHOLD);
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        List<User> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        Shards.mergeByKey(parts.stream().map(List::iterator).toList(), User::getId).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        Iterator<User> users = Shards.mergeByKey(Arrays.stream(shards)
+                .map(shard -> shard.users.tailMap(after, false).values().iterator())
+                .toList(), User::getId);
+        List<User> result = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+        while (result.size() < limit && users.hasNext()) {
+            result.add(users.next());
+        }
+        return result;
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        if (getUserById(userId) == null || getUserById(friendId) == null) {
+            return;
+        }
+        if (shard(userId).update(userId, friends -> friends.with(friendId))) {
+            friendsCount.increment();
+        }
+        if (shard(friendId).update(friendId, friends -> friends.with(userId))) {
+            friendsCount.increment();
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        if (getUserById(userId) == null || getUserById(friendId) == null) {
+            return;
+        }
+        if (shard(userId).update(userId, friends -> friends.without(friendId))) {
+            friendsCount.decrement();
+        }
+        if (shard(friendId).update(friendId, friends -> friends.without(userId))) {
+            friendsCount.decrement();
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return usersCount.sum();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return friendsCount.sum();
+    }
+
+    private Shard shard(long userId) {
+        return shards[Shards.index(userId, shards.length)];
+    }
+
+    private static final class Shard {
+
+        private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+        User put(User user) {
+            return users.put(user.getId(), user.toBuilder()
+                    .friends(PersistentLongSet.copyOf(user.getFriends()))
+                    .likedFilms(PersistentLongSet.copyOf(user.getLikedFilms()))
+                    .build());
+        }
+
+        /**
+         * Публикует новую версию пользователя с изменёнными друзьями так же, как
+         * {@link ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage} публикует лайки.
+         */
+        boolean update(long userId, UnaryOperator<PersistentLongSet> change) {
+            boolean[] changed = new boolean[1];
+            users.computeIfPresent(userId, (id, current) -> {
+                PersistentLongSet friends = PersistentLongSet.copyOf(current.getFriends());
+                PersistentLongSet updated = change.apply(friends);
+                changed[0] = updated != friends;
+                return current.withFriends(updated);
+            });
+            return changed[0];
+        }
     }
 }
@@ -0,0 +1,222 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+import ru.yandex.practicum.filmorate.util.MutableLongSet;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Хранилище пользователей в реляционной БД. Дружба хранится двумя строками {@code friendships}, которые
+ * пишутся одним пакетом. Друзья и лайки для списка пользователей загружаются двумя запросами на весь список.
+ */
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String USER_COLUMNS = "id, email, login, name, birthday";
+
+    private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) "
+            + "VALUES (:email, :login, :name, :birthday)";
+
+    private static final String INSERT_FRIEND = "INSERT INTO friendships (user_id, friend_id) "
+            + "SELECT u.id, :friendId FROM users u "
+            + "WHERE u.id = :userId AND EXISTS (SELECT 1 FROM users f WHERE f.id = :friendId) "
+            + "AND NOT EXISTS (SELECT 1 FROM friendships s WHERE s.user_id = :userId AND s.friend_id = :friendId)";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> {
+        Date birthday = rs.getDate("birthday");
+        return User.builder()
+                .id(rs.getLong("id"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public JdbcUserStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public User addUser(User user) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.update(INSERT_USER, userParameters(user), keyHolder, new String[]{"id"});
+        return withRelations(List.of(user.withId(Objects.requireNonNull(keyHolder.getKey()).longValue()))).get(0);
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        SqlParameterSource[] batch = users.stream()
+                .map(JdbcUserStorage::userParameters)
+                .toArray(SqlParameterSource[]::new);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        transactions.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_USER, batch, keyHolder, new String[]{"id"}));
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<User> added = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            // У только что созданных пользователей связей ещё нет
+            added.add(users.get(i).toBuilder()
+                    .id(((Number) keys.get(i).values().iterator().next()).longValue())
+                    .friends(new CompactLongSet())
+                    .likedFilms(new CompactLongSet())
+                    .build());
+        }
+        return added;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        int updated = jdbc.update("UPDATE users SET email = :email, login = :login, name = :name, "
+                + "birthday = :birthday WHERE id = :id", userParameters(user));
+        if (updated == 0) {
+            throw new ValidationException(String.format("Пользователь с id = %d не найден", user.getId()));
+        }
+        return withRelations(List.of(user)).get(0);
+    }
+
+    @Override
+    public User getUserById(long id) {
+        List<User> users = jdbc.query("SELECT " + USER_COLUMNS + " FROM users WHERE id = :id",
+                Map.of("id", id), USER_MAPPER);
+        return withRelations(users).stream().findFirst().orElse(null);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withRelations(jdbc.query("SELECT " + USER_COLUMNS + " FROM users WHERE id IN (:ids) ORDER BY id",
+                Map.of("ids", ids), USER_MAPPER));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        Map<Long, MutableLongSet> friends = new HashMap<>();
+        Map<Long, MutableLongSet> likedFilms = new HashMap<>();
+        List<User> users = resetRelations(jdbc.query("SELECT " + USER_COLUMNS + " FROM users ORDER BY id", USER_MAPPER),
+                friends, likedFilms);
+        jdbc.getJdbcTemplate().query("SELECT user_id, friend_id FROM friendships", rs -> {
+            MutableLongSet userFriends = friends.get(rs.getLong("user_id"));
+            if (userFriends != null) {
+                userFriends.add(rs.getLong("friend_id"));
+            }
+        });
+        jdbc.getJdbcTemplate().query("SELECT user_id, film_id FROM film_likes", rs -> {
+            MutableLongSet userLikes = likedFilms.get(rs.getLong("user_id"));
+            if (userLikes != null) {
+                userLikes.add(rs.getLong("film_id"));
+            }
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return withRelations(jdbc.query("SELECT " + USER_COLUMNS + " FROM users WHERE id > :after "
+                + "ORDER BY id LIMIT :limit", Map.of("after", after, "limit", limit), USER_MAPPER));
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        SqlParameterSource[] batch = {
+                new MapSqlParameterSource("userId", userId).addValue("friendId", friendId),
+                new MapSqlParameterSource("userId", friendId).addValue("friendId", userId)
+        };
+        try {
+            transactions.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_FRIEND, batch));
+        } catch (DuplicateKeyException e) {
+            // Ту же дружбу параллельно добавил другой запрос, пакет откатан — повторяем, недостающая строка допишется
+            transactions.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_FRIEND, batch));
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        jdbc.update("DELETE FROM friendships WHERE (user_id = :userId AND friend_id = :friendId) "
+                + "OR (user_id = :friendId AND friend_id = :userId)",
+                Map.of("userId", userId, "friendId", friendId));
+    }
+
+    @Override
+    public long getUsersCount() {
+        return count("SELECT COUNT(*) FROM users");
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return count("SELECT COUNT(*) FROM friendships");
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.getJdbcTemplate().queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private List<User> withRelations(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, MutableLongSet> friends = new HashMap<>();
+        Map<Long, MutableLongSet> likedFilms = new HashMap<>();
+        List<User> result = resetRelations(users, friends, likedFilms);
+        Map<String, Object> ids = Map.of("ids", friends.keySet());
+        jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)", ids,
+                rs -> {
+                    friends.get(rs.getLong("user_id")).add(rs.getLong("friend_id"));
+                });
+        jdbc.query("SELECT user_id, film_id FROM film_likes WHERE user_id IN (:ids)", ids,
+                rs -> {
+                    likedFilms.get(rs.getLong("user_id")).add(rs.getLong("film_id"));
+                });
+        return result;
+    }
+
+    /**
+     * Возвращает копии пользователей с новыми пустыми множествами связей и раскладывает эти множества по id:
+     * переданные вызывающим множества могут быть неизменяемыми.
+     */
+    private static List<User> resetRelations(List<User> users, Map<Long, MutableLongSet> friends,
+                                             Map<Long, MutableLongSet> likedFilms) {
+        List<User> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            CompactLongSet userFriends = new CompactLongSet();
+            CompactLongSet userLikes = new CompactLongSet();
+            result.add(user.toBuilder().friends(userFriends).likedFilms(userLikes).build());
+            friends.put(user.getId(), userFriends);
+            likedFilms.put(user.getId(), userLikes);
+        }
+        return result;
+    }
+
+    private static MapSqlParameterSource userParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday());
+    }
+}
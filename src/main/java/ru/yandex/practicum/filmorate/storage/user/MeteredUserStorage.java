@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Декоратор хранилища пользователей, который замеряет время каждого метода и публикует размеры хранилища.
+ */
+public class MeteredUserStorage implements UserStorage {
+
+    private static final String TIMER_NAME = "filmorate.storage.operation";
+
+    private final UserStorage delegate;
+    private final Timer addUserTimer;
+    private final Timer addUsersTimer;
+    private final Timer updateUserTimer;
+    private final Timer getUserByIdTimer;
+    private final Timer getUsersByIdsTimer;
+    private final Timer getAllUsersTimer;
+    private final Timer addFriendTimer;
+    private final Timer removeFriendTimer;
+
+    public MeteredUserStorage(UserStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.addUserTimer = timer(registry, "addUser");
+        this.addUsersTimer = timer(registry, "addUsers");
+        this.updateUserTimer = timer(registry, "updateUser");
+        this.getUserByIdTimer = timer(registry, "getUserById");
+        this.getUsersByIdsTimer = timer(registry, "getUsersByIds");
+        this.getAllUsersTimer = timer(registry, "getAllUsers");
+        this.addFriendTimer = timer(registry, "addFriend");
+        this.removeFriendTimer = timer(registry, "removeFriend");
+
+        Gauge.builder("filmorate.users.count", delegate, UserStorage::getUsersCount)
+                .description("Количество пользователей в хранилище")
+                .register(registry);
+        Gauge.builder("filmorate.friends.average", delegate, MeteredUserStorage::averageFriends)
+                .description("Средний размер списка друзей")
+                .register(registry);
+    }
+
+    @Override
+    public User addUser(User user) {
+        return addUserTimer.record(() -> delegate.addUser(user));
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        return addUsersTimer.record(() -> delegate.addUsers(users));
+    }
+
+    @Override
+    public User updateUser(User user) {
+        return updateUserTimer.record(() -> delegate.updateUser(user));
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return getUserByIdTimer.record(() -> delegate.getUserById(id));
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return getUsersByIdsTimer.record(() -> delegate.getUsersByIds(ids));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return getAllUsersTimer.record(() -> delegate.getAllUsers());
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return getAllUsersTimer.record(() -> delegate.getAllUsers(after, limit));
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        long start = System.nanoTime();
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            addFriendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            removeFriendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return delegate.getFriendsCount();
+    }
+
+    private static double averageFriends(UserStorage storage) {
+        long users = storage.getUsersCount();
+        return users == 0 ? 0 : (double) storage.getFriendsCount() / users;
+    }
+
+    private static Timer timer(MeterRegistry registry, String method) {
+        return Timer.builder(TIMER_NAME)
+                .tag("storage", "user")
+                .tag("method", method)
+                .register(registry);
+    }
+}
@@ -2,15 +2,33 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserStorage {
 
     User addUser(User user);
 
+    /**
+     * Добавляет несколько пользователей за один вызов, id выделяются подряд в порядке списка.
+     */
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     User getUserById(long id);
 
+    List<User> getUsersByIds(Collection<Long> ids);
+
     List<User> getAllUsers();
+
+    List<User> getAllUsers(long after, int limit);
+
+    void addFriend(long userId, long friendId);
+
+    void removeFriend(long userId, long friendId);
+
+    long getUsersCount();
+
+    long getFriendsCount();
 }
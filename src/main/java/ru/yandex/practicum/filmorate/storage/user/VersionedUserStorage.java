@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор хранилища пользователей, который увеличивает версии после каждой записи.
+ * Изменение дружбы меняет версии обоих участников.
+ */
+public class VersionedUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final StorageVersions versions;
+
+    public VersionedUserStorage(UserStorage delegate, StorageVersions versions) {
+        this.delegate = delegate;
+        this.versions = versions;
+    }
+
+    @Override
+    public User addUser(User user) {
+        try {
+            return delegate.addUser(user);
+        } finally {
+            versions.userAdded();
+        }
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        try {
+            return delegate.addUsers(users);
+        } finally {
+            versions.userAdded();
+        }
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return delegate.updateUser(user);
+        } finally {
+            versions.userChanged(user.getId());
+        }
+    }
+
+    @Override
+    public User getUserById(long id) {
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return delegate.getUsersByIds(ids);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getAllUsers(long after, int limit) {
+        return delegate.getAllUsers(after, limit);
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            versions.userChanged(userId);
+            versions.userChanged(friendId);
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            versions.userChanged(userId);
+            versions.userChanged(friendId);
+        }
+    }
+
+    @Override
+    public long getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendsCount() {
+        return delegate.getFriendsCount();
+    }
+}
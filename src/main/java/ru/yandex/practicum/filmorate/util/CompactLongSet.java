@@ -0,0 +1,304 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Потокобезопасное множество long-идентификаторов. Пока элементов немного, хранит их в массиве
+ * с открытой адресацией (линейное пробирование), после {@link #BITMAP_THRESHOLD} переходит
+ * на сжатый Roaring-битмап и возвращается обратно, когда множество заметно уменьшается.
+ * Итерация идёт по отсортированному снимку, поэтому сериализация не мешает параллельным изменениям.
+ */
+public class CompactLongSet extends AbstractSet<Long> implements MutableLongSet {
+
+    static final int BITMAP_THRESHOLD = 4096;
+
+    private static final int MIN_CAPACITY = 8;
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private boolean containsEmptyKey;
+    private Roaring64Bitmap bitmap;
+    private int size;
+
+    public CompactLongSet() {
+    }
+
+    public CompactLongSet(Collection<Long> source) {
+        if (source == null) {
+            return;
+        }
+        if (source instanceof LongSet longSet) {
+            for (long value : longSet.toLongArray()) {
+                add(value);
+            }
+        } else {
+            for (Long value : source) {
+                add(value.longValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(long value) {
+        if (bitmap != null) {
+            return bitmap.contains(value);
+        }
+        if (value == EMPTY) {
+            return containsEmptyKey;
+        }
+        return table != null && indexOf(value) >= 0;
+    }
+
+    @Override
+    public synchronized boolean add(long value) {
+        if (bitmap != null) {
+            if (bitmap.contains(value)) {
+                return false;
+            }
+            bitmap.addLong(value);
+            size++;
+            return true;
+        }
+        if (value == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        if (table == null) {
+            table = new long[MIN_CAPACITY];
+        }
+        int mask = table.length - 1;
+        int slot = slot(value, mask);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        size++;
+        if (size > BITMAP_THRESHOLD) {
+            convertToBitmap();
+        } else if (size * 4 > table.length * 3) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(long value) {
+        if (bitmap != null) {
+            if (!bitmap.contains(value)) {
+                return false;
+            }
+            bitmap.removeLong(value);
+            size--;
+            if (size < BITMAP_THRESHOLD / 4) {
+                convertToTable();
+            }
+            return true;
+        }
+        if (value == EMPTY) {
+            if (!containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = false;
+            size--;
+            return true;
+        }
+        if (table == null) {
+            return false;
+        }
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        deleteAt(index);
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long value && remove(value.longValue());
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = null;
+        bitmap = null;
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+    @Override
+    public synchronized long[] toLongArray() {
+        long[] result = new long[size];
+        int position = 0;
+        if (bitmap != null) {
+            LongIterator iterator = bitmap.getLongIterator();
+            while (iterator.hasNext()) {
+                result[position++] = iterator.next();
+            }
+            if (position > 0 && result[position - 1] < 0) {
+                // Битмап перечисляет значения как беззнаковые, отрицательные оказываются в конце
+                Arrays.sort(result);
+            }
+            return result;
+        }
+        if (containsEmptyKey) {
+            result[position++] = EMPTY;
+        }
+        if (table != null) {
+            for (long value : table) {
+                if (value != EMPTY) {
+                    result[position++] = value;
+                }
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int position;
+            private boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return position < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (position >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return snapshot[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                canRemove = false;
+                CompactLongSet.this.remove(snapshot[position - 1]);
+            }
+        };
+    }
+
+    private int indexOf(long value) {
+        int mask = table.length - 1;
+        int slot = slot(value, mask);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void deleteAt(int index) {
+        // Удаление со сдвигом назад: не оставляет «надгробий» и не ухудшает последующие поиски
+        int mask = table.length - 1;
+        int hole = index;
+        int next = index;
+        table[hole] = EMPTY;
+        while (true) {
+            next = (next + 1) & mask;
+            long value = table[next];
+            if (value == EMPTY) {
+                return;
+            }
+            int home = slot(value, mask);
+            boolean between = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!between) {
+                table[hole] = value;
+                table[next] = EMPTY;
+                hole = next;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int slot = slot(value, mask);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private void convertToBitmap() {
+        bitmap = new Roaring64Bitmap();
+        if (containsEmptyKey) {
+            bitmap.addLong(EMPTY);
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                bitmap.addLong(value);
+            }
+        }
+        bitmap.runOptimize();
+        table = null;
+        containsEmptyKey = false;
+    }
+
+    private void convertToTable() {
+        Roaring64Bitmap source = bitmap;
+        bitmap = null;
+        table = null;
+        size = 0;
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < (int) source.getLongCardinality() * 4) {
+            capacity *= 2;
+        }
+        table = new long[capacity];
+        LongIterator iterator = source.getLongIterator();
+        while (iterator.hasNext()) {
+            add(iterator.next());
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
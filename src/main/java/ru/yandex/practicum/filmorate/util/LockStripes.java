@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, разбитых по id. Нужен, чтобы изменения одной сущности применялись к хранилищу
+ * и к производным структурам (журналу, индексам) в одном порядке, без общей блокировки на всё хранилище.
+ */
+public final class LockStripes {
+
+    private final ReentrantLock[] locks;
+
+    public LockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(long id) {
+        return locks[stripe(id)];
+    }
+
+    public void lock(long id) {
+        lockFor(id).lock();
+    }
+
+    public void unlock(long id) {
+        lockFor(id).unlock();
+    }
+
+    /**
+     * Захватывает блокировки двух id по возрастанию номера полосы: порядок id с порядком полос не совпадает,
+     * и встречные операции над парами с общей полосой иначе ждали бы друг друга. Общая полоса берётся один раз.
+     */
+    public void lockBoth(long first, long second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        locks[Math.min(a, b)].lock();
+        if (a != b) {
+            locks[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockBoth(long first, long second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        if (a != b) {
+            locks[Math.max(a, b)].unlock();
+        }
+        locks[Math.min(a, b)].unlock();
+    }
+
+    private int stripe(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (locks.length - 1);
+    }
+}
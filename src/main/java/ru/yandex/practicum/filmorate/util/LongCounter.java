@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.PriorityQueue;
+
+/**
+ * Счётчики по long-ключам на открытой адресации без упаковки в объекты. Не потокобезопасен:
+ * рассчитан на один запрос, параллельные части считаются в отдельных счётчиках и сливаются.
+ */
+public class LongCounter {
+
+    private long[] keys = new long[64];
+    private long[] counts = new long[64];
+    private boolean[] used = new boolean[64];
+    private int size;
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    public void add(long key, long delta) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        counts[slot] = delta;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    public void addAll(LongCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.used[i]) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ключи с наибольшими счётчиками по убыванию, при равенстве — по возрастанию ключа.
+     */
+    public long[] top(int count) {
+        long[][] entries = topEntries(count);
+        long[] result = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            result[i] = entries[i][0];
+        }
+        return result;
+    }
+
+    /**
+     * То же, что {@link #top}, но вместе со счётчиками: пары {@code {key, count}}.
+     */
+    public long[][] topEntries(int count) {
+        // Куча на count элементов: наверху худший из отобранных (меньший счётчик, больший ключ)
+        PriorityQueue<long[]> heap = new PriorityQueue<>(count + 1,
+                (a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                heap.add(new long[]{keys[i], counts[i]});
+                if (heap.size() > count) {
+                    heap.poll();
+                }
+            }
+        }
+        long[][] result = new long[heap.size()][];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i], mask);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
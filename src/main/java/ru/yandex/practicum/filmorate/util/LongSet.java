@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество идентификаторов без упаковки в {@link Long}, только для чтения: изменять через этот тип нельзя,
+ * изменяемые реализации — {@link MutableLongSet}. В JSON выглядит как обычный массив чисел.
+ */
+@JsonSerialize(using = LongSetSerializer.class)
+@JsonDeserialize(as = CompactLongSet.class)
+public interface LongSet extends Set<Long> {
+
+    boolean contains(long value);
+
+    /**
+     * Снимок элементов в порядке возрастания.
+     */
+    long[] toLongArray();
+
+    default void forEachLong(LongConsumer action) {
+        for (long value : toLongArray()) {
+            action.accept(value);
+        }
+    }
+}
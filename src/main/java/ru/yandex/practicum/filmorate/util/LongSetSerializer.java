@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public class LongSetSerializer extends StdSerializer<LongSet> {
+
+    public LongSetSerializer() {
+        super(LongSet.class);
+    }
+
+    @Override
+    public void serialize(LongSet value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        long[] values = value.toLongArray();
+        generator.writeArray(values, 0, values.length);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, LongSet value) {
+        return value.isEmpty();
+    }
+}
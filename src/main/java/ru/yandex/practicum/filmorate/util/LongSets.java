@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+public final class LongSets {
+
+    /**
+     * Во сколько раз одно множество должно быть больше другого, чтобы вместо слияния
+     * отсортированных снимков выгоднее было проверять элементы меньшего в большем.
+     */
+    private static final int PROBE_RATIO = 8;
+
+    private LongSets() {
+    }
+
+    public static long[] intersection(LongSet first, LongSet second) {
+        LongSet smaller = first.size() <= second.size() ? first : second;
+        LongSet larger = smaller == first ? second : first;
+        long[] candidates = smaller.toLongArray();
+        if (candidates.length == 0) {
+            return candidates;
+        }
+        if ((long) candidates.length * PROBE_RATIO <= larger.size()) {
+            int count = 0;
+            for (long value : candidates) {
+                if (larger.contains(value)) {
+                    candidates[count++] = value;
+                }
+            }
+            return Arrays.copyOf(candidates, count);
+        }
+        return mergeSorted(candidates, larger.toLongArray());
+    }
+
+    public static int intersectionSize(LongSet first, LongSet second) {
+        LongSet smaller = first.size() <= second.size() ? first : second;
+        LongSet larger = smaller == first ? second : first;
+        long[] candidates = smaller.toLongArray();
+        int count = 0;
+        if ((long) candidates.length * PROBE_RATIO <= larger.size()) {
+            for (long value : candidates) {
+                if (larger.contains(value)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        long[] others = larger.toLongArray();
+        int i = 0;
+        int j = 0;
+        while (i < candidates.length && j < others.length) {
+            int compare = Long.compare(candidates[i], others[j]);
+            if (compare == 0) {
+                count++;
+                i++;
+                j++;
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static long[] mergeSorted(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            int compare = Long.compare(left[i], right[j]);
+            if (compare == 0) {
+                result[count++] = left[i];
+                i++;
+                j++;
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Изменяемое {@link LongSet}.
+ */
+public interface MutableLongSet extends LongSet {
+
+    boolean add(long value);
+
+    boolean remove(long value);
+}
@@ -0,0 +1,406 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое множество long-идентификаторов. {@link #with} и {@link #without} возвращают новую версию,
+ * разделяющую с прежней всё, кроме пути от корня до изменённого листа, поэтому старые версии остаются целыми
+ * и их можно читать без блокировок.
+ *
+ * <p>Устроено как префиксное дерево с битовыми масками (как HAMT, но по самому идентификатору, а не по его хэшу):
+ * узел ветвится на 64 по 6 битам и хранит только существующих детей, лист хранит 64 слова по 64 бита и покрывает
+ * 4096 подряд идущих значений. Близкие id, какими обычно бывают пользователи и фильмы, ложатся в общие слова,
+ * а обход идёт сразу по возрастанию. Высота дерева растёт и уменьшается вместе с наибольшим значением.
+ */
+public final class PersistentLongSet extends AbstractSet<Long> implements LongSet {
+
+    private static final int BITS = 6;
+    private static final int WIDTH = 1 << BITS;
+    private static final PersistentLongSet EMPTY = new PersistentLongSet(null, BITS, 0);
+
+    private final Node root;
+    private final int shift;
+    private final int size;
+
+    private PersistentLongSet(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    public static PersistentLongSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Множество с теми же элементами; неизменяемое множество возвращается как есть.
+     */
+    public static PersistentLongSet copyOf(Collection<Long> source) {
+        if (source instanceof PersistentLongSet persistent) {
+            return persistent;
+        }
+        if (source == null || source.isEmpty()) {
+            return EMPTY;
+        }
+        long[] values;
+        if (source instanceof LongSet longSet) {
+            values = longSet.toLongArray();
+        } else {
+            values = source.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        }
+        return of(values);
+    }
+
+    private static PersistentLongSet of(long[] sorted) {
+        // Дерево упорядочено по беззнаковому значению: отрицательные идут после положительных
+        int negatives = 0;
+        while (negatives < sorted.length && sorted[negatives] < 0) {
+            negatives++;
+        }
+        long[] keys = new long[sorted.length];
+        System.arraycopy(sorted, negatives, keys, 0, sorted.length - negatives);
+        System.arraycopy(sorted, 0, keys, sorted.length - negatives, negatives);
+        int shift = shiftFor(keys[keys.length - 1]);
+        return new PersistentLongSet(build(keys, 0, keys.length, shift), shift, keys.length);
+    }
+
+    public PersistentLongSet with(long value) {
+        if (root == null) {
+            int rootShift = shiftFor(value);
+            return new PersistentLongSet(singleton(value, rootShift), rootShift, 1);
+        }
+        Node grown = root;
+        int grownShift = shift;
+        while (!fits(value, grownShift)) {
+            // Все прежние значения меньше 2^(shift + 6), поэтому старый корень становится нулевым ребёнком
+            grown = new Branch(1L, new Node[]{grown});
+            grownShift += BITS;
+        }
+        Node updated = grown.with(value, grownShift);
+        if (updated == grown) {
+            return this;
+        }
+        return new PersistentLongSet(updated, grownShift, size + 1);
+    }
+
+    public PersistentLongSet without(long value) {
+        if (root == null || !fits(value, shift)) {
+            return this;
+        }
+        Node updated = root.without(value, shift);
+        if (updated == root) {
+            return this;
+        }
+        if (updated == null) {
+            return EMPTY;
+        }
+        int updatedShift = shift;
+        while (updated instanceof Branch branch && branch.mask == 1L) {
+            updated = branch.children[0];
+            updatedShift -= BITS;
+        }
+        return new PersistentLongSet(updated, updatedShift, size - 1);
+    }
+
+    @Override
+    public boolean contains(long value) {
+        return root != null && fits(value, shift) && root.contains(value, shift);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    @Override
+    public boolean add(Long value) {
+        throw new UnsupportedOperationException("Множество неизменяемо, новая версия получается через with");
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Множество неизменяемо, новая версия получается через without");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Множество неизменяемо");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long[] toLongArray() {
+        long[] result = new long[size];
+        if (root != null) {
+            root.collect(0, shift, result, 0);
+        }
+        if (size > 0 && result[size - 1] < 0) {
+            int negatives = 0;
+            while (negatives < size && result[size - 1 - negatives] < 0) {
+                negatives++;
+            }
+            long[] rotated = new long[size];
+            System.arraycopy(result, size - negatives, rotated, 0, negatives);
+            System.arraycopy(result, 0, rotated, negatives, size - negatives);
+            return rotated;
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (position >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[position++];
+            }
+        };
+    }
+
+    private static boolean fits(long value, int shift) {
+        return shift + BITS >= Long.SIZE || value >>> (shift + BITS) == 0;
+    }
+
+    private static int shiftFor(long value) {
+        int shift = BITS;
+        while (!fits(value, shift)) {
+            shift += BITS;
+        }
+        return shift;
+    }
+
+    private static int index(long value, int shift) {
+        return (int) (value >>> shift) & (WIDTH - 1);
+    }
+
+    private static int position(long mask, int index) {
+        return Long.bitCount(mask & ((1L << index) - 1));
+    }
+
+    private static Node singleton(long value, int shift) {
+        if (shift == BITS) {
+            return new Leaf(1L << index(value, shift), new long[]{1L << (value & (WIDTH - 1))});
+        }
+        return new Branch(1L << index(value, shift), new Node[]{singleton(value, shift - BITS)});
+    }
+
+    /**
+     * Строит узел из отрезка ключей, упорядоченных по беззнаковому значению и совпадающих в битах выше узла.
+     */
+    private static Node build(long[] keys, int from, int to, int shift) {
+        long mask = 0;
+        int count = 0;
+        if (shift == BITS) {
+            long[] words = new long[WIDTH];
+            for (int i = from; i < to; i++) {
+                int index = index(keys[i], shift);
+                if ((mask & 1L << index) == 0) {
+                    mask |= 1L << index;
+                    count++;
+                }
+                words[count - 1] |= 1L << (keys[i] & (WIDTH - 1));
+            }
+            return new Leaf(mask, Arrays.copyOf(words, count));
+        }
+        Node[] children = new Node[WIDTH];
+        int start = from;
+        while (start < to) {
+            int index = index(keys[start], shift);
+            int end = start + 1;
+            while (end < to && index(keys[end], shift) == index) {
+                end++;
+            }
+            mask |= 1L << index;
+            children[count++] = build(keys, start, end, shift - BITS);
+            start = end;
+        }
+        return new Branch(mask, Arrays.copyOf(children, count));
+    }
+
+    private abstract static class Node {
+
+        abstract boolean contains(long value, int shift);
+
+        abstract Node with(long value, int shift);
+
+        /**
+         * Узел без значения; {@code null}, если узел опустел.
+         */
+        abstract Node without(long value, int shift);
+
+        abstract int collect(long prefix, int shift, long[] target, int offset);
+    }
+
+    private static final class Branch extends Node {
+
+        private final long mask;
+        private final Node[] children;
+
+        Branch(long mask, Node[] children) {
+            this.mask = mask;
+            this.children = children;
+        }
+
+        @Override
+        boolean contains(long value, int shift) {
+            int index = index(value, shift);
+            return (mask & 1L << index) != 0
+                    && children[position(mask, index)].contains(value, shift - BITS);
+        }
+
+        @Override
+        Node with(long value, int shift) {
+            int index = index(value, shift);
+            int position = position(mask, index);
+            if ((mask & 1L << index) == 0) {
+                Node[] updated = new Node[children.length + 1];
+                System.arraycopy(children, 0, updated, 0, position);
+                updated[position] = singleton(value, shift - BITS);
+                System.arraycopy(children, position, updated, position + 1, children.length - position);
+                return new Branch(mask | 1L << index, updated);
+            }
+            Node child = children[position];
+            Node updatedChild = child.with(value, shift - BITS);
+            if (updatedChild == child) {
+                return this;
+            }
+            Node[] updated = children.clone();
+            updated[position] = updatedChild;
+            return new Branch(mask, updated);
+        }
+
+        @Override
+        Node without(long value, int shift) {
+            int index = index(value, shift);
+            if ((mask & 1L << index) == 0) {
+                return this;
+            }
+            int position = position(mask, index);
+            Node child = children[position];
+            Node updatedChild = child.without(value, shift - BITS);
+            if (updatedChild == child) {
+                return this;
+            }
+            if (updatedChild != null) {
+                Node[] updated = children.clone();
+                updated[position] = updatedChild;
+                return new Branch(mask, updated);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Node[] updated = new Node[children.length - 1];
+            System.arraycopy(children, 0, updated, 0, position);
+            System.arraycopy(children, position + 1, updated, position, updated.length - position);
+            return new Branch(mask & ~(1L << index), updated);
+        }
+
+        @Override
+        int collect(long prefix, int shift, long[] target, int offset) {
+            long remaining = mask;
+            for (Node child : children) {
+                int index = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                offset = child.collect(prefix | (long) index << shift, shift - BITS, target, offset);
+            }
+            return offset;
+        }
+    }
+
+    private static final class Leaf extends Node {
+
+        private final long mask;
+        private final long[] words;
+
+        Leaf(long mask, long[] words) {
+            this.mask = mask;
+            this.words = words;
+        }
+
+        @Override
+        boolean contains(long value, int shift) {
+            int index = index(value, shift);
+            return (mask & 1L << index) != 0
+                    && (words[position(mask, index)] & 1L << (value & (WIDTH - 1))) != 0;
+        }
+
+        @Override
+        Node with(long value, int shift) {
+            int index = index(value, shift);
+            int position = position(mask, index);
+            long bit = 1L << (value & (WIDTH - 1));
+            if ((mask & 1L << index) == 0) {
+                long[] updated = new long[words.length + 1];
+                System.arraycopy(words, 0, updated, 0, position);
+                updated[position] = bit;
+                System.arraycopy(words, position, updated, position + 1, words.length - position);
+                return new Leaf(mask | 1L << index, updated);
+            }
+            if ((words[position] & bit) != 0) {
+                return this;
+            }
+            long[] updated = words.clone();
+            updated[position] |= bit;
+            return new Leaf(mask, updated);
+        }
+
+        @Override
+        Node without(long value, int shift) {
+            int index = index(value, shift);
+            if ((mask & 1L << index) == 0) {
+                return this;
+            }
+            int position = position(mask, index);
+            long bit = 1L << (value & (WIDTH - 1));
+            if ((words[position] & bit) == 0) {
+                return this;
+            }
+            if (words[position] != bit) {
+                long[] updated = words.clone();
+                updated[position] &= ~bit;
+                return new Leaf(mask, updated);
+            }
+            if (words.length == 1) {
+                return null;
+            }
+            long[] updated = new long[words.length - 1];
+            System.arraycopy(words, 0, updated, 0, position);
+            System.arraycopy(words, position + 1, updated, position, updated.length - position);
+            return new Leaf(mask & ~(1L << index), updated);
+        }
+
+        @Override
+        int collect(long prefix, int shift, long[] target, int offset) {
+            long remaining = mask;
+            for (long word : words) {
+                int index = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                long base = prefix | (long) index << shift;
+                while (word != 0) {
+                    target[offset++] = base | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Общие приёмы хранилищ, разделённых по id на шарды: выбор шарда, обход всех шардов и слияние их
+ * упорядоченных ответов.
+ */
+public final class Shards {
+
+    private Shards() {
+    }
+
+    public static int index(long id, int shards) {
+        return (int) Math.floorMod(id, (long) shards);
+    }
+
+    /**
+     * Применяет действие к каждому шарду, с {@code parallel} — задачами в общем пуле fork-join.
+     * Ответы идут в порядке шардов.
+     */
+    public static <S, R> List<R> map(S[] shards, Function<S, R> action, boolean parallel) {
+        if (!parallel || shards.length == 1) {
+            List<R> result = new ArrayList<>(shards.length);
+            for (S shard : shards) {
+                result.add(action.apply(shard));
+            }
+            return result;
+        }
+        return Arrays.stream(shards).parallel().map(action).toList();
+    }
+
+    /**
+     * Ленивое слияние последовательностей, каждая из которых уже упорядочена по {@code order}: из шардов
+     * читается ровно столько элементов, сколько взято из результата.
+     */
+    public static <T> Iterator<T> merge(List<? extends Iterator<T>> sorted, Comparator<? super T> order) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(sorted.size(),
+                (first, second) -> order.compare(first.head, second.head));
+        for (Iterator<T> iterator : sorted) {
+            if (iterator.hasNext()) {
+                heads.add(new Cursor<>(iterator.next(), iterator));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Cursor<T> cursor = heads.remove();
+                T result = cursor.head;
+                if (cursor.rest.hasNext()) {
+                    cursor.head = cursor.rest.next();
+                    heads.add(cursor);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * То же слияние для последовательностей по возрастанию числового ключа, например id. Ключ читается один
+     * раз на элемент, а следующий элемент выбирается проходом по массиву ключей голов: шардов немного,
+     * и такой проход дешевле кучи, которая при каждом сравнении обращается к объектам.
+     */
+    public static <T> Iterator<T> mergeByKey(List<? extends Iterator<T>> sorted, ToLongFunction<? super T> key) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+        return new KeyMerge<>(sorted, key);
+    }
+
+    private static final class Cursor<T> {
+
+        private T head;
+        private final Iterator<T> rest;
+
+        Cursor(T head, Iterator<T> rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+    }
+
+    private static final class KeyMerge<T> implements Iterator<T> {
+
+        private final Iterator<T>[] rests;
+        private final Object[] heads;
+        private final long[] keys;
+        private final ToLongFunction<? super T> key;
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        KeyMerge(List<? extends Iterator<T>> sorted, ToLongFunction<? super T> key) {
+            this.rests = new Iterator[sorted.size()];
+            this.heads = new Object[sorted.size()];
+            this.keys = new long[sorted.size()];
+            this.key = key;
+            for (Iterator<T> iterator : sorted) {
+                if (iterator.hasNext()) {
+                    rests[size] = iterator;
+                    advance(size++);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (keys[i] < keys[min]) {
+                    min = i;
+                }
+            }
+            T result = (T) heads[min];
+            if (rests[min].hasNext()) {
+                advance(min);
+            } else {
+                // Закончившийся шард меняется местами с последним, чтобы проход шёл по сплошному префиксу
+                size--;
+                rests[min] = rests[size];
+                heads[min] = heads[size];
+                keys[min] = keys[size];
+                rests[size] = null;
+                heads[size] = null;
+            }
+            return result;
+        }
+
+        private void advance(int index) {
+            T head = rests[index].next();
+            heads[index] = head;
+            keys[index] = key.applyAsLong(head);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Фильмы, пользователи и случайные правки для тестов индексов, которые сверяют индекс с полным обходом
+ * хранилища. Поля, которые тест не проверяет, заполнены допустимыми значениями.
+ */
+public final class TestData {
+
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2000, 1, 1);
+    private static final int DURATION = 90;
+
+    private TestData() {
+    }
+
+    public static Film film() {
+        return film("Фильм", "Описание", RELEASE_DATE, DURATION);
+    }
+
+    public static Film film(String name, String description) {
+        return film(name, description, RELEASE_DATE, DURATION);
+    }
+
+    public static Film film(LocalDate releaseDate, int duration) {
+        return film("Фильм", "Описание", releaseDate, duration);
+    }
+
+    public static User user() {
+        return User.builder()
+                .email("user@example.com")
+                .login("user")
+                .name("user")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    /**
+     * Случайные правки связей между id из {@code 1..first} и {@code 1..second}: примерно треть правок снимает
+     * связь, остальные ставят. Пары одинаковых id пропускаются.
+     */
+    public static void randomEdits(Random random, int operations, int first, int second,
+                                   BiConsumer<Long, Long> add, BiConsumer<Long, Long> remove) {
+        for (int i = 0; i < operations; i++) {
+            long firstId = 1 + random.nextInt(first);
+            long secondId = 1 + random.nextInt(second);
+            if (firstId == secondId) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                remove.accept(firstId, secondId);
+            } else {
+                add.accept(firstId, secondId);
+            }
+        }
+    }
+
+    private static Film film(String name, String description, LocalDate releaseDate, int duration) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DataSourceEnvironmentPostProcessorTest {
+
+    private final DataSourceEnvironmentPostProcessor processor = new DataSourceEnvironmentPostProcessor();
+
+    @Test
+    void memoryStorage_ShouldExcludeDataSource() {
+        MockEnvironment environment = new MockEnvironment();
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+                environment.getProperty("spring.autoconfigure.exclude"));
+        assertNull(environment.getProperty("spring.sql.init.mode"));
+    }
+
+    @Test
+    void jdbcStorage_ShouldKeepDataSourceAndApplySchema() {
+        MockEnvironment environment = new MockEnvironment().withProperty("filmorate.storage.type", "jdbc");
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertNull(environment.getProperty("spring.autoconfigure.exclude"));
+        assertEquals("always", environment.getProperty("spring.sql.init.mode"));
+    }
+
+    @Test
+    void explicitProperties_ShouldWin() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("filmorate.storage.type", "jdbc")
+                .withProperty("spring.sql.init.mode", "never");
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("never", environment.getProperty("spring.sql.init.mode"));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonFragmentsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final JsonFragmentHttpMessageConverter converter = new JsonFragmentHttpMessageConverter(
+            new JsonFragments(objectMapper, 1 << 20, new SimpleMeterRegistry()));
+
+    @Test
+    void films_AfterLikesAndUpdates_ShouldMatchJackson() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < 5; i++) {
+            storage.addFilm(new Film(0, "Фильм " + i, "Описание \"" + i + "\"", LocalDate.of(2000 + i, 1, 1),
+                    90 + i, new CompactLongSet()));
+        }
+        assertSameAsJackson(storage.getAllFilms());
+
+        storage.addLike(1, 10);
+        storage.addLike(1, -3);
+        storage.addLike(2, 10);
+        assertSameAsJackson(storage.getAllFilms());
+
+        storage.updateFilm(new Film(1, "Новое название", null, LocalDate.of(1999, 12, 31), 100, null));
+        storage.removeLike(2, 10);
+        assertSameAsJackson(storage.getAllFilms());
+        assertSameAsJackson(storage.getFilmById(1));
+    }
+
+    @Test
+    void users_WithLiveLikedFilms_ShouldMatchJackson() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < 3; i++) {
+            storage.addUser(new User(0, "user" + i + "@mail.ru", "user" + i, "Имя " + i,
+                    LocalDate.of(1990, 1, 1 + i), new CompactLongSet(), new CompactLongSet()));
+        }
+        storage.addFriend(1, 2);
+        assertSameAsJackson(storage.getAllUsers());
+
+        List<User> withLikes = storage.getAllUsers().stream()
+                .map(user -> user.withLikedFilms(new CompactLongSet(List.of(user.getId(), 1_000_000_000_007L))))
+                .toList();
+        assertSameAsJackson(withLikes);
+
+        storage.removeFriend(1, 2);
+        storage.updateUser(new User(3, "other@mail.ru", "other", "Другой", LocalDate.of(1980, 5, 5), null, null));
+        assertSameAsJackson(storage.getAllUsers());
+    }
+
+    @Test
+    void write_AfterScalarFieldUpdate_ShouldChangeResponse() throws Exception {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        Film film = films.addFilm(new Film(0, "Фильм", "Описание", LocalDate.of(2000, 1, 1), 90,
+                new CompactLongSet()));
+        films.addLike(film.getId(), 1);
+        String before = write(films.getFilmById(film.getId()));
+
+        // Лайки не меняются, обновлённая версия отличается только длительностью
+        films.updateFilm(new Film(film.getId(), "Фильм", "Описание", LocalDate.of(2000, 1, 1), 120, null));
+        Film updated = films.getFilmById(film.getId());
+        assertNotEquals(before, write(updated));
+        assertEquals(objectMapper.writeValueAsString(updated), write(updated));
+
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        User user = users.addUser(new User(0, "user@mail.ru", "user", "Имя", LocalDate.of(1990, 1, 1),
+                new CompactLongSet(), new CompactLongSet()));
+        String userBefore = write(users.getUserById(user.getId()));
+
+        users.updateUser(new User(user.getId(), "user@mail.ru", "user", "Имя", LocalDate.of(1991, 1, 1), null, null));
+        User updatedUser = users.getUserById(user.getId());
+        assertNotEquals(userBefore, write(updatedUser));
+        assertEquals(objectMapper.writeValueAsString(updatedUser), write(updatedUser));
+    }
+
+    @Test
+    void canWrite_ShouldTakeOnlyFilmsAndUsers() {
+        assertTrue(converter.canWrite(new ParameterizedTypeReference<List<Film>>() {
+        }.getType(), List.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(User.class, User.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {
+        }.getType(), List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(User.class, User.class, MediaType.TEXT_EVENT_STREAM));
+        assertFalse(converter.canRead(Film.class, null, MediaType.APPLICATION_JSON));
+    }
+
+    private void assertSameAsJackson(Object value) throws Exception {
+        // Дважды: первый раз фрагменты кодируются, второй берутся из кэша
+        for (int i = 0; i < 2; i++) {
+            assertEquals(objectMapper.writeValueAsString(value), write(value));
+        }
+    }
+
+    private String write(Object value) throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(value, value.getClass(), MediaType.APPLICATION_JSON, message);
+        return message.getBodyAsString();
+    }
+}
@@ -12,13 +12,20 @@ import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityFeed;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -34,6 +41,9 @@ public class ValidationModelsTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private PopularityFeed popularityFeed;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -73,12 +83,13 @@ public class ValidationModelsTest {
 
     @Test
     void updateFilm_NonExistent_ShouldReturn404() throws Exception {
-        Film filmToUpdate = new Film();
-        filmToUpdate.setId(999);
-        filmToUpdate.setName("Обновленный фильм");
-        filmToUpdate.setDescription("Обновление");
-        filmToUpdate.setReleaseDate(LocalDate.of(2000, 1, 1));
-        filmToUpdate.setDuration(100);
+        Film filmToUpdate = Film.builder()
+                .id(999)
+                .name("Обновленный фильм")
+                .description("Обновление")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
 
         when(filmService.updateFilm(filmToUpdate)).thenThrow(new ValidationException("Фильм не найден"));
 
@@ -112,12 +123,13 @@ public class ValidationModelsTest {
 
     @Test
     void updateUser_NonExistent_ShouldReturnError() throws Exception {
-        User nonExistentUser = new User();
-        nonExistentUser.setId(999);
-        nonExistentUser.setEmail("test@test.com");
-        nonExistentUser.setLogin("login");
-        nonExistentUser.setName("Name");
-        nonExistentUser.setBirthday(LocalDate.of(1946, 1, 1));
+        User nonExistentUser = User.builder()
+                .id(999)
+                .email("test@test.com")
+                .login("login")
+                .name("Name")
+                .birthday(LocalDate.of(1946, 1, 1))
+                .build();
 
         when(userService.updateUser(nonExistentUser)).thenThrow(new ValidationException("Пользователь не найден"));
 
@@ -138,43 +150,85 @@ public class ValidationModelsTest {
                 .andExpect(jsonPath("$.releaseDate").value("Дата релиза не может быть раньше 28 декабря 1895 года"));
     }
 
+    @Test
+    void getAllFilms_WithNonPositiveLimit_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPopularFilms_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        when(filmService.getFilmsTag()).thenReturn("1-5");
+
+        mockMvc.perform(get("/films/popular").header("If-None-Match", "\"1-5\""))
+                .andExpect(status().isNotModified());
+        verify(filmService, never()).getPopularFilms(anyInt());
+
+        mockMvc.perform(get("/films/popular").header("If-None-Match", "\"1-4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-5\""));
+    }
+
+    @Test
+    void addFilmsBatch_ShouldApplyValidItemsAndReportErrors() throws Exception {
+        when(filmService.addFilms(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        String valid = objectMapper.writeValueAsString(validFilm);
+        String invalid = objectMapper.writeValueAsString(invalidFilm);
+        String mistyped = "{\"name\": \"Фильм\", \"duration\": \"долго\"}";
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + valid + "," + invalid + "," + mistyped + "," + valid + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[1].index").value(2));
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType("application/x-ndjson")
+                        .content(valid + "\n" + invalid + "\n" + valid + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(1));
+    }
+
     private Film createValidFilm() {
-        Film film = new Film();
-        film.setId(1);
-        film.setName("Тестовый фильм");
-        film.setDescription("Описание фильма");
-        film.setReleaseDate(LocalDate.of(2000, 1, 1));
-        film.setDuration(120);
-        return film;
+        return Film.builder()
+                .id(1)
+                .name("Тестовый фильм")
+                .description("Описание фильма")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .build();
     }
 
     private Film createInvalidFilm() {
-        Film film = new Film();
-        film.setId(2);
-        film.setName("");
-        film.setDescription("a".repeat(201));
-        film.setReleaseDate(LocalDate.of(3000, 1, 1));
-        return film;
+        return Film.builder()
+                .id(2)
+                .name("")
+                .description("a".repeat(201))
+                .releaseDate(LocalDate.of(3000, 1, 1))
+                .build();
     }
 
     private User createValidUser() {
-        User user = new User();
-        user.setId(1);
-        user.setEmail("test@example.com");
-        user.setLogin("testlogin");
-        user.setName("Test User");
-        user.setBirthday(LocalDate.of(1990, 5, 20));
-        return user;
+        return User.builder()
+                .id(1)
+                .email("test@example.com")
+                .login("testlogin")
+                .name("Test User")
+                .birthday(LocalDate.of(1990, 5, 20))
+                .build();
     }
 
     private User createInvalidUser() {
-        User user = new User();
-        user.setId(2);
-        user.setEmail("invalid-email");
-        user.setLogin("invalid login");
-        user.setName("");
-        user.setBirthday(LocalDate.of(3000, 1, 1));
-        return user;
+        return User.builder()
+                .id(2)
+                .email("invalid-email")
+                .login("invalid login")
+                .name("")
+                .birthday(LocalDate.of(3000, 1, 1))
+                .build();
     }
 
 }
@@ -0,0 +1,334 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.ListeningFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.GraphIndexedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Общие проверки сервисов, которые запускаются для каждой реализации хранилища.
+ */
+public abstract class AbstractServiceTest {
+
+    protected FilmService filmService;
+    protected UserService userService;
+    protected FilmStorage filmStorage;
+    protected LikeWriteBuffer likeBuffer;
+
+    protected abstract FilmStorage createFilmStorage();
+
+    protected abstract UserStorage createUserStorage();
+
+    protected LikeWriteBuffer createLikeBuffer(FilmStorage filmStorage) {
+        return null;
+    }
+
+    @BeforeEach
+    void setUpServices() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FilmStorage storage = createFilmStorage();
+        LikeIndex likeIndex = new LikeIndex(storage::getAllFilms);
+        TrendingIndex trendingIndex = new TrendingIndex(List.of(Duration.ofHours(1)), 60,
+                Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        FilmSearchIndex searchIndex = new FilmSearchIndex(storage::getAllFilms);
+        FilmRangeIndex rangeIndex = new FilmRangeIndex(storage::getAllFilms);
+        filmStorage = new ListeningFilmStorage(storage, List.of(likeIndex, trendingIndex, searchIndex, rangeIndex));
+        likeBuffer = createLikeBuffer(filmStorage);
+        UserStorage userStorage = createUserStorage();
+        FriendshipGraph graph = new FriendshipGraph(userStorage::getAllUsers);
+        StorageVersions versions = new StorageVersions();
+        userService = new UserService(new GraphIndexedUserStorage(userStorage, graph), registry, likeBuffer, versions, graph,
+                likeIndex);
+        filmService = new FilmService(filmStorage, userService, registry, likeBuffer, versions, likeIndex,
+                trendingIndex, searchIndex, rangeIndex);
+    }
+
+    @AfterEach
+    void closeLikeBuffer() {
+        if (likeBuffer != null) {
+            likeBuffer.close();
+        }
+    }
+
+    @Test
+    void addAndUpdate_ShouldAssignIdsAndKeepLikes() {
+        User user = userService.addUser(user(1));
+        Film film = filmService.addFilm(film(1));
+        filmService.addLike(film.getId(), user.getId());
+
+        Film update = film(2).withId(film.getId());
+        filmService.updateFilm(update);
+
+        Film stored = filmService.getFilmById(film.getId());
+        assertEquals("Фильм 2", stored.getName());
+        assertEquals(LocalDate.of(2000, 1, 3), stored.getReleaseDate());
+        assertTrue(stored.getLikedUsers().contains(user.getId()));
+        assertEquals(user.getLogin(), userService.getUserById(user.getId()).getName());
+    }
+
+    @Test
+    void updateFilm_WithUnknownId_ShouldThrow() {
+        Film film = film(1).withId(999);
+        assertThrows(ValidationException.class, () -> filmService.updateFilm(film));
+        assertThrows(NotFoundException.class, () -> filmService.getFilmById(999));
+    }
+
+    @Test
+    void likes_ShouldOrderPopularFilmsAndRejectDuplicates() {
+        List<User> users = List.of(userService.addUser(user(1)), userService.addUser(user(2)),
+                userService.addUser(user(3)));
+        Film first = filmService.addFilm(film(1));
+        Film second = filmService.addFilm(film(2));
+        Film third = filmService.addFilm(film(3));
+        for (User user : users) {
+            filmService.addLike(second.getId(), user.getId());
+        }
+        filmService.addLike(third.getId(), users.get(0).getId());
+        assertThrows(ValidationException.class, () -> filmService.addLike(third.getId(), users.get(0).getId()));
+
+        assertEquals(List.of(second.getId(), third.getId(), first.getId()), ids(filmService.getPopularFilms(10)));
+        assertEquals(4, filmStorage.getLikesCount());
+
+        filmService.removeLike(second.getId(), users.get(0).getId());
+        filmService.removeLike(second.getId(), users.get(1).getId());
+        assertThrows(ValidationException.class,
+                () -> filmService.removeLike(second.getId(), users.get(1).getId()));
+        assertEquals(List.of(second.getId(), third.getId()), ids(filmService.getPopularFilms(2)));
+        assertEquals(1, filmService.getFilmById(second.getId()).getLikedUsers().size());
+    }
+
+    @Test
+    void addLikes_ShouldSkipExistingLikes() {
+        User first = userService.addUser(user(1));
+        User second = userService.addUser(user(2));
+        Film film = filmService.addFilm(film(1));
+        filmService.addLike(film.getId(), first.getId());
+        assertEquals(1, filmService.getFilmById(film.getId()).getLikedUsers().size());
+
+        assertEquals(1, filmStorage.addLikes(film.getId(), List.of(first.getId(), second.getId())));
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikedUsers().size());
+        assertEquals(2, filmStorage.getLikesCount());
+    }
+
+    @Test
+    void friends_ShouldBeMutualAndSupportCommonFriends() {
+        User first = userService.addUser(user(1));
+        User second = userService.addUser(user(2));
+        User common = userService.addUser(user(3));
+        userService.addFriend(first.getId(), common.getId());
+        userService.addFriend(second.getId(), common.getId());
+        userService.addFriend(first.getId(), second.getId());
+
+        assertEquals(List.of(second.getId(), common.getId()), ids(userService.getFriends(first.getId())));
+        assertEquals(List.of(first.getId(), second.getId()), ids(userService.getFriends(common.getId())));
+        assertEquals(List.of(common.getId()), ids(userService.getCommonFriends(first.getId(), second.getId())));
+        assertEquals(1, userService.getCommonFriendsCount(first.getId(), second.getId()));
+
+        userService.removeFriend(common.getId(), first.getId());
+        assertEquals(List.of(second.getId()), ids(userService.getFriends(first.getId())));
+        assertThrows(NotFoundException.class, () -> userService.addFriend(first.getId(), 999));
+    }
+
+    @Test
+    void batch_ShouldAssignConsecutiveIdsAndReportItemErrors() {
+        List<User> users = userService.addUsers(new ArrayList<>(List.of(user(1), user(2), user(3))));
+        List<Film> films = filmService.addFilms(new ArrayList<>(List.of(film(1), film(2))));
+        assertEquals(users.get(0).getId() + 2, users.get(2).getId());
+        assertEquals(films.get(0).getId() + 1, films.get(1).getId());
+        assertEquals(users.get(0).getLogin(), userService.getUserById(users.get(0).getId()).getName());
+
+        long filmId = films.get(0).getId();
+        List<String> errors = new ArrayList<>();
+        int added = filmService.addLikes(List.of(
+                new FilmLike(filmId, users.get(0).getId()),
+                new FilmLike(999, users.get(0).getId()),
+                new FilmLike(filmId, users.get(1).getId()),
+                new FilmLike(filmId, users.get(0).getId()),
+                new FilmLike(filmId, 999)), (position, message) -> errors.add(position + ": " + message));
+        assertEquals(2, added);
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(0).startsWith("1: "));
+        assertEquals(List.of(filmId, films.get(1).getId()), ids(filmService.getPopularFilms(2)));
+
+        errors.clear();
+        assertEquals(1, userService.addFriends(List.of(
+                new Friendship(users.get(0).getId(), users.get(2).getId()),
+                new Friendship(users.get(0).getId(), 999)), (position, message) -> errors.add(position + ": " + message)));
+        assertEquals(List.of("1: Пользователь с id 999 не найден"), errors);
+        assertEquals(List.of(users.get(0).getId()), ids(userService.getFriends(users.get(2).getId())));
+    }
+
+    @Test
+    void friendSuggestions_ShouldRankByMutualFriends() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(userService.addUser(user(i)));
+        }
+        long me = users.get(0).getId();
+        userService.addFriend(me, users.get(1).getId());
+        userService.addFriend(me, users.get(2).getId());
+        userService.addFriend(users.get(1).getId(), users.get(3).getId());
+        userService.addFriend(users.get(2).getId(), users.get(3).getId());
+        userService.addFriend(users.get(2).getId(), users.get(4).getId());
+        userService.addFriend(users.get(5).getId(), users.get(4).getId());
+
+        assertEquals(List.of(users.get(3).getId(), users.get(4).getId()),
+                ids(userService.getFriendSuggestions(me, 10)));
+        userService.addFriend(me, users.get(3).getId());
+        assertEquals(List.of(users.get(4).getId()), ids(userService.getFriendSuggestions(me, 10)));
+        assertThrows(NotFoundException.class, () -> userService.getFriendSuggestions(999, 10));
+    }
+
+    @Test
+    void recommendations_ShouldSuggestFilmsOfUsersWithSimilarLikes() {
+        User user = userService.addUser(user(1));
+        User similar = userService.addUser(user(2));
+        User other = userService.addUser(user(3));
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            films.add(filmService.addFilm(film(i)));
+        }
+        filmService.addLike(films.get(0).getId(), user.getId());
+        filmService.addLike(films.get(1).getId(), user.getId());
+        filmService.addLike(films.get(0).getId(), similar.getId());
+        filmService.addLike(films.get(1).getId(), similar.getId());
+        filmService.addLike(films.get(2).getId(), similar.getId());
+        filmService.addLike(films.get(3).getId(), other.getId());
+
+        assertEquals(List.of(films.get(2).getId()), ids(filmService.getRecommendations(user.getId(), 10)));
+        assertEquals(Set.of(films.get(0).getId(), films.get(1).getId(), films.get(2).getId()),
+                userService.getUserById(similar.getId()).getLikedFilms());
+
+        filmService.removeLike(films.get(2).getId(), similar.getId());
+        assertTrue(filmService.getRecommendations(user.getId(), 10).isEmpty());
+        assertEquals(Set.of(films.get(0).getId(), films.get(1).getId()),
+                userService.getUserById(similar.getId()).getLikedFilms());
+        assertThrows(NotFoundException.class, () -> filmService.getRecommendations(999, 10));
+    }
+
+    @Test
+    void trending_ShouldRankFilmsByLikesInWindow() {
+        List<User> users = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(userService.addUser(user(i)));
+            films.add(filmService.addFilm(film(i)));
+        }
+        filmService.addLike(films.get(1).getId(), users.get(0).getId());
+        filmService.addLike(films.get(1).getId(), users.get(1).getId());
+        filmService.addLike(films.get(2).getId(), users.get(0).getId());
+        filmService.addLike(films.get(0).getId(), users.get(2).getId());
+        filmService.removeLike(films.get(0).getId(), users.get(2).getId());
+
+        assertEquals(List.of(films.get(1).getId(), films.get(2).getId()),
+                ids(filmService.getTrendingFilms(Duration.ofHours(1), 10)));
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms(Duration.ofMinutes(5), 10));
+    }
+
+    @Test
+    void search_ShouldFindUpdatedFilmsByPrefixAndRankLikedHigher() {
+        User user = userService.addUser(user(1));
+        Film first = filmService.addFilm(film(1).withName("Тёмный рыцарь"));
+        Film second = filmService.addFilm(film(2).withName("Рыцари круглого стола"));
+        filmService.addLike(second.getId(), user.getId());
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmService.searchFilms("рыц", 10, 1)));
+        assertEquals(List.of(first.getId()), ids(filmService.searchFilms("темный рыц", 10, 1)));
+
+        filmService.updateFilm(first.withName("Светлый рыцарь"));
+        assertTrue(filmService.searchFilms("темный", 10, 1).isEmpty());
+        assertEquals(List.of(first.getId()), ids(filmService.searchFilms("СВЕТЛ", 10, 1)));
+    }
+
+    @Test
+    void rangeFilter_ShouldFollowUpdatesAndPageByPopularity() {
+        User user = userService.addUser(user(1));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            ids.add(filmService.addFilm(film(i)).getId());
+        }
+        FilmFilter shortFilms = new FilmFilter(null, null, null, 93);
+        assertEquals(ids.subList(0, 3), ids(filmService.getFilms(shortFilms, FilmSort.ID, 0, 10)));
+        assertEquals(ids.subList(1, 3), ids(filmService.getFilms(shortFilms, FilmSort.ID, ids.get(0), 10)));
+
+        Film moved = filmService.getFilmById(ids.get(4)).withDuration(60).withReleaseDate(LocalDate.of(1999, 1, 1));
+        filmService.updateFilm(moved);
+        filmService.addLike(ids.get(2), user.getId());
+
+        List<Film> popular = filmService.getFilms(shortFilms, FilmSort.POPULAR, 0, 2);
+        assertEquals(List.of(ids.get(2), ids.get(0)), ids(popular));
+        assertEquals(List.of(ids.get(1), ids.get(4)),
+                ids(filmService.getFilms(shortFilms, FilmSort.POPULAR, ids.get(0), 2)));
+        assertEquals(List.of(ids.get(4)), ids(filmService.getFilms(
+                new FilmFilter(null, LocalDate.of(2000, 1, 1), null, null), FilmSort.ID, 0, 10)));
+    }
+
+    @Test
+    void pagination_ShouldReturnPagesInIdOrder() {
+        for (int i = 1; i <= 5; i++) {
+            filmService.addFilm(film(i));
+            userService.addUser(user(i));
+        }
+        List<Film> films = filmService.getAllFilms();
+        List<Film> page = filmService.getAllFilms(films.get(1).getId(), 2);
+        assertEquals(ids(films.subList(2, 4)), ids(page));
+
+        List<User> users = userService.getAllUsers();
+        assertEquals(5, users.size());
+        assertEquals(ids(users.subList(3, 5)), ids(userService.getAllUsers(users.get(2).getId(), 10)));
+    }
+
+    private static List<Long> ids(List<?> entities) {
+        return entities.stream()
+                .map(entity -> entity instanceof Film film ? film.getId() : ((User) entity).getId())
+                .toList();
+    }
+
+    private static Film film(int index) {
+        return Film.builder()
+                .name("Фильм " + index)
+                .description("Описание " + index)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(index))
+                .duration(90 + index)
+                .build();
+    }
+
+    private static User user(int index) {
+        return User.builder()
+                .email("user" + index + "@example.com")
+                .login("user" + index)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
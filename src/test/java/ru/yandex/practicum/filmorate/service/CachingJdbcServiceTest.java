@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingJdbcServiceTest extends JdbcServiceTest {
+
+    private FilmStorage jdbcFilmStorage;
+    private UserStorage jdbcUserStorage;
+
+    @Override
+    protected FilmStorage createFilmStorage() {
+        jdbcFilmStorage = super.createFilmStorage();
+        return new CachingFilmStorage(jdbcFilmStorage, 1000, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+    }
+
+    @Override
+    protected UserStorage createUserStorage() {
+        jdbcUserStorage = super.createUserStorage();
+        return new CachingUserStorage(jdbcUserStorage, 1000, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void concurrentWritesAndReads_ShouldLeaveCachesCoherent() throws Exception {
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Film film = Film.builder()
+                    .name("Фильм " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build();
+            filmIds.add(filmService.addFilm(film).getId());
+        }
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            User user = User.builder()
+                    .email("u" + i + "@example.com")
+                    .login("u" + i)
+                    .build();
+            userIds.add(userService.addUser(user).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                List<Long> own = userIds.subList(t * 10, (t + 1) * 10);
+                futures.add(executor.submit(() -> {
+                    for (long userId : own) {
+                        for (int i = 0; i < filmIds.size(); i++) {
+                            if (userId % (i + 2) != 0) {
+                                filmService.addLike(filmIds.get(i), userId);
+                            }
+                        }
+                        userService.addFriend(userId, own.get(0) == userId ? own.get(1) : own.get(0));
+                    }
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        filmService.getPopularFilms(3);
+                        filmService.getFilmById(filmIds.get(i % filmIds.size()));
+                        userService.getFriends(own.get(0));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(jdbcFilmStorage.getPopularFilms(5), filmService.getPopularFilms(5));
+        for (long filmId : filmIds) {
+            assertEquals(jdbcFilmStorage.getFilmById(filmId), filmService.getFilmById(filmId));
+        }
+        assertEquals(jdbcUserStorage.getUsersByIds(userIds), userService.getAllUsers().stream()
+                .map(user -> userService.getUserById(user.getId()))
+                .toList());
+        for (long userId : userIds) {
+            assertEquals(jdbcUserStorage.getUsersByIds(jdbcUserStorage.getUserById(userId).getFriends()),
+                    userService.getFriends(userId));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JdbcServiceTest extends AbstractServiceTest {
+
+    private final EmbeddedDatabase database;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public JdbcServiceTest() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        jdbc = new NamedParameterJdbcTemplate(database);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void shutDownDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void addFilms_WithLikes_ShouldStoreFilmsAndLikesTogether() {
+        List<User> users = userService.addUsers(new ArrayList<>(List.of(user("first"), user("second"))));
+        long[] userIds = users.stream().mapToLong(User::getId).toArray();
+        JdbcFilmStorage storage = new JdbcFilmStorage(jdbc, transactions);
+
+        List<Film> films = storage.addFilms(new ArrayList<>(List.of(film(userIds[0]), film(userIds))));
+        assertEquals(3, storage.getLikesCount());
+        assertEquals(List.of(films.get(1).getId(), films.get(0).getId()),
+                storage.getPopularFilms(2).stream().map(Film::getId).toList());
+        assertArrayEquals(userIds, storage.getFilmById(films.get(1).getId()).getLikedUsers().toLongArray());
+
+        // Лайки не вставились — фильмы пачки тоже не должны остаться
+        jdbc.getJdbcTemplate().execute("ALTER TABLE film_likes RENAME TO film_likes_off");
+        assertThrows(DataAccessException.class, () -> storage.addFilms(new ArrayList<>(List.of(film(userIds[0])))));
+        assertEquals(2, storage.getFilmsCount());
+    }
+
+    private static Film film(long... likedUsers) {
+        return Film.builder()
+                .name("Фильм")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .likedUsers(new CompactLongSet(LongStream.of(likedUsers).boxed().toList()))
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Override
+    protected FilmStorage createFilmStorage() {
+        return new JdbcFilmStorage(jdbc, transactions);
+    }
+
+    @Override
+    protected UserStorage createUserStorage() {
+        return new JdbcUserStorage(jdbc, transactions);
+    }
+}
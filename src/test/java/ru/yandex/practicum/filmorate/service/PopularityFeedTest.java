@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.ListeningFilmStorage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.film;
+
+public class PopularityFeedTest {
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final PopularityFeed feed = new PopularityFeed(() -> storage, new ObjectMapper(), 10, 3, 100,
+            Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final ListeningFilmStorage films = new ListeningFilmStorage(storage, List.of(feed));
+
+    @Test
+    void likeStorm_ShouldProduceOneUpdatePerTick() {
+        long first = films.addFilm(film()).getId();
+        long second = films.addFilm(film()).getId();
+        films.addLike(first, 1);
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(2, emitter);
+
+        for (long userId = 1; userId <= 500; userId++) {
+            films.addLike(second, userId);
+        }
+        feed.tick();
+        feed.tick();
+
+        assertEquals(List.of(
+                "event:snapshot\ndata:{\"ranks\":[{\"rank\":0,\"filmId\":1,\"likes\":1},"
+                        + "{\"rank\":1,\"filmId\":2,\"likes\":0}],\"size\":2}\n\n",
+                "event:top\ndata:{\"ranks\":[{\"rank\":0,\"filmId\":2,\"likes\":500},"
+                        + "{\"rank\":1,\"filmId\":1,\"likes\":1}],\"size\":2}\n\n",
+                "event:likes\ndata:{\"films\":[{\"filmId\":2,\"likes\":500}]}\n\n"), emitter.events);
+    }
+
+    @Test
+    void slowSubscriber_ShouldBeDisconnectedWhenBufferFills() throws InterruptedException {
+        feed.start(Executors.defaultThreadFactory(), 1, Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1));
+        long filmId = films.addFilm(film()).getId();
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.release = new CountDownLatch(1);
+        try {
+            feed.subscribe(1, emitter);
+            for (long userId = 1; userId <= 3; userId++) {
+                films.addLike(filmId, userId);
+                feed.tick();
+            }
+
+            assertTrue(emitter.completed);
+            assertEquals(0, feed.getSubscriberCount());
+        } finally {
+            emitter.release.countDown();
+            feed.close();
+        }
+    }
+
+    @Test
+    void stalledSubscriber_ShouldNotHoldSenderFromOthers() throws InterruptedException {
+        // Один поток отправки: клиент, который не читает, занял бы его навсегда
+        feed.start(Executors.defaultThreadFactory(), 1, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofMillis(50));
+        long filmId = films.addFilm(film()).getId();
+        RecordingEmitter stalled = new RecordingEmitter();
+        stalled.release = new CountDownLatch(1);
+        RecordingEmitter reader = new RecordingEmitter();
+        try {
+            feed.subscribe(1, stalled);
+            feed.subscribe(1, reader);
+            films.addLike(filmId, 1);
+            feed.tick();
+
+            awaitEvents(reader, 3);
+            assertEquals(1, feed.getSubscriberCount());
+            assertTrue(stalled.events.isEmpty());
+
+            films.addLike(filmId, 2);
+            feed.tick();
+            awaitEvents(reader, 5);
+        } finally {
+            stalled.release.countDown();
+            feed.close();
+        }
+    }
+
+    private static void awaitEvents(RecordingEmitter emitter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (emitter.events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, emitter.events.size(), "События: " + emitter.events);
+    }
+
+    /**
+     * Записывает отправленные события. С {@code release} отправка ждёт его, как запись клиенту, который
+     * перестал читать.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private CountDownLatch release;
+        private volatile boolean completed;
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+public class ShardedServiceTest extends AbstractServiceTest {
+
+    @Override
+    protected FilmStorage createFilmStorage() {
+        return new InMemoryFilmStorage(4);
+    }
+
+    @Override
+    protected UserStorage createUserStorage() {
+        return new InMemoryUserStorage(4);
+    }
+}
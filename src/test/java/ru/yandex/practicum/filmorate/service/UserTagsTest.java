@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.ListeningFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.VersionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.GraphIndexedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.VersionedUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+public class UserTagsTest {
+
+    private final StorageVersions versions = new StorageVersions();
+    private final InMemoryFilmStorage films = new InMemoryFilmStorage();
+    private final LikeIndex likeIndex = new LikeIndex(films::getAllFilms);
+    private final FilmStorage filmStorage = new VersionedFilmStorage(
+            new ListeningFilmStorage(films, List.of(likeIndex)), versions);
+    // Интервал и пачка больше теста: отложенные лайки записываются только при сбросе
+    private final LikeWriteBuffer likeBuffer = new LikeWriteBuffer(filmStorage, 4, 64, 1_000, Duration.ofHours(1),
+            Executors.defaultThreadFactory(), new SimpleMeterRegistry());
+    private final UserService userService;
+
+    UserTagsTest() {
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        FriendshipGraph graph = new FriendshipGraph(users::getAllUsers);
+        userService = new UserService(new VersionedUserStorage(new GraphIndexedUserStorage(users, graph), versions),
+                new SimpleMeterRegistry(), likeBuffer, versions, graph, likeIndex);
+    }
+
+    @AfterEach
+    void closeLikeBuffer() {
+        likeBuffer.close();
+    }
+
+    @Test
+    void userReads_AfterBufferedLike_ShouldSeeItAndChangeTags() {
+        long user = userService.addUser(user()).getId();
+        long other = userService.addUser(user()).getId();
+        userService.addFriend(other, user);
+        long[] filmIds = new long[3];
+        for (int i = 0; i < filmIds.length; i++) {
+            filmIds[i] = filmStorage.addFilm(film()).getId();
+        }
+
+        assertTrue(likeBuffer.submit(filmIds[0], user, true, () -> false));
+        assertTrue(userService.getUserById(user).getLikedFilms().contains(filmIds[0]));
+
+        String userTag = userService.getUserTag(user);
+        assertTrue(likeBuffer.submit(filmIds[1], user, true, () -> false));
+        assertNotEquals(userTag, userService.getUserTag(user));
+
+        String friendsTag = userService.getFriendsTag(other);
+        assertTrue(likeBuffer.submit(filmIds[2], user, true, () -> false));
+        assertNotEquals(friendsTag, userService.getFriendsTag(other));
+        assertEquals(3, userService.getFriends(other).get(0).getLikedFilms().size());
+    }
+
+    @Test
+    void getFriendsTag_ShouldChangeWithFriendsAndTheirData() {
+        long user = userService.addUser(user()).getId();
+        long friend = userService.addUser(user()).getId();
+        long stranger = userService.addUser(user()).getId();
+        String empty = userService.getFriendsTag(user);
+
+        userService.addFriend(user, friend);
+        String withFriend = userService.getFriendsTag(user);
+        assertNotEquals(empty, withFriend);
+
+        // Изменения пользователя не из списка друзей ответ не меняют
+        User strangerUpdate = user().withId(stranger);
+        userService.updateUser(strangerUpdate);
+        assertEquals(withFriend, userService.getFriendsTag(user));
+
+        User friendUpdate = user().withId(friend).withName("Новое имя");
+        userService.updateUser(friendUpdate);
+        String renamed = userService.getFriendsTag(user);
+        assertNotEquals(withFriend, renamed);
+
+        // Лайки друга входят в ответ, поэтому лайк через хранилище фильмов тоже меняет тег
+        long film = filmStorage.addFilm(film()).getId();
+        filmStorage.addLike(film, friend);
+        String liked = userService.getFriendsTag(user);
+        assertNotEquals(renamed, liked);
+        assertEquals(List.of(film), List.copyOf(userService.getFriends(user).get(0).getLikedFilms()));
+
+        userService.removeFriend(user, friend);
+        assertNotEquals(liked, userService.getFriendsTag(user));
+    }
+}
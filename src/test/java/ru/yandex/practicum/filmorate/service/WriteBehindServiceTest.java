@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WriteBehindServiceTest extends InMemoryServiceTest {
+
+    @Override
+    protected LikeWriteBuffer createLikeBuffer(FilmStorage filmStorage) {
+        return new LikeWriteBuffer(filmStorage, 4, 64, 16, Duration.ofMillis(1),
+                Executors.defaultThreadFactory(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void concurrentToggles_ShouldEndInLastStateOfEachUser() throws Exception {
+        Film film = Film.builder()
+                .name("Хит")
+                .releaseDate(LocalDate.of(2020, 1, 1))
+                .duration(100)
+                .build();
+        long filmId = filmService.addFilm(film).getId();
+        int threads = 8;
+        int usersPerThread = 50;
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < threads * usersPerThread; i++) {
+            User user = User.builder()
+                    .email("u" + i + "@example.com")
+                    .login("u" + i)
+                    .build();
+            userIds.add(userService.addUser(user).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<Long> own = userIds.subList(t * usersPerThread, (t + 1) * usersPerThread);
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 5; round++) {
+                        for (long userId : own) {
+                            filmService.addLike(filmId, userId);
+                        }
+                        for (long userId : own.subList(0, round < 4 ? own.size() : own.size() / 2)) {
+                            filmService.removeLike(filmId, userId);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * usersPerThread / 2, filmService.getFilmById(filmId).getLikedUsers().size());
+        assertEquals(threads * usersPerThread / 2, filmStorage.getLikesCount());
+    }
+}
@@ -0,0 +1,275 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.CompactLongSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+public class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    @Test
+    void addFilm_Concurrently_ShouldAssignUniqueIds() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                ids.add(storage.addFilm(createFilm()).getId());
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, ids.size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, storage.getAllFilms().size());
+    }
+
+    @Test
+    void addUser_Concurrently_ShouldAssignUniqueIds() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                ids.add(storage.addUser(createUser()).getId());
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, ids.size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, storage.getAllUsers().size());
+    }
+
+    @Test
+    void addLike_OnHotFilmConcurrently_ShouldNotLoseLikes() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film film = storage.addFilm(createFilm());
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long userId = (long) thread * OPERATIONS_PER_THREAD + i;
+                assertTrue(storage.addLike(film.getId(), userId));
+                if (i % 10 == 0) {
+                    Film update = createFilm().withId(film.getId());
+                    storage.updateFilm(update);
+                }
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, storage.getFilmById(film.getId()).getLikedUsers().size());
+    }
+
+    @Test
+    void getFilmById_DuringConcurrentLikes_ShouldReturnWholeImmutableVersions() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film film = storage.addFilm(createFilm());
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                if (thread == 0) {
+                    Film version = storage.getFilmById(film.getId());
+                    int likes = version.getLikedUsers().size();
+                    Film serialized = objectMapper.readValue(objectMapper.writeValueAsString(version), Film.class);
+                    assertEquals(likes, serialized.getLikedUsers().size());
+                    assertEquals(likes, version.getLikedUsers().size());
+                } else {
+                    storage.addLike(film.getId(), (long) thread * OPERATIONS_PER_THREAD + i);
+                }
+            }
+        });
+
+        assertEquals(0, film.getLikedUsers().size());
+        assertEquals((THREADS - 1) * OPERATIONS_PER_THREAD,
+                storage.getFilmById(film.getId()).getLikedUsers().size());
+    }
+
+    @Test
+    void addAndUpdate_ShouldNotShareCallerSets() {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        CompactLongSet likedUsers = new CompactLongSet();
+        likedUsers.add(1);
+        Film film = films.addFilm(createFilm().withLikedUsers(likedUsers));
+        likedUsers.add(2);
+        assertEquals(1, films.getFilmById(film.getId()).getLikedUsers().size());
+
+        films.updateFilm(createFilm().withId(film.getId()).withDuration(90));
+        assertEquals(90, films.getFilmById(film.getId()).getDuration());
+        assertEquals(1, films.getFilmById(film.getId()).getLikedUsers().size());
+
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        CompactLongSet friends = new CompactLongSet();
+        User user = users.addUser(createUser().withFriends(friends));
+        friends.add(2);
+        assertTrue(users.getUserById(user.getId()).getFriends().isEmpty());
+    }
+
+    @Test
+    void getPopularFilms_AfterConcurrentLikes_ShouldMatchFullSort() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            filmIds.add(storage.addFilm(createFilm()).getId());
+        }
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long filmId = filmIds.get((i * 31 + thread) % (i % filmIds.size() + 1));
+                long userId = i % 500;
+                if (!storage.addLike(filmId, userId)) {
+                    storage.removeLike(filmId, userId);
+                }
+            }
+        });
+
+        List<Long> expected = storage.getAllFilms().stream()
+                .sorted(Comparator.comparingLong((Film film) -> film.getLikedUsers().size()).reversed()
+                        .thenComparingLong(Film::getId))
+                .limit(50)
+                .map(Film::getId)
+                .toList();
+        List<Long> actual = storage.getPopularFilms(50).stream()
+                .map(Film::getId)
+                .toList();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shardedStorage_AfterConcurrentWrites_ShouldMergeInIdAndPopularityOrder() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(7);
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                Film film = storage.addFilm(createFilm());
+                for (int like = 0; like < film.getId() % 13; like++) {
+                    storage.addLike(film.getId(), like);
+                }
+            }
+        });
+
+        List<Film> films = storage.getAllFilms();
+        List<Long> ids = films.stream().map(Film::getId).toList();
+        assertEquals(LongStream.rangeClosed(1, (long) THREADS * OPERATIONS_PER_THREAD).boxed().toList(), ids);
+        assertEquals(ids.subList(100, 5_100), storage.getAllFilms(100, 5_000).stream().map(Film::getId).toList());
+
+        List<Long> expected = films.stream()
+                .sorted(Comparator.comparingLong((Film film) -> film.getLikedUsers().size()).reversed()
+                        .thenComparingLong(Film::getId))
+                .limit(1_000)
+                .map(Film::getId)
+                .toList();
+        assertEquals(expected, storage.getPopularFilms(1_000).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void addFriend_Concurrently_ShouldKeepBothSides() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        User hub = storage.addUser(createUser());
+        List<Long> others = new ArrayList<>();
+        for (int i = 0; i < THREADS * 100; i++) {
+            others.add(storage.addUser(createUser()).getId());
+        }
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = thread; i < others.size(); i += THREADS) {
+                storage.addFriend(hub.getId(), others.get(i));
+            }
+        });
+
+        assertEquals(others.size(), storage.getUserById(hub.getId()).getFriends().size());
+        for (long other : others) {
+            assertTrue(storage.getUserById(other).getFriends().contains(hub.getId()));
+        }
+    }
+
+    @Test
+    void addLike_Throughput_ShouldBeReportedPerThreadCount() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            InMemoryFilmStorage storage = new InMemoryFilmStorage();
+            List<Long> filmIds = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                filmIds.add(storage.addFilm(createFilm()).getId());
+            }
+
+            long start = System.nanoTime();
+            runConcurrently(threads, thread -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD * 10; i++) {
+                    storage.addLike(filmIds.get(i % filmIds.size()), (long) thread * OPERATIONS_PER_THREAD * 10 + i);
+                }
+            });
+            long elapsedNanos = System.nanoTime() - start;
+
+            long total = (long) threads * OPERATIONS_PER_THREAD * 10;
+            long likes = storage.getAllFilms().stream().mapToLong(film -> film.getLikedUsers().size()).sum();
+            assertEquals(total, likes);
+            log.info("Потоков: {}, лайков в секунду: {}", threads, total * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+    }
+
+    private void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Film createFilm() {
+        return Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .build();
+    }
+
+    private User createUser() {
+        return User.builder()
+                .email("user@example.com")
+                .login("login")
+                .name("Name")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
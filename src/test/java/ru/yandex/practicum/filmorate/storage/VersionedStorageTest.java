@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.VersionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.VersionedUserStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+public class VersionedStorageTest {
+
+    private final StorageVersions versions = new StorageVersions();
+
+    @Test
+    void filmStorage_ShouldBumpVersionsOfChangedFilmsAndLikers() {
+        VersionedFilmStorage storage = new VersionedFilmStorage(new InMemoryFilmStorage(), versions);
+        Film film = storage.addFilm(film());
+        Film other = storage.addFilm(film());
+        assertEquals(2, versions.films());
+
+        long filmVersion = versions.film(film.getId());
+        long otherVersion = versions.film(other.getId());
+        storage.getFilmById(film.getId());
+        storage.getAllFilms();
+        assertEquals(2, versions.films());
+
+        Film update = film().withId(film.getId());
+        storage.updateFilm(update);
+        assertNotEquals(filmVersion, versions.film(film.getId()));
+        assertEquals(otherVersion, versions.film(other.getId()));
+
+        filmVersion = versions.film(film.getId());
+        long likerVersion = versions.user(10);
+        storage.addLike(film.getId(), 10);
+        assertNotEquals(filmVersion, versions.film(film.getId()));
+        assertNotEquals(likerVersion, versions.user(10));
+
+        likerVersion = versions.user(10);
+        long otherLikerVersion = versions.user(11);
+        storage.removeLikes(film.getId(), List.of(10L, 11L));
+        assertNotEquals(likerVersion, versions.user(10));
+        assertNotEquals(otherLikerVersion, versions.user(11));
+        assertEquals(otherVersion, versions.film(other.getId()));
+    }
+
+    @Test
+    void userStorage_ShouldBumpVersionsOfBothFriends() {
+        VersionedUserStorage storage = new VersionedUserStorage(new InMemoryUserStorage(), versions);
+        User first = storage.addUser(user());
+        User second = storage.addUser(user());
+        User third = storage.addUser(user());
+        assertEquals(3, versions.users());
+
+        long firstVersion = versions.user(first.getId());
+        long secondVersion = versions.user(second.getId());
+        long thirdVersion = versions.user(third.getId());
+        storage.addFriend(first.getId(), second.getId());
+        assertNotEquals(firstVersion, versions.user(first.getId()));
+        assertNotEquals(secondVersion, versions.user(second.getId()));
+        assertEquals(thirdVersion, versions.user(third.getId()));
+
+        long users = versions.users();
+        User update = user().withId(third.getId());
+        storage.updateUser(update);
+        assertNotEquals(thirdVersion, versions.user(third.getId()));
+        assertNotEquals(users, versions.users());
+
+        secondVersion = versions.user(second.getId());
+        storage.getUsersByIds(List.of(first.getId(), second.getId()));
+        storage.removeFriend(first.getId(), second.getId());
+        assertNotEquals(secondVersion, versions.user(second.getId()));
+    }
+}
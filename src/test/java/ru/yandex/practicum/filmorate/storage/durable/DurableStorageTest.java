@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.storage.durable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.config.StorageProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DurableStorageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_AfterRestart_ShouldRebuildFilmsUsersLikesAndFriends() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        try (DurabilityManager manager = start(films, users)) {
+            populate(manager, films, users);
+        }
+
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage();
+        try (DurabilityManager ignored = start(recoveredFilms, recoveredUsers)) {
+            assertSameState(films, users, recoveredFilms, recoveredUsers);
+            assertEquals(films.getFilmsCount() + 1, recoveredFilms.addFilm(film("Новый")).getId());
+        }
+    }
+
+    @Test
+    void recover_FromSnapshotAndTail_ShouldRebuildState() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        try (DurabilityManager manager = start(films, users)) {
+            populate(manager, films, users);
+            manager.snapshot();
+            DurableFilmStorage filmStorage = new DurableFilmStorage(films, manager.getWriteAheadLog());
+            filmStorage.removeLike(1, 1);
+            filmStorage.addLike(2, 3);
+        }
+
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage();
+        try (DurabilityManager ignored = start(recoveredFilms, recoveredUsers)) {
+            assertSameState(films, users, recoveredFilms, recoveredUsers);
+        }
+    }
+
+    @Test
+    void recover_WithTornTail_ShouldKeepCompleteRecords() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        try (DurabilityManager manager = start(films, users)) {
+            populate(manager, films, users);
+        }
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .max(Comparator.naturalOrder())
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage();
+        try (DurabilityManager ignored = start(recoveredFilms, recoveredUsers)) {
+            assertEquals(films.getFilmsCount(), recoveredFilms.getFilmsCount());
+            assertEquals(users.getUsersCount(), recoveredUsers.getUsersCount());
+            assertNull(recoveredFilms.getFilmById(films.getFilmsCount() + 1));
+        }
+    }
+
+    @Test
+    void recover_LikesAndFriendsOfJustAddedEntities_ShouldKeepThem() throws Exception {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        int count = 2_000;
+        try (DurabilityManager manager = start(films, users)) {
+            DurableFilmStorage filmStorage = new DurableFilmStorage(films, manager.getWriteAheadLog());
+            DurableUserStorage userStorage = new DurableUserStorage(users, manager.getWriteAheadLog());
+            userStorage.addUser(user("first"));
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                // Лайк и дружба ставятся, как только новая запись стала видна, пока её добавление ещё пишется
+                Future<?> likes = executor.submit(() -> {
+                    for (long id = 1; id <= count; id++) {
+                        while (films.getFilmById(id) == null) {
+                            Thread.onSpinWait();
+                        }
+                        filmStorage.addLike(id, 1);
+                        while (users.getUserById(id + 1) == null) {
+                            Thread.onSpinWait();
+                        }
+                        userStorage.addFriend(1, id + 1);
+                    }
+                });
+                for (int i = 0; i < count / 2; i++) {
+                    filmStorage.addFilm(film("Фильм " + i));
+                    userStorage.addUser(user("user" + i));
+                }
+                filmStorage.addFilms(Stream.generate(() -> film("Пакет")).limit(count / 2).toList());
+                userStorage.addUsers(Stream.generate(() -> user("batch")).limit(count / 2).toList());
+                likes.get(1, TimeUnit.MINUTES);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage();
+        try (DurabilityManager ignored = start(recoveredFilms, recoveredUsers)) {
+            assertEquals(count, recoveredFilms.getLikesCount());
+            assertEquals(count, recoveredUsers.getUserById(1).getFriends().size());
+            assertSameState(films, users, recoveredFilms, recoveredUsers);
+        }
+    }
+
+    @Test
+    void snapshot_WhileAddsAreInFlight_ShouldKeepAddedEntities() throws Exception {
+        // Добавления останавливаются внутри записи, пока идёт снимок
+        CountDownLatch adding = new CountDownLatch(2);
+        CountDownLatch snapshotted = new CountDownLatch(1);
+        InMemoryFilmStorage films = new InMemoryFilmStorage() {
+            @Override
+            public void restoreFilm(Film film) {
+                pause(adding, snapshotted);
+                super.restoreFilm(film);
+            }
+        };
+        InMemoryUserStorage users = new InMemoryUserStorage() {
+            @Override
+            public void restoreUser(User user) {
+                pause(adding, snapshotted);
+                super.restoreUser(user);
+            }
+        };
+        try (DurabilityManager manager = start(films, users)) {
+            DurableFilmStorage filmStorage = new DurableFilmStorage(films, manager.getWriteAheadLog());
+            DurableUserStorage userStorage = new DurableUserStorage(users, manager.getWriteAheadLog());
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<Film> film = executor.submit(() -> filmStorage.addFilm(film("Во время снимка")));
+                Future<User> user = executor.submit(() -> userStorage.addUser(user("snapshot")));
+                assertTrue(adding.await(1, TimeUnit.MINUTES));
+                manager.snapshot();
+                snapshotted.countDown();
+                filmStorage.addLike(film.get(1, TimeUnit.MINUTES).getId(), user.get(1, TimeUnit.MINUTES).getId());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage();
+        try (DurabilityManager ignored = start(recoveredFilms, recoveredUsers)) {
+            assertEquals(1, recoveredFilms.getFilmsCount());
+            assertEquals(1, recoveredUsers.getUsersCount());
+            assertSameState(films, users, recoveredFilms, recoveredUsers);
+        }
+    }
+
+    @Test
+    void addFriend_WithCrossingStripes_ShouldNotDeadlock() throws Exception {
+        // Пользователи 1 и 1497 попадают в одну полосу блокировок, 2 — в другую, поэтому пары (1, 2)
+        // и (2, 1497) по порядку id взяли бы их встречно. Обе ждут, пока дружба (2, 3) держит полосу пользователя 2
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryUserStorage users = new InMemoryUserStorage() {
+            @Override
+            public void addFriend(long userId, long friendId) {
+                super.addFriend(userId, friendId);
+                if (friendId == 3) {
+                    pause(held, release);
+                }
+            }
+        };
+        try (DurabilityManager manager = start(new InMemoryFilmStorage(), users)) {
+            DurableUserStorage userStorage = new DurableUserStorage(users, manager.getWriteAheadLog());
+            userStorage.addUsers(Stream.generate(() -> user("user")).limit(1497).toList());
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            try {
+                Future<?> holder = executor.submit(() -> userStorage.addFriend(2, 3));
+                assertTrue(held.await(1, TimeUnit.MINUTES));
+                Future<?> second = executor.submit(() -> userStorage.addFriend(2, 1497));
+                Thread.sleep(100);
+                Future<?> first = executor.submit(() -> userStorage.addFriend(1, 2));
+                Thread.sleep(100);
+                release.countDown();
+                for (Future<?> future : List.of(holder, second, first)) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(Set.of(1L, 3L, 1497L), Set.copyOf(users.getUserById(2).getFriends()));
+        }
+    }
+
+    private static void pause(CountDownLatch reached, CountDownLatch resume) {
+        reached.countDown();
+        try {
+            resume.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DurabilityManager start(InMemoryFilmStorage films, InMemoryUserStorage users) throws IOException {
+        StorageProperties.Durable properties = new StorageProperties.Durable();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setFsync(FsyncPolicy.ALWAYS);
+        properties.setSnapshotInterval(Duration.ZERO);
+        DurabilityManager manager = new DurabilityManager(properties, films, users, Executors.defaultThreadFactory());
+        manager.start();
+        return manager;
+    }
+
+    private void populate(DurabilityManager manager, InMemoryFilmStorage films, InMemoryUserStorage users) {
+        DurableFilmStorage filmStorage = new DurableFilmStorage(films, manager.getWriteAheadLog());
+        DurableUserStorage userStorage = new DurableUserStorage(users, manager.getWriteAheadLog());
+        for (int i = 1; i <= 5; i++) {
+            userStorage.addUser(user("user" + i));
+            filmStorage.addFilm(film("Фильм " + i));
+        }
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(3, 2);
+        filmStorage.removeLike(1, 2);
+        userStorage.addFriend(1, 2);
+        userStorage.addFriend(1, 3);
+        userStorage.removeFriend(1, 3);
+
+        Film update = film("Обновлённый").withId(1);
+        filmStorage.updateFilm(update);
+        User userUpdate = user("renamed").withId(2);
+        userStorage.updateUser(userUpdate);
+    }
+
+    private void assertSameState(InMemoryFilmStorage films, InMemoryUserStorage users,
+                                 InMemoryFilmStorage recoveredFilms, InMemoryUserStorage recoveredUsers) {
+        List<Film> expectedFilms = films.getAllFilms();
+        assertEquals(expectedFilms, recoveredFilms.getAllFilms());
+        assertEquals(users.getAllUsers(), recoveredUsers.getAllUsers());
+        assertEquals(films.getLikesCount(), recoveredFilms.getLikesCount());
+        assertEquals(films.getPopularFilms(10), recoveredFilms.getPopularFilms(10));
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2001, 2, 3))
+                .duration(95)
+                .build();
+    }
+
+    private User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.film;
+
+public class FilmRangeIndexTest {
+
+    private static final LocalDate START = LocalDate.of(2000, 1, 1);
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final FilmRangeIndex index = new FilmRangeIndex(storage::getAllFilms);
+    private final ListeningFilmStorage indexed = new ListeningFilmStorage(storage, List.of(index));
+
+    @Test
+    void update_ShouldMoveFilmBetweenKeys() {
+        long first = indexed.addFilm(film(START, 90)).getId();
+        long second = indexed.addFilm(film(START.plusYears(1), 120)).getId();
+        FilmFilter longFilms = new FilmFilter(null, null, 100, null);
+        assertArrayEquals(new long[]{second}, index.find(longFilms, FilmSort.ID, 0, 10));
+
+        Film updated = film(START.plusYears(2), 150).withId(first);
+        indexed.updateFilm(updated);
+
+        assertArrayEquals(new long[]{first, second}, index.find(longFilms, FilmSort.ID, 0, 10));
+        assertArrayEquals(new long[]{first}, index.find(
+                new FilmFilter(START.plusYears(2), null, 100, 200), FilmSort.ID, 0, 10));
+        assertArrayEquals(new long[0], index.find(
+                new FilmFilter(START, START.plusMonths(6), null, null), FilmSort.ID, 0, 10));
+    }
+
+    @Test
+    void randomUpdates_ShouldMatchScanAcrossPages() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            indexed.addFilm(film(START.plusDays(random.nextInt(400)), 60 + random.nextInt(120)));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int query = 0; query < 10; query++) {
+                LocalDate from = random.nextBoolean() ? START.plusDays(random.nextInt(400)) : null;
+                LocalDate to = random.nextBoolean() && from != null ? from.plusDays(random.nextInt(200)) : null;
+                Integer minDuration = random.nextBoolean() ? 60 + random.nextInt(120) : null;
+                Integer maxDuration = minDuration != null && random.nextBoolean()
+                        ? minDuration + random.nextInt(60) : null;
+                FilmFilter filter = new FilmFilter(from, to, minDuration, maxDuration);
+                assertPagesMatchScan(filter, FilmSort.ID);
+                assertPagesMatchScan(filter, FilmSort.POPULAR);
+            }
+            for (int i = 0; i < 100; i++) {
+                long filmId = 1 + random.nextInt(500);
+                if (random.nextBoolean()) {
+                    Film updated = film(START.plusDays(random.nextInt(400)), 60 + random.nextInt(120)).withId(filmId);
+                    indexed.updateFilm(updated);
+                } else {
+                    indexed.addLike(filmId, 1 + random.nextInt(20));
+                }
+            }
+        }
+    }
+
+    private void assertPagesMatchScan(FilmFilter filter, FilmSort sort) {
+        Comparator<Film> order = sort == FilmSort.ID
+                ? Comparator.comparingLong(Film::getId)
+                : Comparator.<Film>comparingInt(film -> film.getLikedUsers().size()).reversed()
+                .thenComparingLong(Film::getId);
+        List<Long> expected = storage.getAllFilms().stream()
+                .filter(film -> matches(film, filter))
+                .sorted(order)
+                .map(Film::getId)
+                .toList();
+        List<Long> found = new ArrayList<>();
+        long after = 0;
+        long[] page;
+        do {
+            page = index.find(filter, sort, after, 7);
+            for (long filmId : page) {
+                found.add(filmId);
+                after = filmId;
+            }
+        } while (page.length == 7);
+        assertEquals(expected, found, filter + " " + sort);
+    }
+
+    private static boolean matches(Film film, FilmFilter filter) {
+        LocalDate date = film.getReleaseDate();
+        return (filter.releasedFrom() == null || !date.isBefore(filter.releasedFrom()))
+                && (filter.releasedTo() == null || !date.isAfter(filter.releasedTo()))
+                && (filter.minDuration() == null || film.getDuration() >= filter.minDuration())
+                && (filter.maxDuration() == null || film.getDuration() <= filter.maxDuration());
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.film;
+
+public class FilmSearchIndexTest {
+
+    private static final String[] WORDS = {"звезда", "звёздный", "война", "войны", "star", "wars", "stardust",
+            "матрица", "matrix", "ночь", "ночной", "дозор"};
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final FilmSearchIndex index = new FilmSearchIndex(storage::getAllFilms);
+    private final ListeningFilmStorage indexed = new ListeningFilmStorage(storage, List.of(index));
+
+    @Test
+    void tokens_ShouldSplitCyrillicAndLatinIgnoringCaseAndYo() {
+        assertEquals(List.of("ежик", "в", "тумане", "hedgehog", "2"),
+                FilmSearchIndex.tokens("Ёжик в тумане (Hedgehog-2), ёжик!"));
+        assertEquals(List.of("еж"), FilmSearchIndex.tokens("ЁЖ"));
+    }
+
+    @Test
+    void search_ShouldPreferNameAndExactMatches() {
+        long inDescription = indexed.addFilm(film("Другое", "Фильм про star")).getId();
+        long byPrefix = indexed.addFilm(film("Stardust", "Фантастика")).getId();
+        long inName = indexed.addFilm(film("Star", "Фантастика")).getId();
+
+        assertArrayEquals(new long[]{inName, byPrefix, inDescription}, index.search("star", 10, 0));
+        assertArrayEquals(new long[]{byPrefix}, index.search("stard", 10, 0));
+
+        // С весом лайков популярный фильм обходит более точное совпадение
+        indexed.addLikes(byPrefix, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L));
+        assertArrayEquals(new long[]{byPrefix, inName, inDescription}, index.search("star", 10, 2));
+        assertArrayEquals(new long[]{inName, byPrefix, inDescription}, index.search("star", 10, 0));
+    }
+
+    @Test
+    void randomUpdates_ShouldMatchScanAcrossLoad() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            indexed.addFilm(film(randomText(random), randomText(random)));
+        }
+        // Первый запрос строит индекс, дальше он обновляется вместе с фильмами, в том числе со сменой слов
+        for (int round = 0; round < 20; round++) {
+            for (String word : WORDS) {
+                assertSearchMatchesScan(word.substring(0, 3));
+                assertSearchMatchesScan(word + " " + WORDS[random.nextInt(WORDS.length)].substring(0, 2));
+            }
+            for (int i = 0; i < 100; i++) {
+                Film film = storage.getFilmById(1 + random.nextInt(300));
+                Film updated = film(randomText(random), randomText(random)).withId(film.getId());
+                indexed.updateFilm(updated);
+            }
+        }
+    }
+
+    private void assertSearchMatchesScan(String query) {
+        List<String> tokens = FilmSearchIndex.tokens(query);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (Film film : storage.getAllFilms()) {
+            List<String> words = FilmSearchIndex.tokens(film.getName() + " " + film.getDescription());
+            boolean all = true;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean last = i == tokens.size() - 1;
+                all &= words.stream().anyMatch(word -> last ? word.startsWith(token) : word.equals(token));
+            }
+            if (all) {
+                expected.add(film.getId());
+            }
+        }
+        long[] found = index.search(query, 1_000, 0);
+        Arrays.sort(found);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), found, query);
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1 + random.nextInt(3); i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.randomEdits;
+
+public class LikeIndexTest {
+
+    private static final int FILMS = 500;
+    private static final int USERS = 2_000;
+
+    @Test
+    void randomLikes_ShouldMatchFilmsAcrossLoad() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        LikeIndex index = new LikeIndex(storage::getAllFilms);
+        ListeningFilmStorage indexed = new ListeningFilmStorage(storage, List.of(index));
+        for (int i = 0; i < FILMS; i++) {
+            indexed.addFilm(film());
+        }
+        Random random = new Random(42);
+
+        // Часть лайков ставится до первого чтения индекса, часть — после
+        randomEdits(random, 20_000, FILMS, USERS, indexed::addLike, indexed::removeLike);
+        assertIndexMatchesFilms(index, storage);
+        randomEdits(random, 50_000, FILMS, USERS, indexed::addLike, indexed::removeLike);
+        assertIndexMatchesFilms(index, storage);
+    }
+
+    @Test
+    void films_ShouldReturnSnapshotDetachedFromIndex() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        LikeIndex index = new LikeIndex(storage::getAllFilms);
+        ListeningFilmStorage indexed = new ListeningFilmStorage(storage, List.of(index));
+        long first = indexed.addFilm(film()).getId();
+        long second = indexed.addFilm(film()).getId();
+        indexed.addLike(first, 1);
+
+        Set<Long> films = index.films(1);
+        indexed.addLike(second, 1);
+        assertThrows(UnsupportedOperationException.class, () -> films.add(second));
+
+        assertEquals(Set.of(first), films);
+        assertEquals(Set.of(first, second), index.films(1));
+    }
+
+    @Test
+    void recommendations_ForPopularFilms_ShouldPreferRareOverlap() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        LikeIndex index = new LikeIndex(storage::getAllFilms);
+        ListeningFilmStorage indexed = new ListeningFilmStorage(storage, List.of(index));
+        long blockbuster = indexed.addFilm(film()).getId();
+        long niche = indexed.addFilm(film()).getId();
+        long recommended = indexed.addFilm(film()).getId();
+        long other = indexed.addFilm(film()).getId();
+        // У блокбастера лайков намного больше выборки, поэтому его лайкнувшие просматриваются не все
+        for (long userId = 10; userId < 10 + 100 * LikeIndex.SAMPLE_SIZE; userId++) {
+            indexed.addLike(blockbuster, userId);
+            if (userId % 1000 == 0) {
+                indexed.addLike(other, userId);
+            }
+        }
+        indexed.addLike(blockbuster, 1);
+        indexed.addLike(niche, 1);
+        indexed.addLike(niche, 2);
+        indexed.addLike(recommended, 2);
+
+        // Общий редкий фильм весит больше общего блокбастера, поэтому первым соседом оказывается пользователь 2
+        assertArrayEquals(new long[]{recommended}, index.recommendations(1, 2));
+    }
+
+    @Test
+    void sample_ShouldKeepSmallestHashesAcrossAddsAndRemoves() {
+        LikeIndex.Likes likes = new LikeIndex.Likes();
+        TreeSet<Long> reference = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long id = 1 + random.nextInt(4 * LikeIndex.SAMPLE_SIZE);
+            if (random.nextInt(5) < 2) {
+                likes.remove(id);
+                reference.remove(id);
+            } else {
+                likes.add(id);
+                reference.add(id);
+            }
+            if (i % 1000 == 0) {
+                long[] sample = likes.sample();
+                long[] byHash = reference.stream()
+                        .sorted(Comparator.comparingLong(LikeIndex::hash))
+                        .mapToLong(Long::longValue)
+                        .limit(sample.length)
+                        .sorted()
+                        .toArray();
+                Arrays.sort(sample);
+                assertArrayEquals(byHash, sample);
+                assertTrue(sample.length >= Math.min(reference.size(), LikeIndex.SAMPLE_SIZE / 2));
+            }
+        }
+    }
+
+    private static void assertIndexMatchesFilms(LikeIndex index, FilmStorage storage) {
+        Map<Long, Set<Long>> expected = new HashMap<>();
+        for (Film film : storage.getAllFilms()) {
+            for (long userId : film.getLikedUsers().toLongArray()) {
+                expected.computeIfAbsent(userId, id -> new TreeSet<>()).add(film.getId());
+            }
+        }
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertEquals(expected.getOrDefault(userId, Set.of()), index.films(userId),
+                    "Фильмы пользователя " + userId);
+        }
+    }
+}
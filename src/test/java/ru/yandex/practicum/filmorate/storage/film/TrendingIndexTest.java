@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrendingIndexTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final List<Long> USER = List.of(1L);
+
+    private final MutableClock clock = new MutableClock();
+    private final TrendingIndex index = new TrendingIndex(List.of(HOUR, DAY), 60, clock);
+
+    @Test
+    void likes_ShouldLeaveWindowAfterItPasses() {
+        index.likesAdded(1, USER, 3);
+        advance(Duration.ofMinutes(30));
+        index.likesAdded(2, USER, 2);
+
+        assertEquals(List.of(1L, 2L), index.top(HOUR, 10));
+
+        advance(Duration.ofMinutes(31));
+        assertEquals(List.of(2L), index.top(HOUR, 10));
+        assertEquals(List.of(1L, 2L), index.top(DAY, 10));
+
+        // Долгий простой: сдвиг проходит кольцо один раз и очищает все окна
+        advance(Duration.ofDays(3));
+        assertTrue(index.top(HOUR, 10).isEmpty());
+        assertTrue(index.top(DAY, 10).isEmpty());
+    }
+
+    @Test
+    void removedLikes_ShouldCountAsNegativeEvents() {
+        index.likesAdded(1, USER, 1);
+        index.likesAdded(2, USER, 1);
+        advance(Duration.ofMinutes(90));
+        index.likesAdded(2, USER, 1);
+        index.likesRemoved(1, USER, 1);
+
+        assertEquals(List.of(2L), index.top(HOUR, 10));
+        assertEquals(-1, index.getLikes(HOUR, 1));
+        assertEquals(List.of(2L), index.top(DAY, 10));
+        assertEquals(0, index.getLikes(DAY, 1));
+    }
+
+    @Test
+    void randomEvents_ShouldMatchRecountOverWindow() {
+        Random random = new Random(11);
+        long[][] likesByMinute = new long[3 * 24 * 60][20];
+        for (int minute = 0; minute < likesByMinute.length; minute++) {
+            for (int i = 0; i < 5; i++) {
+                int film = random.nextInt(20);
+                int delta = random.nextInt(4) == 0 ? -1 : 1;
+                likesByMinute[minute][film] += delta;
+                if (delta > 0) {
+                    index.likesAdded(film, USER, 1);
+                } else {
+                    index.likesRemoved(film, USER, 1);
+                }
+            }
+            if (minute % 97 == 0) {
+                for (int film = 0; film < 20; film++) {
+                    assertEquals(recount(likesByMinute, minute, 60, film), index.getLikes(HOUR, film));
+                    // Корзина суточного окна — 24 минуты
+                    assertEquals(recount(likesByMinute, minute, 24 * 60 + minute % 24, film),
+                            index.getLikes(DAY, film));
+                }
+            }
+            advance(Duration.ofMinutes(1));
+        }
+    }
+
+    /**
+     * Сумма за последние {@code minutes} минут включая текущую: окно из полных корзин и текущей.
+     */
+    private static long recount(long[][] likesByMinute, int minute, int minutes, int film) {
+        long sum = 0;
+        for (int i = Math.max(0, minute - minutes); i <= minute; i++) {
+            sum += likesByMinute[i][film];
+        }
+        return sum;
+    }
+
+    private void advance(Duration duration) {
+        clock.now = clock.now.plus(duration);
+        index.roll();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedStorageTest {
+
+    private static final int FILMS = 200;
+    private static final int USERS = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_ShouldServeSameDataAsSourceStorage() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        populate(films, users);
+        Path file = directory.resolve("catalog.bin");
+        MappedSnapshot.write(file, films, users);
+
+        try (MappedCatalog catalog = new MappedCatalog(file, false)) {
+            MappedFilmStorage mappedFilms = catalog.getFilmStorage();
+            MappedUserStorage mappedUsers = catalog.getUserStorage();
+            assertEquals(films.getAllFilms(), mappedFilms.getAllFilms());
+            assertEquals(users.getAllUsers(), mappedUsers.getAllUsers());
+            assertEquals(films.getAllFilms(50, 20), mappedFilms.getAllFilms(50, 20));
+            assertEquals(films.getPopularFilms(15), mappedFilms.getPopularFilms(15));
+            assertEquals(films.getLikesCount(), mappedFilms.getLikesCount());
+            assertEquals(users.getFriendsCount(), mappedUsers.getFriendsCount());
+            assertEquals(users.getUserById(7), mappedUsers.getUserById(7));
+            assertNull(mappedFilms.getFilmById(FILMS + 1));
+
+            for (long userId = 1; userId <= USERS; userId++) {
+                films.addLike(FILMS, userId);
+                mappedFilms.addLike(FILMS, userId);
+            }
+            Film added = mappedFilms.addFilm(film(0));
+            assertEquals(FILMS + 1, added.getId());
+            assertEquals(films.getPopularFilms(15), mappedFilms.getPopularFilms(15));
+            assertEquals(FILMS, mappedFilms.getPopularFilms(1).get(0).getId());
+        }
+    }
+
+    @Test
+    void close_WithSave_ShouldKeepChangesForNextOpen() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        try (MappedCatalog catalog = new MappedCatalog(file, true)) {
+            populate(catalog.getFilmStorage(), catalog.getUserStorage());
+            catalog.getUserStorage().addFriend(1, 2);
+        }
+        try (MappedCatalog catalog = new MappedCatalog(file, false)) {
+            assertEquals(FILMS, catalog.getFilmStorage().getFilmsCount());
+            assertEquals(USERS, catalog.getUserStorage().getUsersCount());
+            assertTrue(catalog.getUserStorage().getUserById(1).getFriends().contains(2L));
+            assertEquals(USERS + 1, catalog.getUserStorage().addUser(user(0)).getId());
+        }
+    }
+
+    private void populate(FilmStorage films, UserStorage users) {
+        for (int i = 1; i <= USERS; i++) {
+            users.addUser(user(i));
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            films.addFilm(film(i));
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 3000; i++) {
+            films.addLike(1 + random.nextInt(FILMS / 10) * random.nextInt(10), 1 + random.nextInt(USERS));
+            users.addFriend(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+        }
+    }
+
+    private Film film(int index) {
+        return Film.builder()
+                .name("Фильм " + index)
+                .description(index % 7 == 0 ? null : "Описание " + index)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(index))
+                .duration(90 + index)
+                .build();
+    }
+
+    private User user(int index) {
+        return User.builder()
+                .email("user" + index + "@example.com")
+                .login("user" + index)
+                .name("Пользователь " + index)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.randomEdits;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+public class FriendshipGraphTest {
+
+    private static final int USERS = 2_000;
+
+    @Test
+    void randomEdits_ShouldMatchStorageAcrossLoadAndCompaction() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS / 2; i++) {
+            storage.addUser(user());
+        }
+        FriendshipGraph graph = new FriendshipGraph(storage::getAllUsers);
+        GraphIndexedUserStorage indexed = new GraphIndexedUserStorage(storage, graph);
+        Random random = new Random(42);
+
+        // Часть правок приходит до первого чтения графа, часть — после, с несколькими слияниями наложения
+        randomEdits(random, 5_000, USERS / 2, USERS / 2, indexed::addFriend, indexed::removeFriend);
+        assertGraphMatchesStorage(graph, storage);
+        for (int i = 0; i < USERS / 2; i++) {
+            indexed.addUser(user());
+        }
+        randomEdits(random, 200_000, USERS, USERS, indexed::addFriend, indexed::removeFriend);
+        assertGraphMatchesStorage(graph, storage);
+        assertEquals(storage.getFriendsCount() / 2, graph.getEdgeCount());
+    }
+
+    @Test
+    void addFriend_WithCrossingStripes_ShouldNotDeadlock() throws Exception {
+        // Пользователи 1 и 1497 попадают в одну полосу, 2 — в другую: по порядку id пары (1, 2) и (2, 1497)
+        // берут эти полосы встречно. Пока третья правка держит полосу пользователя 2, обе встают в очередь
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryUserStorage storage = new InMemoryUserStorage() {
+            @Override
+            public void addFriend(long userId, long friendId) {
+                super.addFriend(userId, friendId);
+                if (friendId == 3) {
+                    held.countDown();
+                    awaitUninterruptibly(release);
+                }
+            }
+        };
+        for (int i = 0; i < 1497; i++) {
+            storage.addUser(user());
+        }
+        FriendshipGraph graph = new FriendshipGraph(storage::getAllUsers);
+        GraphIndexedUserStorage indexed = new GraphIndexedUserStorage(storage, graph);
+
+        Thread holder = new Thread(() -> indexed.addFriend(2, 3));
+        holder.start();
+        held.await();
+        Thread second = startAndAwaitBlocked(() -> indexed.addFriend(2, 1497));
+        Thread first = startAndAwaitBlocked(() -> indexed.addFriend(1, 2));
+        release.countDown();
+
+        for (Thread thread : List.of(holder, second, first)) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(thread.isAlive(), "Правка дружбы не завершилась");
+        }
+        assertGraphMatchesStorage(graph, storage);
+        assertArrayEquals(new long[]{1, 3, 1497}, graph.friends(2));
+    }
+
+    @Test
+    void suggestions_ForHighDegreeUser_ShouldStayWithinBudget() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        FriendshipGraph graph = new FriendshipGraph(storage::getAllUsers);
+        GraphIndexedUserStorage indexed = new GraphIndexedUserStorage(storage, graph);
+        long hub = indexed.addUser(user()).getId();
+        long target = indexed.addUser(user()).getId();
+        long[] others = new long[2_000];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = indexed.addUser(user()).getId();
+        }
+        // Каждый из 2000 друзей хаба дружит с целью и ещё со 100 пользователями: рёбер вчетверо больше бюджета
+        long friendEdges = 0;
+        for (int i = 0; i < 2_000; i++) {
+            long friend = indexed.addUser(user()).getId();
+            indexed.addFriend(hub, friend);
+            indexed.addFriend(friend, target);
+            for (int j = 0; j < 100; j++) {
+                indexed.addFriend(friend, others[(i * 7 + j * 13) % others.length]);
+            }
+            friendEdges += graph.friends(friend).length;
+        }
+        assertTrue(friendEdges > 4L * FriendshipGraph.VISIT_BUDGET);
+
+        LongAdder visited = new LongAdder();
+        long[] suggestions = graph.suggestions(hub, 3, id -> visited.increment());
+        assertTrue(visited.sum() <= FriendshipGraph.VISIT_BUDGET, "Просмотрено рёбер: " + visited.sum());
+        assertEquals(3, suggestions.length);
+        assertEquals(target, suggestions[0]);
+    }
+
+    private static Thread startAndAwaitBlocked(Runnable task) throws InterruptedException {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertGraphMatchesStorage(FriendshipGraph graph, UserStorage storage) {
+        for (User user : storage.getAllUsers()) {
+            assertArrayEquals(user.getFriends().toLongArray(), graph.friends(user.getId()),
+                    "Друзья пользователя " + user.getId());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+public class CompactLongSetTest {
+
+    @Test
+    void randomOperations_ShouldMatchHashSet() {
+        Random random = new Random(42);
+        CompactLongSet compact = new CompactLongSet();
+        Set<Long> reference = new HashSet<>();
+
+        for (int round = 0; round < 4; round++) {
+            int bound = CompactLongSet.BITMAP_THRESHOLD * 3;
+            for (int i = 0; i < 20_000; i++) {
+                long value = random.nextInt(bound);
+                assertEquals(reference.add(value), compact.add(value));
+            }
+            assertEquals(reference.size(), compact.size());
+            for (int i = 0; i < 30_000; i++) {
+                long value = random.nextInt(bound);
+                assertEquals(reference.remove(value), compact.remove(value));
+                long probe = random.nextInt(bound);
+                assertEquals(reference.contains(probe), compact.contains(probe));
+            }
+            assertEquals(reference.size(), compact.size());
+            assertEquals(reference, compact);
+        }
+    }
+
+    @Test
+    void toLongArray_ShouldReturnSortedValues() {
+        CompactLongSet set = new CompactLongSet();
+        set.add(5L);
+        set.add(0L);
+        set.add(3L);
+
+        assertArrayEquals(new long[]{0, 3, 5}, set.toLongArray());
+    }
+
+    @Test
+    void intersection_ShouldMatchRetainAll() {
+        Random random = new Random(7);
+        int[][] sizes = {{10, 10}, {50, 5_000}, {6_000, 9_000}, {0, 100}};
+        for (int[] pair : sizes) {
+            CompactLongSet first = new CompactLongSet();
+            CompactLongSet second = new CompactLongSet();
+            while (first.size() < pair[0]) {
+                first.add((long) random.nextInt(20_000));
+            }
+            while (second.size() < pair[1]) {
+                second.add((long) random.nextInt(20_000));
+            }
+            Set<Long> expected = new HashSet<>(first);
+            expected.retainAll(second);
+
+            long[] actual = LongSets.intersection(first, second);
+            assertEquals(expected, new CompactLongSet(Arrays.stream(actual).boxed().toList()));
+            assertEquals(expected.size(), LongSets.intersectionSize(second, first));
+        }
+    }
+
+    @Test
+    void serialization_ShouldKeepJsonArrayShape() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Film film = Film.builder()
+                .id(1)
+                .name("Фильм")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .build();
+        film.getLikedUsers().add(3L);
+        film.getLikedUsers().add(1L);
+
+        String json = objectMapper.writeValueAsString(film);
+        assertTrue(json.contains("\"likedUsers\":[1,3]"));
+
+        Film restored = objectMapper.readValue(json, Film.class);
+        assertInstanceOf(CompactLongSet.class, restored.getLikedUsers());
+        assertEquals(film, restored);
+    }
+
+    @Test
+    void memoryFootprint_ShouldBeSmallerThanHashSet() {
+        int[] sizes = {10, 1_000, 100_000, 500_000};
+        for (int size : sizes) {
+            Set<Long> boxed = new HashSet<>();
+            CompactLongSet compact = new CompactLongSet();
+            for (long id = 1; id <= size; id++) {
+                boxed.add(id);
+                compact.add(id);
+            }
+
+            long boxedBytes = GraphLayout.parseInstance(boxed).totalSize();
+            long compactBytes = GraphLayout.parseInstance(compact).totalSize();
+            log.info("Элементов: {}, HashSet<Long>: {} байт, CompactLongSet: {} байт", size, boxedBytes, compactBytes);
+            assertTrue(compactBytes * 2 < boxedBytes);
+        }
+    }
+}
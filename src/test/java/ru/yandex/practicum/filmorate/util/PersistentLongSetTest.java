@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+public class PersistentLongSetTest {
+
+    @Test
+    void randomOperations_ShouldMatchTreeSetAndKeepOldVersions() {
+        Random random = new Random(42);
+        PersistentLongSet set = PersistentLongSet.empty();
+        TreeSet<Long> reference = new TreeSet<>();
+        List<PersistentLongSet> versions = new ArrayList<>();
+        List<long[]> expectedVersions = new ArrayList<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = value(random);
+            if (random.nextInt(3) == 0) {
+                PersistentLongSet updated = set.without(value);
+                assertEquals(reference.remove(value), updated != set);
+                set = updated;
+            } else {
+                PersistentLongSet updated = set.with(value);
+                assertEquals(reference.add(value), updated != set);
+                set = updated;
+            }
+            long probe = value(random);
+            assertEquals(reference.contains(probe), set.contains(probe));
+            if (i % 5_000 == 0) {
+                versions.add(set);
+                expectedVersions.add(reference.stream().mapToLong(Long::longValue).toArray());
+            }
+        }
+
+        assertEquals(reference.size(), set.size());
+        assertArrayEquals(reference.stream().mapToLong(Long::longValue).toArray(), set.toLongArray());
+        for (int i = 0; i < versions.size(); i++) {
+            assertArrayEquals(expectedVersions.get(i), versions.get(i).toLongArray());
+        }
+    }
+
+    @Test
+    void copyOf_ShouldKeepSortedOrderIncludingNegativeValues() {
+        CompactLongSet source = new CompactLongSet(List.of(5L, -3L, 0L, Long.MAX_VALUE, Long.MIN_VALUE, 4_097L));
+
+        PersistentLongSet copy = PersistentLongSet.copyOf(source);
+
+        assertArrayEquals(source.toLongArray(), copy.toLongArray());
+        assertEquals(source, copy);
+        assertSame(copy, PersistentLongSet.copyOf(copy));
+        assertArrayEquals(new long[]{-3, 0, 5, 4_097}, copy.without(Long.MIN_VALUE).without(Long.MAX_VALUE)
+                .toLongArray());
+    }
+
+    @Test
+    void mutation_ShouldBeRejected() {
+        PersistentLongSet set = PersistentLongSet.empty().with(1);
+
+        assertThrows(UnsupportedOperationException.class, () -> set.add(2L));
+        assertThrows(UnsupportedOperationException.class, () -> set.remove(1L));
+    }
+
+    @Test
+    void memoryFootprint_ShouldBeSmallerThanHashSet() {
+        int[] sizes = {10, 1_000, 100_000};
+        for (int size : sizes) {
+            Set<Long> boxed = new HashSet<>();
+            PersistentLongSet persistent = PersistentLongSet.empty();
+            Random random = new Random(size);
+            while (boxed.size() < size) {
+                long id = 1 + random.nextInt(size * 10);
+                boxed.add(id);
+                persistent = persistent.with(id);
+            }
+
+            long boxedBytes = GraphLayout.parseInstance(boxed).totalSize();
+            long persistentBytes = GraphLayout.parseInstance(persistent).totalSize();
+            log.info("Элементов: {}, HashSet<Long>: {} байт, PersistentLongSet: {} байт", size, boxedBytes,
+                    persistentBytes);
+            assertTrue(persistentBytes * 2 < boxedBytes);
+        }
+    }
+
+    private static long value(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextLong();
+            case 1 -> -random.nextInt(1_000);
+            default -> random.nextInt(20_000);
+        };
+    }
+}